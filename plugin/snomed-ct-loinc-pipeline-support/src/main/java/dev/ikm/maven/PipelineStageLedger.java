@@ -0,0 +1,225 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Fingerprints of the pipeline stages applied to a datastore, kept in the datastore directory. A
+ * fingerprint holds everything a stage's output depends on: the plugin version and the SHA-256 of the
+ * plugin jar, settings such as namespace and controller name, and the SHA-256 of the input files. A
+ * stage whose fingerprint matches the one recorded after its last successful run has nothing to do.
+ * File hashes are memoized by size and modification time, so an unchanged release zip is not read
+ * again and the check takes milliseconds.
+ * <p>
+ * Stages are recorded in the order they ran. Running a stage forgets the stages recorded after it,
+ * as they were applied on top of the content it is about to change. A datastore that is deleted or
+ * regenerated loses the ledger with it, so every stage runs again.
+ */
+public class PipelineStageLedger {
+    private static final Logger LOG = LoggerFactory.getLogger(PipelineStageLedger.class.getSimpleName());
+    static final String FILE_NAME = "pipeline-stages.properties";
+    private static final String STAGES_KEY = "stages";
+    private static final String STAGE_PREFIX = "stage.";
+    private static final String HASH_PREFIX = "hash.";
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path file;
+    private final Properties properties;
+
+    private PipelineStageLedger(Path file, Properties properties) {
+        this.file = file;
+        this.properties = properties;
+    }
+
+    /**
+     * Reads the ledger of a datastore, a datastore without one starts empty
+     *
+     * @param datastore datastore directory
+     * @return ledger of the datastore
+     * @throws IOException if an existing ledger cannot be read
+     */
+    public static PipelineStageLedger load(Path datastore) throws IOException {
+        Path file = datastore.resolve(FILE_NAME);
+        Properties properties = new Properties();
+        if (Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file)) {
+                properties.load(reader);
+            }
+        }
+        return new PipelineStageLedger(file, properties);
+    }
+
+    /**
+     * Builds the fingerprint of a stage run
+     *
+     * @param mojo          class of the mojo running the stage, its jar is hashed so rebuilt snapshots count as changed
+     * @param pluginVersion version of the plugin running the stage
+     * @param settings      settings the output depends on, such as namespace and controller name
+     * @param inputs        input files the output depends on, such as the release zip
+     * @return fingerprint, ordered by key
+     * @throws IOException if an input cannot be read
+     */
+    public Map<String, String> fingerprint(Class<?> mojo, String pluginVersion, Map<String, String> settings,
+                                           Path... inputs) throws IOException {
+        Map<String, String> fingerprint = new TreeMap<>();
+        fingerprint.put("plugin.version", String.valueOf(pluginVersion));
+        Path jar = pluginJar(mojo);
+        if (jar != null) {
+            fingerprint.put("plugin.sha256", hash(jar));
+        }
+        settings.forEach((name, value) -> fingerprint.put("setting." + name, String.valueOf(value)));
+        for (Path input : inputs) {
+            fingerprint.put("input." + input.toAbsolutePath().normalize(),
+                    Files.isRegularFile(input) ? hash(input) : "missing");
+        }
+        return fingerprint;
+    }
+
+    /**
+     * @param stage       name of the stage
+     * @param fingerprint fingerprint of the run about to start
+     * @return true if the last successful run of the stage had the same fingerprint
+     */
+    public boolean isUpToDate(String stage, Map<String, String> fingerprint) {
+        return stages().contains(stage) && fingerprint.equals(recorded(stage));
+    }
+
+    /**
+     * Forgets a stage and every stage recorded after it, so an interrupted run is never taken as done
+     *
+     * @param stage name of the stage about to run
+     * @throws IOException if the ledger cannot be written
+     */
+    public void starting(String stage) throws IOException {
+        List<String> stages = stages();
+        int index = stages.indexOf(stage);
+        if (index < 0) {
+            return;
+        }
+        for (String forgotten : stages.subList(index, stages.size())) {
+            properties.stringPropertyNames().stream()
+                    .filter(key -> key.startsWith(STAGE_PREFIX + forgotten + "."))
+                    .forEach(properties::remove);
+        }
+        setStages(stages.subList(0, index));
+        save();
+    }
+
+    /**
+     * Records the fingerprint of a successful run as the last stage applied
+     *
+     * @param stage       name of the stage
+     * @param fingerprint fingerprint of the run
+     * @throws IOException if the ledger cannot be written
+     */
+    public void completed(String stage, Map<String, String> fingerprint) throws IOException {
+        starting(stage);
+        fingerprint.forEach((key, value) -> properties.setProperty(STAGE_PREFIX + stage + "." + key, value));
+        List<String> stages = stages();
+        stages.add(stage);
+        setStages(stages);
+        save();
+        LOG.info("Recorded stage " + stage + " in " + file);
+    }
+
+    private List<String> stages() {
+        String stages = properties.getProperty(STAGES_KEY, "");
+        return stages.isEmpty() ? new ArrayList<>() : new ArrayList<>(Arrays.asList(stages.split(",")));
+    }
+
+    private void setStages(List<String> stages) {
+        properties.setProperty(STAGES_KEY, String.join(",", stages));
+    }
+
+    private Map<String, String> recorded(String stage) {
+        String prefix = STAGE_PREFIX + stage + ".";
+        Map<String, String> recorded = new TreeMap<>();
+        properties.stringPropertyNames().stream()
+                .filter(key -> key.startsWith(prefix))
+                .forEach(key -> recorded.put(key.substring(prefix.length()), properties.getProperty(key)));
+        return recorded;
+    }
+
+    private static Path pluginJar(Class<?> mojo) {
+        CodeSource source = mojo.getProtectionDomain().getCodeSource();
+        if (source == null || source.getLocation() == null) {
+            return null;
+        }
+        try {
+            Path location = Path.of(source.getLocation().toURI());
+            // Classes run from a build directory have no jar to hash, the version has to do
+            return Files.isRegularFile(location) ? location : null;
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private String hash(Path input) throws IOException {
+        String key = HASH_PREFIX + input.toAbsolutePath().normalize();
+        String stamp = Files.size(input) + "|" + Files.getLastModifiedTime(input).toMillis() + "|";
+        String known = properties.getProperty(key);
+        if (known != null && known.startsWith(stamp)) {
+            return known.substring(stamp.length());
+        }
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(input)) {
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                sha256.update(buffer, 0, read);
+            }
+        }
+        String hash = HexFormat.of().formatHex(sha256.digest());
+        // Persisted with the next change to the ledger
+        properties.setProperty(key, stamp + hash);
+        return hash;
+    }
+
+    private void save() throws IOException {
+        Files.createDirectories(file.getParent());
+        Path partial = file.resolveSibling(FILE_NAME + ".partial");
+        try (Writer writer = Files.newBufferedWriter(partial)) {
+            properties.store(writer, "Fingerprints of the pipeline stages applied to this datastore");
+        }
+        Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
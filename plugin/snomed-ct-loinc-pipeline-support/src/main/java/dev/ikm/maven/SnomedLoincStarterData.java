@@ -0,0 +1,114 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+import dev.ikm.tinkar.common.util.uuid.UuidT5Generator;
+import dev.ikm.tinkar.composer.Composer;
+import dev.ikm.tinkar.composer.Session;
+import dev.ikm.tinkar.composer.assembler.ConceptAssembler;
+import dev.ikm.tinkar.composer.template.Definition;
+import dev.ikm.tinkar.composer.template.FullyQualifiedName;
+import dev.ikm.tinkar.composer.template.Identifier;
+import dev.ikm.tinkar.composer.template.StatedAxiom;
+import dev.ikm.tinkar.composer.template.Synonym;
+import dev.ikm.tinkar.terms.EntityProxy;
+import dev.ikm.tinkar.terms.State;
+import dev.ikm.tinkar.terms.TinkarTerm;
+
+import java.util.UUID;
+
+import static dev.ikm.tinkar.terms.TinkarTerm.DESCRIPTION_NOT_CASE_SENSITIVE;
+import static dev.ikm.tinkar.terms.TinkarTerm.ENGLISH_LANGUAGE;
+
+/**
+ * Concepts the SNOMED CT LOINC load refers to but the release does not define: the author of every
+ * STAMP and the identifier source of LOINC codes. Composed into a started datastore by the starter data
+ * goal, or by the pipeline goal ahead of the load.
+ */
+public class SnomedLoincStarterData {
+
+    private SnomedLoincStarterData() {
+    }
+
+    /**
+     * Composes and commits the starter concepts
+     *
+     * @param namespace namespace of the load
+     */
+    public static void compose(UUID namespace) {
+        Composer composer = new Composer("Snomed CT Loinc Starter Data Composer");
+
+        Session session = composer.open(State.ACTIVE,
+                TinkarTerm.USER,
+                TinkarTerm.PRIMORDIAL_MODULE,
+                TinkarTerm.PRIMORDIAL_PATH);
+
+        EntityProxy.Concept snomedLoincAuthor = EntityProxy.Concept.make("SNOMED CT LOINC Collaboration Author", UuidT5Generator.get(namespace, "SNOMED CT LOINC Collaboration Author"));
+        session.compose((ConceptAssembler concept) -> concept
+                .concept(snomedLoincAuthor)
+                .attach((FullyQualifiedName fqn) -> fqn
+                        .language(ENGLISH_LANGUAGE)
+                        .text("IHTSDO SNOMED CT LOINC Collaboration Author")
+                        .caseSignificance(DESCRIPTION_NOT_CASE_SENSITIVE)
+                )
+                .attach((Synonym synonym)-> synonym
+                        .language(ENGLISH_LANGUAGE)
+                        .text("SNOMED CT LOINC Collaboration Author")
+                        .caseSignificance(DESCRIPTION_NOT_CASE_SENSITIVE)
+                )
+                .attach((Definition definition) -> definition
+                        .language(ENGLISH_LANGUAGE)
+                        .text("International Health Terminology Standards Development Organisation (IHTSDO) SNOMED CT LOINC Collaboration Author")
+                        .caseSignificance(DESCRIPTION_NOT_CASE_SENSITIVE)
+                )
+                .attach((Identifier identifier) -> identifier
+                        .source(TinkarTerm.UNIVERSALLY_UNIQUE_IDENTIFIER)
+                        .identifier(snomedLoincAuthor.asUuidArray()[0].toString())
+                )
+                .attach((StatedAxiom statedAxiom) -> statedAxiom
+                        .isA(TinkarTerm.USER)
+                )
+        );
+
+        EntityProxy.Concept loincIdentifier = EntityProxy.Concept.make("LOINC Number",  UuidT5Generator.get(namespace,"705114005"));
+        session.compose((ConceptAssembler concept) -> concept
+                .concept(loincIdentifier)
+                .attach((FullyQualifiedName fqn) -> fqn
+                        .language(ENGLISH_LANGUAGE)
+                        .text("LOINC Number")
+                        .caseSignificance(DESCRIPTION_NOT_CASE_SENSITIVE)
+                )
+                .attach((Synonym synonym)-> synonym
+                        .language(ENGLISH_LANGUAGE)
+                        .text("LOINC Num")
+                        .caseSignificance(DESCRIPTION_NOT_CASE_SENSITIVE)
+                )
+                .attach((Definition definition) -> definition
+                        .language(ENGLISH_LANGUAGE)
+                        .text("Unique point of origin for identifier")
+                        .caseSignificance(DESCRIPTION_NOT_CASE_SENSITIVE)
+                )
+                .attach((Identifier identifier) -> identifier
+                        .source(TinkarTerm.UNIVERSALLY_UNIQUE_IDENTIFIER)
+                        .identifier(loincIdentifier.asUuidArray()[0].toString())
+                )
+                .attach((StatedAxiom statedAxiom) -> statedAxiom
+                        .isA(TinkarTerm.IDENTIFIER_SOURCE)
+                )
+        );
+        composer.commitSession(session);
+    }
+}
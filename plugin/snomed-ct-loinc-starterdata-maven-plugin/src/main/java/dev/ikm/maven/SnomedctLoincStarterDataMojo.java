@@ -4,14 +4,6 @@ import dev.ikm.tinkar.common.service.CachingService;
 import dev.ikm.tinkar.common.service.PrimitiveData;
 import dev.ikm.tinkar.common.service.ServiceKeys;
 import dev.ikm.tinkar.common.service.ServiceProperties;
-import dev.ikm.tinkar.common.util.uuid.UuidT5Generator;
-import dev.ikm.tinkar.composer.Composer;
-import dev.ikm.tinkar.composer.Session;
-import dev.ikm.tinkar.composer.assembler.ConceptAssembler;
-import dev.ikm.tinkar.composer.template.*;
-import dev.ikm.tinkar.terms.EntityProxy;
-import dev.ikm.tinkar.terms.State;
-import dev.ikm.tinkar.terms.TinkarTerm;
 
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -20,11 +12,9 @@ import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 
 import java.io.File;
+import java.util.Map;
 import java.util.UUID;
 
-import static dev.ikm.tinkar.terms.TinkarTerm.DESCRIPTION_NOT_CASE_SENSITIVE;
-import static dev.ikm.tinkar.terms.TinkarTerm.ENGLISH_LANGUAGE;
-
 /**
  * Hello world!
  *
@@ -32,12 +22,22 @@ import static dev.ikm.tinkar.terms.TinkarTerm.ENGLISH_LANGUAGE;
 @Mojo(name = "run-snomed-ct-loinc-starterdata", defaultPhase = LifecyclePhase.INSTALL)
 public class SnomedctLoincStarterDataMojo extends AbstractMojo
 {
+    static final String STAGE = "starterdata";
+
     @Parameter(property = "origin.namespace", required = true)
     String namespaceString;
     @Parameter(property = "datastorePath", required = true)
     private String datastorePath;
     @Parameter(property = "controllerName", defaultValue = "Open SpinedArrayStore")
     private String controllerName;
+    /**
+     * Skip the starter data when plugin, namespace and controller are those of the last successful run
+     * into the datastore, see {@link PipelineStageLedger}
+     */
+    @Parameter(property = "upToDateCheck", defaultValue = "true")
+    private boolean upToDateCheck;
+    @Parameter(defaultValue = "${plugin.version}", readonly = true)
+    private String pluginVersion;
 
     private UUID namespace;
     public void execute() throws MojoExecutionException
@@ -45,74 +45,24 @@ public class SnomedctLoincStarterDataMojo extends AbstractMojo
         try {
             this.namespace = UUID.fromString(namespaceString);
             File datastore = new File(datastorePath);
+            PipelineStageLedger ledger = PipelineStageLedger.load(datastore.toPath());
+            // The concepts are composed by the pipeline support jar, so its jar is the one that decides the content
+            Map<String, String> fingerprint = ledger.fingerprint(SnomedLoincStarterData.class, pluginVersion,
+                    Map.of("namespace", namespaceString, "controllerName", controllerName));
+            if (upToDateCheck && ledger.isUpToDate(STAGE, fingerprint)) {
+                getLog().info("Snomed CT Loinc starter data is up to date, skipping");
+                return;
+            }
+            ledger.starting(STAGE);
 
             CachingService.clearAll();
             ServiceProperties.set(ServiceKeys.DATA_STORE_ROOT, datastore);
             PrimitiveData.selectControllerByName(controllerName);
             PrimitiveData.start();
 
-            Composer composer = new Composer("Snomed CT Loinc Starter Data Composer");
-
-            Session session = composer.open(State.ACTIVE,
-                    TinkarTerm.USER,
-                    TinkarTerm.PRIMORDIAL_MODULE,
-                    TinkarTerm.PRIMORDIAL_PATH);
-
-            EntityProxy.Concept snomedLoincAuthor = EntityProxy.Concept.make("SNOMED CT LOINC Collaboration Author", UuidT5Generator.get(namespace, "SNOMED CT LOINC Collaboration Author"));
-            session.compose((ConceptAssembler concept) -> concept
-                    .concept(snomedLoincAuthor)
-                    .attach((FullyQualifiedName fqn) -> fqn
-                            .language(ENGLISH_LANGUAGE)
-                            .text("IHTSDO SNOMED CT LOINC Collaboration Author")
-                            .caseSignificance(DESCRIPTION_NOT_CASE_SENSITIVE)
-                    )
-                    .attach((Synonym synonym)-> synonym
-                            .language(ENGLISH_LANGUAGE)
-                            .text("SNOMED CT LOINC Collaboration Author")
-                            .caseSignificance(DESCRIPTION_NOT_CASE_SENSITIVE)
-                    )
-                    .attach((Definition definition) -> definition
-                            .language(ENGLISH_LANGUAGE)
-                            .text("International Health Terminology Standards Development Organisation (IHTSDO) SNOMED CT LOINC Collaboration Author")
-                            .caseSignificance(DESCRIPTION_NOT_CASE_SENSITIVE)
-                    )
-                    .attach((Identifier identifier) -> identifier
-                            .source(TinkarTerm.UNIVERSALLY_UNIQUE_IDENTIFIER)
-                            .identifier(snomedLoincAuthor.asUuidArray()[0].toString())
-                    )
-                    .attach((StatedAxiom statedAxiom) -> statedAxiom
-                            .isA(TinkarTerm.USER)
-                    )
-            );
-
-            EntityProxy.Concept loincIdentifier = EntityProxy.Concept.make("LOINC Number",  UuidT5Generator.get(namespace,"705114005"));
-            session.compose((ConceptAssembler concept) -> concept
-                    .concept(loincIdentifier)
-                    .attach((FullyQualifiedName fqn) -> fqn
-                            .language(ENGLISH_LANGUAGE)
-                            .text("LOINC Number")
-                            .caseSignificance(DESCRIPTION_NOT_CASE_SENSITIVE)
-                    )
-                    .attach((Synonym synonym)-> synonym
-                            .language(ENGLISH_LANGUAGE)
-                            .text("LOINC Num")
-                            .caseSignificance(DESCRIPTION_NOT_CASE_SENSITIVE)
-                    )
-                    .attach((Definition definition) -> definition
-                            .language(ENGLISH_LANGUAGE)
-                            .text("Unique point of origin for identifier")
-                            .caseSignificance(DESCRIPTION_NOT_CASE_SENSITIVE)
-                    )
-                    .attach((Identifier identifier) -> identifier
-                            .source(TinkarTerm.UNIVERSALLY_UNIQUE_IDENTIFIER)
-                            .identifier(loincIdentifier.asUuidArray()[0].toString())
-                    )
-                    .attach((StatedAxiom statedAxiom) -> statedAxiom
-                            .isA(TinkarTerm.IDENTIFIER_SOURCE)
-                    )
-            );
-            composer.commitSession(session);
+            SnomedLoincStarterData.compose(namespace);
             PrimitiveData.stop();
+            ledger.completed(STAGE, fingerprint);
         } catch (Exception e) {
             throw new MojoExecutionException("Failed to execute class", e);
         }
@@ -1,14 +1,252 @@
 package dev.ikm.maven;
 
+import dev.ikm.tinkar.composer.Composer;
+import dev.ikm.tinkar.composer.Session;
+import dev.ikm.tinkar.terms.EntityProxy;
+import dev.ikm.tinkar.terms.State;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.util.Optional;
 import java.util.UUID;
 
-public abstract class AbstractTransformer implements Transformer {
+/**
+ * Base for RF2 transformers. Each row is parsed by {@link #parse(Rf2Record)} on a worker of the
+ * {@link Rf2RowPipeline}, and then composed by {@link #compose(Object, Session)} on the transforming
+ * thread in original row order, so state carried from one row to the next stays valid.
+ *
+ * @param <R> transformer specific data parsed from a row
+ */
+public abstract class AbstractTransformer<R> implements Transformer {
+    static final int ID = 0;
+    static final int EFFECTIVE_TIME = 1;
+    static final int ACTIVE = 2;
+    static final int MODULE_ID = 3;
+
     final UUID namespace;
-    AbstractTransformer(UUID namespace) {
+    final TransformationContext context;
+    final EntityProxy.Concept author;
+    final EntityProxy.Concept path;
+    // Position of the last composed row, recorded in the checkpoint when its batch is committed
+    private long lastOffset;
+    private String lastRowId;
+    private long resumedAt;
+    private TransformerMetrics metrics;
+    private String fileName;
+
+    AbstractTransformer(UUID namespace, TransformationContext context) {
         this.namespace = namespace;
+        this.context = context;
+        this.author = SnomedLoincUtility.getUserConcept(namespace);
+        this.path = SnomedLoincUtility.getPathConcept();
     }
+
     @Override
     public UUID getNamespace() {
         return namespace;
     }
+
+    /**
+     * STAMP columns shared by every RF2 file, plus the transformer specific data of the row
+     */
+    record ParsedRow<R>(State status, int effectiveTime, long time, long moduleId, EntityProxy.Concept module, long offset, String rowId, R data) {
+    }
+
+    /**
+     * Transforms a file, from the offset the {@link TransformationCheckpoint} resumes it at. Rows are
+     * taken from the {@link Rf2ColumnarCache} when a previous load has read the file, otherwise from
+     * the text, sorted first if the transformer {@link #groupsVersions() groups versions}. Rows that
+     * share a STAMP are composed into one pooled session of a {@link StampSessionCache}, and every
+     * committed batch is recorded in the checkpoint.
+     *
+     * @param inputFile RF2 file
+     * @param composer  composer the sessions are opened on
+     */
+    @Override
+    public void transform(Path inputFile, Composer composer) {
+        fileName = inputFile.getFileName().toString();
+        TransformationCheckpoint checkpoint = context.checkpoint();
+        StampSessionCache sessions = new StampSessionCache(composer, author, path, context.sessionCacheSize(),
+                context.commitBatchSize(), context.flushHeapThreshold());
+        sessions.onBatchCommitted(() -> checkpoint.batchCommitted(fileName, lastOffset, lastRowId, context.watermark()));
+        metrics = context.report().start(fileName, getClass().getSimpleName());
+        sessions.recordCommitsIn(metrics);
+        // Grouped rows are cached sorted, so a cache hit also skips sorting
+        String cacheVariant = groupsVersions() ? "sorted" : "";
+        long startOffset = checkpoint.resumeOffset(fileName);
+        lastOffset = startOffset;
+        resumedAt = startOffset;
+        lastRowId = checkpoint.lastRowId(fileName);
+        if (startOffset > 0 && lastRowId != null) {
+            resumeAfter(lastRowId);
+        }
+        checkpoint.beginFile();
+        try {
+            // Bytes before the resume offset were read by an earlier attempt, progress counts from there
+            metrics.bytesTotal = Math.max(0, Files.size(inputFile) - startOffset);
+            Optional<Rf2ColumnarFile> cached = context.rowCache().open(inputFile, cacheVariant);
+            if (cached.isPresent()) {
+                try (Rf2ColumnarFile rows = cached.get()) {
+                    rows.forEachRow(context.parsers(), startOffset, this::parseRow, row -> composeRow(row, sessions));
+                }
+            } else {
+                Path rows = groupsVersions() ? context.sorter().sorted(inputFile) : inputFile;
+                new Rf2ChunkedParser(context.parsers())
+                        .forEachRow(rows, startOffset, this::parseRow, row -> composeRow(row, sessions));
+                context.rowCache().store(inputFile, cacheVariant, rows);
+                context.sorter().release(inputFile, rows);
+            }
+        } catch (IOException e) {
+            handleReadFailure(e);
+        } finally {
+            try {
+                sessions.commitAll();
+            } finally {
+                checkpoint.endFile();
+                metrics.finish();
+            }
+        }
+        checkpoint.fileCompleted(fileName);
+    }
+
+    private ParsedRow<R> parseRow(Rf2Record row) {
+        metrics.rowsRead.increment();
+        if (!context.detailedMetrics()) {
+            return parseOrReject(row);
+        }
+        long allocatedBefore = TransformerMetrics.allocatedBytes();
+        long before = System.nanoTime();
+        ParsedRow<R> parsed = parseOrReject(row);
+        metrics.parseNanos.add(System.nanoTime() - before);
+        metrics.parseAllocatedBytes.add(TransformerMetrics.allocatedBytes() - allocatedBefore);
+        return parsed;
+    }
+
+    /**
+     * Parses a row unless it is at or before the {@link EffectiveTimeWatermark} of its module. A row
+     * that cannot be parsed goes to the {@link RejectSink} and holds the watermark of its module back.
+     *
+     * @param row current row
+     * @return parsed row, or null if the row is skipped or rejected
+     */
+    private ParsedRow<R> parseOrReject(Rf2Record row) {
+        int effectiveTime;
+        long moduleId;
+        try {
+            effectiveTime = row.intValue(EFFECTIVE_TIME);
+            moduleId = row.longValue(MODULE_ID);
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            reject(row, RejectSink.Reason.MALFORMED_ROW, e.toString());
+            return null;
+        }
+        if (!context.watermark().accepts(moduleId, effectiveTime)) {
+            // Applied by an earlier load
+            metrics.rowsSkipped.increment();
+            return null;
+        }
+        try {
+            return parseStampAndRow(row, effectiveTime, moduleId);
+        } catch (Rf2RowRejectedException e) {
+            context.watermark().hold(moduleId, effectiveTime);
+            reject(row, e.reason(), e.getMessage());
+        } catch (NumberFormatException | IndexOutOfBoundsException | DateTimeException e) {
+            context.watermark().hold(moduleId, effectiveTime);
+            reject(row, RejectSink.Reason.MALFORMED_ROW, e.toString());
+        }
+        return null;
+    }
+
+    private void reject(Rf2Record row, RejectSink.Reason reason, String detail) {
+        metrics.rowsRejected.increment();
+        StringBuilder text = new StringBuilder();
+        for (int column = 0; column < row.columnCount(); column++) {
+            if (column > 0) {
+                text.append('\t');
+            }
+            text.append(row.string(column));
+        }
+        context.rejects().reject(fileName, row.offset(), reason, detail, text.toString());
+    }
+
+    private ParsedRow<R> parseStampAndRow(Rf2Record row, int effectiveTime, long moduleId) {
+        State status = row.booleanValue(ACTIVE) ? State.ACTIVE : State.INACTIVE;
+        long time = SnomedLoincUtility.snomedTimestampToEpochSeconds(effectiveTime);
+        EntityProxy.Concept module = SnomedLoincUtility.getConcept(context.idCache(), moduleId);
+        String rowId = context.checkpoint().isEnabled() ? row.string(ID) : null;
+        return new ParsedRow<>(status, effectiveTime, time, moduleId, module, row.offset(), rowId, parse(row));
+    }
+
+    private void composeRow(ParsedRow<R> row, StampSessionCache sessions) {
+        boolean detailed = context.detailedMetrics();
+        long allocatedBefore = detailed ? TransformerMetrics.allocatedBytes() : 0;
+        long before = detailed ? System.nanoTime() : 0;
+        Session session = sessions.open(row.status(), row.time(), row.moduleId(), row.module());
+        compose(row.data(), session);
+        // Recorded only once composed, so a rejected row never raises the watermark
+        context.watermark().record(row.moduleId(), row.effectiveTime());
+        if (detailed) {
+            metrics.composeNanos.add(System.nanoTime() - before);
+            metrics.composeAllocatedBytes.add(TransformerMetrics.allocatedBytes() - allocatedBefore);
+        }
+        metrics.rowsComposed.increment();
+        lastOffset = row.offset();
+        lastRowId = row.rowId();
+        sessions.rowComposed();
+        metrics.bytesConsumed = row.offset() - resumedAt;
+        metrics.openSessions = sessions.size();
+    }
+
+    /**
+     * Transformers that compose a component once and then add its later versions return true. Their
+     * rows are then read sorted by id and effective time, so all versions of a component arrive one
+     * after the other, earliest first, whatever the order of the file.
+     *
+     * @return true if rows must be grouped by component
+     */
+    boolean groupsVersions() {
+        return false;
+    }
+
+    /**
+     * Called before the first row of a file that resumes after rows an earlier attempt committed.
+     * Transformers that carry state from one row to the next restore it here, so a resume inside a
+     * group of versions continues the group.
+     *
+     * @param lastRowId id column of the last row committed before the interruption
+     */
+    void resumeAfter(String lastRowId) {
+    }
+
+    /**
+     * Parses the transformer specific columns of a row. May run concurrently for different rows, so
+     * implementations must not read or write transformer state.
+     *
+     * @param row current row, only valid for the duration of the call
+     * @return parsed data
+     */
+    abstract R parse(Rf2Record row);
+
+    /**
+     * Composes a parsed row, called in original row order on a single thread
+     *
+     * @param data    parsed data of the row
+     * @param session session for the STAMP of the row
+     */
+    abstract void compose(R data, Session session);
+
+    /**
+     * Fails the load on a file that could not be read to its end. The rows composed so far are kept and
+     * the failure goes to the reject file with the offset the unread rows start at; the file stays
+     * incomplete in the checkpoint and the watermark is not saved, so a resumed load reads the rest.
+     *
+     * @param e read failure
+     * @throws UncheckedIOException always
+     */
+    void handleReadFailure(IOException e) {
+        context.rejects().readFailed(fileName, lastOffset, e.toString());
+        throw new UncheckedIOException("Unable to read " + fileName + " past offset " + lastOffset, e);
+    }
 }
@@ -17,25 +17,18 @@ package dev.ikm.maven;
 
 import dev.ikm.tinkar.common.id.PublicIds;
 import dev.ikm.tinkar.common.util.uuid.UuidUtil;
-import dev.ikm.tinkar.composer.Composer;
 import dev.ikm.tinkar.composer.Session;
 import dev.ikm.tinkar.composer.template.AxiomSyntax;
 import dev.ikm.tinkar.terms.EntityProxy;
-import dev.ikm.tinkar.terms.State;
-import dev.ikm.tinkar.terms.TinkarTerm;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
-import java.io.IOException;
-import java.nio.file.Files;
 import java.util.UUID;
-import java.util.stream.Stream;
 
 /**
  * Class to parse OWL Expression files and create Axiom Syntax Semantics
  */
-public class AxiomSyntaxTransformer extends AbstractTransformer {
+public class AxiomSyntaxTransformer extends AbstractTransformer<AxiomSyntaxTransformer.AxiomRow> {
 
     private static final Logger LOG = LoggerFactory.getLogger(AxiomSyntaxTransformer.class.getSimpleName());
     private static final int ID = 0;
@@ -45,47 +38,40 @@ public class AxiomSyntaxTransformer extends AbstractTransformer {
     private static final int REFSET_ID = 4;
     private static final int REFERENCED_COMPONENT_ID = 5;
     private static final int OWL_EXPRESSION = 6;
-    String previousRowId;
-    AxiomSyntaxTransformer(UUID namespace) {
-        super(namespace);
+    AxiomSyntaxTransformer(UUID namespace, TransformationContext context) {
+        super(namespace, context);
+    }
+
+    record AxiomRow(EntityProxy.Semantic axiomSemantic, EntityProxy.Concept concept, String owlExpressionWithPublicIds) {
     }
 
     /**
-     * Parses OWL Expression file and creates Axiom Semantics for each line
+     * Parses a row of an OWL Expression file
      *
-     * @param axiomFile input file Path
-     * @param composer composer utility
+     * @param row OWL Expression file row
      */
     @Override
-    public void transform(File axiomFile, Composer composer) {
-
-        EntityProxy.Concept author = SnomedLoincUtility.getUserConcept(namespace);
-        EntityProxy.Concept path = SnomedLoincUtility.getPathConcept();
-
-        try (Stream<String> lines = Files.lines(axiomFile.toPath())) {
-            lines.skip(1)
-                .forEach(line ->{
-                   String[] columns = line.split("\t");
-                   long time = SnomedLoincUtility.snomedTimestampToEpochSeconds(columns[EFFECTIVE_TIME]);
-                   State status = columns[ACTIVE].equals("1") ? State.ACTIVE : State.INACTIVE;
-                   EntityProxy.Concept module = EntityProxy.Concept.make(PublicIds.of(UuidUtil.fromSNOMED(columns[MODULE_ID])));
-
-                   Session session = composer.open(status, time, author, module, path);
-                   String owlExpressionWithPublicIds = SnomedLoincUtility.owlAxiomIdsToPublicIds(columns[OWL_EXPRESSION]);
-
-                   EntityProxy.Concept concept = EntityProxy.Concept.make(PublicIds.of(UuidUtil.fromSNOMED(columns[REFERENCED_COMPONENT_ID])));
-                   EntityProxy.Semantic axiomSemantic = EntityProxy.Semantic.make(PublicIds.of(UuidUtil.fromSNOMED(columns[ID])));
+    AxiomRow parse(Rf2Record row) {
+        String owlExpressionWithPublicIds = context.owlExpressionRewriter().rewrite(row.string(OWL_EXPRESSION));
 
-                   previousRowId = columns[ID];
+        EntityProxy.Concept concept = SnomedLoincUtility.getConcept(context.idCache(), row.longValue(REFERENCED_COMPONENT_ID));
+        // Refset member ids are UUIDs rather than SCTIDs, so they cannot go through the id cache
+        EntityProxy.Semantic axiomSemantic = EntityProxy.Semantic.make(PublicIds.of(UuidUtil.fromSNOMED(row.string(ID))));
+        return new AxiomRow(axiomSemantic, concept, owlExpressionWithPublicIds);
+    }
 
-                   session.compose(new AxiomSyntax()
-                                    .semantic(axiomSemantic)
-                                    .text(owlExpressionWithPublicIds),
-                           concept);
-               });
-        } catch(IOException | SecurityException ex) {
-            LOG.info(ex.toString());
-        }
+    /**
+     * Creates the Axiom Semantic for a parsed row
+     *
+     * @param row parsed axiom
+     * @param session session for the STAMP of the row
+     */
+    @Override
+    void compose(AxiomRow row, Session session) {
+        session.compose(new AxiomSyntax()
+                        .semantic(row.axiomSemantic())
+                        .text(row.owlExpressionWithPublicIds()),
+                row.concept());
     }
 
 }
@@ -0,0 +1,174 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.entity.Entity;
+import dev.ikm.tinkar.entity.EntityService;
+import dev.ikm.tinkar.entity.transform.EntityToTinkarSchemaTransformer;
+import org.eclipse.collections.api.block.procedure.primitive.IntProcedure;
+import org.eclipse.collections.api.factory.primitive.IntLists;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes every entity of the running store into a Tinkar protobuf changeset, a zip holding the
+ * delimited entity messages in export.pb and their counts in the manifest. Entities are written by
+ * kind, STAMPs, concepts, patterns and then semantics, and within a kind by public id, so the same
+ * content always gives the same file whatever nids the store assigned. Entities are serialized in
+ * chunks on the workers of a {@link Rf2RowPipeline} while the calling thread compresses and writes
+ * the chunks in order. The writer runs once the load is complete, over the whole store; it does not
+ * overlap parsing, and the store it reads holds the whole release in memory.
+ */
+public class ChangesetWriter {
+    private static final Logger LOG = LoggerFactory.getLogger(ChangesetWriter.class.getSimpleName());
+    static final String ENTRY_NAME = "export.pb";
+    private static final int CHUNK_ENTITIES = 4096;
+
+    private final Rf2RowPipeline pipeline;
+    private final int compressionLevel;
+
+    /**
+     * @param pipeline         pipeline the entities are serialized on
+     * @param compressionLevel deflate level from 0 to 9
+     */
+    public ChangesetWriter(Rf2RowPipeline pipeline, int compressionLevel) {
+        this.pipeline = pipeline;
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * Writes the changeset, replacing the file in one move
+     *
+     * @param file changeset file, conventionally named *-pb.zip
+     * @return number of entities written per kind
+     * @throws IOException if the changeset cannot be written
+     */
+    public Map<String, Integer> write(Path file) throws IOException {
+        Map<String, int[]> kinds = new LinkedHashMap<>();
+        kinds.put("Stamp", sortedNids(PrimitiveData.get()::forEachStampNid));
+        kinds.put("Concept", sortedNids(PrimitiveData.get()::forEachConceptNid));
+        kinds.put("Pattern", sortedNids(PrimitiveData.get()::forEachPatternNid));
+        kinds.put("Semantic", sortedNids(PrimitiveData.get()::forEachSemanticNid));
+        int[] nids = kinds.values().stream().flatMapToInt(Arrays::stream).toArray();
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path partial = file.resolveSibling(file.getFileName() + ".partial");
+        try {
+            writeZip(partial, kinds, nids);
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        kinds.forEach((kind, kindNids) -> counts.put(kind, kindNids.length));
+        LOG.info("Wrote " + nids.length + " entities " + counts + " to changeset " + file);
+        return counts;
+    }
+
+    private void writeZip(Path partial, Map<String, int[]> kinds, int[] nids) throws IOException {
+        try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(partial)))) {
+            zip.setLevel(compressionLevel);
+            zip.putNextEntry(new ZipEntry(ENTRY_NAME));
+            int[] next = {0};
+            try {
+                pipeline.run(() -> {
+                    if (next[0] >= nids.length) {
+                        return null;
+                    }
+                    int start = next[0];
+                    int end = Math.min(nids.length, start + CHUNK_ENTITIES);
+                    next[0] = end;
+                    return () -> List.of(serialize(nids, start, end));
+                }, writeTo(zip));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+            zip.write(manifest(kinds, nids.length).getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+    }
+
+    /**
+     * @return nids of one kind of entity ordered by their first UUID
+     */
+    private static int[] sortedNids(Consumer<IntProcedure> forEachNid) {
+        MutableIntList nids = IntLists.mutable.empty();
+        forEachNid.accept(nids::add);
+        int[] array = nids.toArray();
+        UUID[] uuids = new UUID[array.length];
+        Integer[] order = new Integer[array.length];
+        for (int i = 0; i < array.length; i++) {
+            uuids[i] = PrimitiveData.publicId(array[i]).asUuidArray()[0];
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(i -> uuids[i]));
+        return Arrays.stream(order).mapToInt(i -> array[i]).toArray();
+    }
+
+    private static byte[] serialize(int[] nids, int start, int end) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(end - start << 8);
+        EntityToTinkarSchemaTransformer transformer = EntityToTinkarSchemaTransformer.getInstance();
+        try {
+            for (int i = start; i < end; i++) {
+                Entity<?> entity = EntityService.get().getEntityFast(nids[i]);
+                transformer.transform(entity).writeDelimitedTo(bytes);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Consumer<byte[]> writeTo(OutputStream out) {
+        return chunk -> {
+            try {
+                out.write(chunk);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    private static String manifest(Map<String, int[]> kinds, int total) {
+        StringBuilder manifest = new StringBuilder("Manifest-Version: 1.0\r\n");
+        manifest.append("Total-Count: ").append(total).append("\r\n");
+        kinds.forEach((kind, nids) -> manifest.append(kind).append("-Count: ").append(nids.length).append("\r\n"));
+        return manifest.append("\r\n").toString();
+    }
+}
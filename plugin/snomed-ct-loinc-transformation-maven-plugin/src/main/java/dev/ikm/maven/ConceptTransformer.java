@@ -16,26 +16,17 @@
 package dev.ikm.maven;
 
 
-import dev.ikm.tinkar.common.id.PublicId;
-import dev.ikm.tinkar.common.id.PublicIds;
-import dev.ikm.tinkar.common.util.uuid.UuidUtil;
-import dev.ikm.tinkar.composer.Composer;
 import dev.ikm.tinkar.composer.Session;
 import dev.ikm.tinkar.composer.assembler.ConceptAssembler;
 import dev.ikm.tinkar.composer.template.Identifier;
 import dev.ikm.tinkar.terms.EntityProxy;
-import dev.ikm.tinkar.terms.State;
 import dev.ikm.tinkar.terms.TinkarTerm;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
-import java.io.IOException;
-import java.nio.file.Files;
 import java.util.UUID;
-import java.util.stream.Stream;
 
-public class ConceptTransformer extends AbstractTransformer {
+public class ConceptTransformer extends AbstractTransformer<ConceptTransformer.ConceptRow> {
 
     private static final Logger LOG = LoggerFactory.getLogger(ConceptTransformer.class.getSimpleName());
     private static final int ID = 0;
@@ -43,43 +34,37 @@ public class ConceptTransformer extends AbstractTransformer {
     private static final int ACTIVE = 2;
     private static final int MODULE_ID = 3;
     private static final int DEFINITION_STATUS_ID = 4;
-    private String previousRowId;
+    private long previousRowId;
 
-    ConceptTransformer(UUID namespace) {
-        super(namespace);
+    ConceptTransformer(UUID namespace, TransformationContext context) {
+        super(namespace, context);
+    }
+
+    record ConceptRow(long id, EntityProxy.Concept concept) {
+    }
+
+    @Override
+    boolean groupsVersions() {
+        return true;
     }
 
     /**
-     * transforms concept file into entity
-     * @param inputFile concept input txt file
+     * A resumed file continues the group of versions of the last committed concept
+     * @param lastRowId SCTID of the last committed concept row
      */
     @Override
-    public void transform(File inputFile, Composer composer){
-        EntityProxy.Concept author = SnomedLoincUtility.getUserConcept(namespace);
-        EntityProxy.Concept path = SnomedLoincUtility.getPathConcept();
-
-        try (Stream<String> lines = Files.lines(inputFile.toPath())) {
-            lines.skip(1) //skip first line, i.e. header line
-                .map(row -> row.split("\t"))
-                .forEach(data -> {
-                    State status = Integer.parseInt(data[ACTIVE]) == 1 ? State.ACTIVE : State.INACTIVE;
-                    long time = SnomedLoincUtility.snomedTimestampToEpochSeconds(data[EFFECTIVE_TIME]);
-                    EntityProxy.Concept moduleIdConcept = EntityProxy.Concept.make(PublicIds.of(UuidUtil.fromSNOMED(data[MODULE_ID])));
-                    Session session = composer.open(status, time, author, moduleIdConcept, path);
-                    configureIdentifier(session, data[ID]);
-                });
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+    void resumeAfter(String lastRowId) {
+        previousRowId = Long.parseLong(lastRowId);
     }
 
     /**
-     * setting up concept data to be transformed
-     * @param session transforms OWL snomed file into entities
-     * @param rowId represents each row in concept file
+     * parses a row of the concept file
+     * @param row concept file row
      */
-    private void configureIdentifier(Session session, String rowId) {
-        PublicId publicId = PublicIds.of(UuidUtil.fromSNOMED(rowId));
+    @Override
+    ConceptRow parse(Rf2Record row) {
+        long id = row.longValue(ID);
+        EntityProxy.Concept concept = SnomedLoincUtility.getConcept(context.idCache(), id);
         // TODO: Refactor programmatically linking/merging concepts
 //        if (rowId.equals("138875005")) { // Link SnomedCT Root Concept with Snomed CT Starter Data Health Concept
 //            publicId = PublicIds.of(new UUIDUtility().createUUID("SNOMED CT Concept"), UuidUtil.fromSNOMED(rowId));
@@ -87,9 +72,19 @@ public class ConceptTransformer extends AbstractTransformer {
 //        if (rowId.equals("609096000")) { // Link SnomedCT Role Group Concept with Tinkar Starter Data Role Group
 //            publicId = PublicIds.of(TinkarTerm.ROLE_GROUP.asUuidArray()[0], UuidUtil.fromSNOMED(rowId));
 //        }
-        EntityProxy.Concept concept = EntityProxy.Concept.make(publicId);
+        return new ConceptRow(id, concept);
+    }
 
-        if (!rowId.equals(previousRowId)) {
+    /**
+     * setting up concept data to be transformed
+     * @param session transforms OWL snomed file into entities
+     * @param row represents each row in concept file
+     */
+    @Override
+    void compose(ConceptRow row, Session session) {
+        EntityProxy.Concept concept = row.concept();
+
+        if (row.id() != previousRowId) {
             session.compose((ConceptAssembler conceptAssembler) -> conceptAssembler
                     .concept(concept)
                     .attach((Identifier identifier) -> identifier
@@ -98,10 +93,14 @@ public class ConceptTransformer extends AbstractTransformer {
                     )
                     .attach((Identifier identifier) -> identifier
                             .source(SnomedLoincUtility.getIdentifierConcept())
-                            .identifier(rowId)
+                            .identifier(Long.toString(row.id()))
                     )
             );
+        } else {
+            // Later version of the concept, its identifiers are already attached
+            session.compose((ConceptAssembler conceptAssembler) -> conceptAssembler
+                    .concept(concept));
         }
-        previousRowId = rowId;
+        previousRowId = row.id();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.BitSet;
+import java.util.UUID;
+
+/**
+ * Order independent digest of a multiset of normalized rows. Every row is hashed to 128 bits and the
+ * hashes are added modulo 2^128, so the digest does not depend on the order rows are added in,
+ * digests of disjoint parts add up to the digest of the whole and a duplicated row does not cancel
+ * out the way it would with XOR. Rows are spread over buckets by the hash of their component key,
+ * which lets two digests be compared bucket by bucket to find where they differ.
+ * Not thread safe, concurrent producers fill their own digests and {@link #add(ContentDigest)} them.
+ */
+public class ContentDigest {
+    static final int BUCKET_BITS = 12;
+    static final int BUCKETS = 1 << BUCKET_BITS;
+
+    private static final ThreadLocal<MessageDigest> MD5 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    });
+
+    private final long[] high = new long[BUCKETS];
+    private final long[] low = new long[BUCKETS];
+    private final long[] counts = new long[BUCKETS];
+
+    /**
+     * @param key component key of a row
+     * @return bucket of the rows of the component
+     */
+    public static int bucket(UUID key) {
+        long hash = OnHeapSctIdCache.mix(key.getMostSignificantBits() ^ OnHeapSctIdCache.mix(key.getLeastSignificantBits()));
+        return (int) (hash >>> (Long.SIZE - BUCKET_BITS));
+    }
+
+    /**
+     * Hashes a normalized row
+     *
+     * @param key  component key of the row
+     * @param fact normalized content of the row
+     * @return high and low 64 bits of the 128 bit hash
+     */
+    public static long[] hash(UUID key, String fact) {
+        MessageDigest md5 = MD5.get();
+        md5.update(ByteBuffer.allocate(16).putLong(key.getMostSignificantBits()).putLong(key.getLeastSignificantBits()).array());
+        ByteBuffer hash = ByteBuffer.wrap(md5.digest(fact.getBytes(StandardCharsets.UTF_8)));
+        return new long[]{hash.getLong(), hash.getLong()};
+    }
+
+    /**
+     * Adds a row
+     *
+     * @param key  component key of the row
+     * @param fact normalized content of the row
+     */
+    public void add(UUID key, String fact) {
+        add(bucket(key), hash(key, fact), 1);
+    }
+
+    void add(int bucket, long[] hash, long count) {
+        long sum = low[bucket] + hash[1];
+        // Carry into the high half when the unsigned low half overflowed
+        long carry = Long.compareUnsigned(sum, low[bucket]) < 0 ? 1 : 0;
+        low[bucket] = sum;
+        high[bucket] += hash[0] + carry;
+        counts[bucket] += count;
+    }
+
+    /**
+     * Adds every row of another digest
+     *
+     * @param other digest to add
+     * @return this digest
+     */
+    public ContentDigest add(ContentDigest other) {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            add(bucket, new long[]{other.high[bucket], other.low[bucket]}, other.counts[bucket]);
+        }
+        return this;
+    }
+
+    /**
+     * @return number of rows added
+     */
+    public long count() {
+        long count = 0;
+        for (long bucketCount : counts) {
+            count += bucketCount;
+        }
+        return count;
+    }
+
+    /**
+     * @return digest over all buckets as 32 hex digits
+     */
+    public String value() {
+        ContentDigest total = new ContentDigest();
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            total.add(0, new long[]{high[bucket], low[bucket]}, counts[bucket]);
+        }
+        return String.format("%016x%016x", total.high[0], total.low[0]);
+    }
+
+    /**
+     * @param other digest of the same rows from another source
+     * @return buckets whose rows differ between the two digests
+     */
+    public BitSet mismatchingBuckets(ContentDigest other) {
+        BitSet mismatching = new BitSet(BUCKETS);
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            if (high[bucket] != other.high[bucket] || low[bucket] != other.low[bucket] || counts[bucket] != other.counts[bucket]) {
+                mismatching.set(bucket);
+            }
+        }
+        return mismatching;
+    }
+}
@@ -15,33 +15,21 @@
  */
 package dev.ikm.maven;
 
-import dev.ikm.tinkar.common.id.PublicId;
-import dev.ikm.tinkar.common.id.PublicIds;
-import dev.ikm.tinkar.common.util.uuid.UuidUtil;
-import dev.ikm.tinkar.composer.Composer;
 import dev.ikm.tinkar.composer.Session;
 import dev.ikm.tinkar.composer.assembler.SemanticAssembler;
-import dev.ikm.tinkar.entity.Entity;
-import dev.ikm.tinkar.entity.EntityService;
-import dev.ikm.tinkar.entity.EntityVersion;
 import dev.ikm.tinkar.terms.EntityProxy;
 import dev.ikm.tinkar.terms.EntityProxy.Concept;
-import dev.ikm.tinkar.terms.State;
 import dev.ikm.tinkar.terms.TinkarTerm;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
-import java.io.IOException;
-import java.nio.file.Files;
 import java.util.*;
-import java.util.stream.Stream;
 
 /**
  * Class to parse Definition files and create Definition Semantics
  */
 
-public class DefinitionTransformer extends AbstractTransformer {
+public class DefinitionTransformer extends AbstractTransformer<DefinitionTransformer.DefinitionRow> {
 
     private static final Logger LOG = LoggerFactory.getLogger(DefinitionTransformer.class.getSimpleName());
     private static final int ID = 0;
@@ -53,65 +41,70 @@ public class DefinitionTransformer extends AbstractTransformer {
     private static final int TYPE_ID = 6;
     private static final int TERM = 7;
     private static final int CASE_SIGNIFICANCE_ID = 8;
-    private static String previousRowId;
-    private static Concept previousReferencedConcept;
-    private static EntityProxy.Semantic previousDefinitionSemantic;
-    DefinitionTransformer(UUID namespace) {
-        super(namespace);
+    // Versions of a definition are composed one after the other, see groupsVersions
+    private long previousRowId;
+    private Concept previousReferencedConcept;
+    private EntityProxy.Semantic previousDefinitionSemantic;
+    DefinitionTransformer(UUID namespace, TransformationContext context) {
+        super(namespace, context);
     }
 
 
+    record DefinitionRow(long id, long conceptId, Concept languageConcept, String term,
+                         Concept caseSignificanceConcept, Concept descriptionTypeConcept) {
+    }
+
+    @Override
+    boolean groupsVersions() {
+        return true;
+    }
+
     /**
-     * Parses Definition file and creates Definition Semantics for each line
+     * Parses a line of a Definition file
      *
-     * @param definitionFile input file to parse
+     * @param row Definition file row
      */
     @Override
-    public void transform(File definitionFile, Composer composer) {
-        Concept author = SnomedLoincUtility.getUserConcept(namespace);
-        Concept path = SnomedLoincUtility.getPathConcept();
-        try (Stream<String> lines = Files.lines(definitionFile.toPath())) {
-            lines.skip(1) //skip first line, i.e. header line
-                    .map(row -> row.split("\t"))
-                    .forEach(data -> {
-                        State status = Integer.parseInt(data[ACTIVE]) == 1 ? State.ACTIVE : State.INACTIVE;
-                        long epochTime = SnomedLoincUtility.snomedTimestampToEpochSeconds(data[EFFECTIVE_TIME]);
-                        EntityProxy.Concept moduleConcept = EntityProxy.Concept.make(PublicIds.of(UuidUtil.fromSNOMED(data[MODULE_ID])));
-                        Session session = composer.open(status, epochTime, author, moduleConcept, path);
-
-                        Concept referencedConcept = previousReferencedConcept;
-                        EntityProxy.Semantic definitionSemantic;
-
-                        if (!data[ID].equals(previousRowId)) {
-                            referencedConcept = Concept.make(PublicIds.of(UuidUtil.fromSNOMED(data[CONCEPT_ID])));
+    DefinitionRow parse(Rf2Record row) {
+        Concept languageConcept = SnomedLoincUtility.getLanguageConcept(row.string(LANGUAGE_CODE));
+        Concept caseSignificanceConcept = SnomedLoincUtility.getDescriptionCaseSignificanceConcept(row.longValue(CASE_SIGNIFICANCE_ID));
+        Concept descriptionTypeConcept = SnomedLoincUtility.getDescriptionType(row.longValue(TYPE_ID));
+        return new DefinitionRow(row.longValue(ID), row.longValue(CONCEPT_ID), languageConcept, row.string(TERM),
+                caseSignificanceConcept, descriptionTypeConcept);
+    }
 
-                            PublicId definitionPublicId = PublicIds.of(UuidUtil.fromSNOMED(data[ID]));
-                            definitionSemantic = EntityProxy.Semantic.make(definitionPublicId);
+    /**
+     * Creates the Definition Semantic for a parsed line
+     *
+     * @param row parsed definition
+     * @param session session for the STAMP of the row
+     */
+    @Override
+    void compose(DefinitionRow row, Session session) {
+        Concept referencedConcept = previousReferencedConcept;
+        EntityProxy.Semantic definitionSemantic;
 
-                            previousRowId = data[ID];
-                            previousReferencedConcept = referencedConcept;
-                            previousDefinitionSemantic = definitionSemantic;
-                        } else {
-                            definitionSemantic = previousDefinitionSemantic;
-                        }
+        if (row.id() != previousRowId) {
+            referencedConcept = SnomedLoincUtility.getConcept(context.idCache(), row.conceptId());
 
-                        Concept languageConcept = SnomedLoincUtility.getLanguageConcept(data[LANGUAGE_CODE]);
-                        Concept caseSignificanceConcept = SnomedLoincUtility.getDescriptionCaseSignificanceConcept(data[CASE_SIGNIFICANCE_ID]);
-                        Concept descriptionTypeConcept = SnomedLoincUtility.getDescriptionType(data[TYPE_ID]);
+            definitionSemantic = SnomedLoincUtility.getSemantic(context.idCache(), row.id());
 
-                        session.compose((SemanticAssembler semanticAssembler) -> semanticAssembler
-                                .semantic(definitionSemantic)
-                                .pattern(TinkarTerm.DESCRIPTION_PATTERN)
-                                .reference(previousReferencedConcept)
-                                .fieldValues(fieldValues -> fieldValues
-                                        .with(languageConcept)
-                                        .with(data[TERM])
-                                        .with(caseSignificanceConcept)
-                                        .with(descriptionTypeConcept)
-                                ));
-                    });
-        } catch (IOException | SecurityException ex) {
-            LOG.info(ex.toString());
+            previousRowId = row.id();
+            previousReferencedConcept = referencedConcept;
+            previousDefinitionSemantic = definitionSemantic;
+        } else {
+            definitionSemantic = previousDefinitionSemantic;
         }
+
+        session.compose((SemanticAssembler semanticAssembler) -> semanticAssembler
+                .semantic(definitionSemantic)
+                .pattern(TinkarTerm.DESCRIPTION_PATTERN)
+                .reference(previousReferencedConcept)
+                .fieldValues(fieldValues -> fieldValues
+                        .with(row.languageConcept())
+                        .with(row.term())
+                        .with(row.caseSignificanceConcept())
+                        .with(row.descriptionTypeConcept())
+                ));
     }
 }
@@ -15,26 +15,17 @@
  */
 package dev.ikm.maven;
 
-import dev.ikm.tinkar.common.id.PublicId;
-import dev.ikm.tinkar.common.id.PublicIds;
-import dev.ikm.tinkar.common.util.uuid.UuidUtil;
-import dev.ikm.tinkar.composer.Composer;
 import dev.ikm.tinkar.composer.Session;
 import dev.ikm.tinkar.composer.assembler.SemanticAssembler;
 import dev.ikm.tinkar.terms.EntityProxy;
-import dev.ikm.tinkar.terms.State;
 import dev.ikm.tinkar.terms.TinkarTerm;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
-import java.io.IOException;
-import java.nio.file.Files;
 import java.util.UUID;
-import java.util.stream.Stream;
 
 
-public class DescriptionTransformer extends AbstractTransformer {
+public class DescriptionTransformer extends AbstractTransformer<DescriptionTransformer.DescriptionRow> {
     private static final Logger LOG = LoggerFactory.getLogger(DescriptionTransformer.class.getSimpleName());
     private static final int ID = 0;
     private static final int EFFECTIVE_TIME = 1;
@@ -46,54 +37,48 @@ public class DescriptionTransformer extends AbstractTransformer {
     private static final int TERM = 7;
     private static final int CASE_SIGNIFICANCE = 8;
 
-    private String previousRowId;
-    DescriptionTransformer(UUID namespace) {
-        super(namespace);
+    DescriptionTransformer(UUID namespace, TransformationContext context) {
+        super(namespace, context);
+    }
+
+    record DescriptionRow(EntityProxy.Semantic semantic, EntityProxy.Concept concept, EntityProxy.Concept languageType,
+                          String term, EntityProxy.Concept caseSensitivityConcept, EntityProxy.Concept descriptionType) {
     }
 
     /**
-     * This method uses a description file and transforms it into a list of entities
-     * @param descriptionFile
-     * @param composer
-     * @Returns void
+     * This method parses a row of a description file
+     * @param row description file row
+     * @Returns parsed description
      */
-    public void transform(File descriptionFile, Composer composer){
-
-        EntityProxy.Concept author = SnomedLoincUtility.getUserConcept(namespace);
-        EntityProxy.Concept path = SnomedLoincUtility.getPathConcept();
-
-        try (Stream<String> lines = Files.lines(descriptionFile.toPath())) {
-            lines.skip(1) //skip first line, i.e. header line
-                .map(row -> row.split("\t"))
-                .forEach(data -> {
-                    State status = Integer.parseInt(data[ACTIVE]) == 1 ? State.ACTIVE : State.INACTIVE;
-                    long time = SnomedLoincUtility.snomedTimestampToEpochSeconds(data[EFFECTIVE_TIME]);
-                    EntityProxy.Concept moduleId = EntityProxy.Concept.make(PublicIds.of(UuidUtil.fromSNOMED(data[MODULE_ID])));
-                    Session session = composer.open(status, time, author, moduleId, path);
-                    EntityProxy.Semantic descriptionSemantic = EntityProxy.Semantic.make(PublicIds.of(UuidUtil.fromSNOMED(data[ID])));
+    @Override
+    DescriptionRow parse(Rf2Record row) {
+        EntityProxy.Semantic descriptionSemantic = SnomedLoincUtility.getSemantic(context.idCache(), row.longValue(ID));
 
-                    EntityProxy.Concept descriptionType = SnomedLoincUtility.getDescriptionType(data[TYPE_ID]);
-                    EntityProxy.Concept languageType = SnomedLoincUtility.getLanguageConcept(data[LANGUAGE_CODE]);
-                    EntityProxy.Concept caseSensitivityConcept = SnomedLoincUtility.getDescriptionCaseSignificanceConcept(data[CASE_SIGNIFICANCE]);
+        EntityProxy.Concept descriptionType = SnomedLoincUtility.getDescriptionType(row.longValue(TYPE_ID));
+        EntityProxy.Concept languageType = SnomedLoincUtility.getLanguageConcept(row.string(LANGUAGE_CODE));
+        EntityProxy.Concept caseSensitivityConcept = SnomedLoincUtility.getDescriptionCaseSignificanceConcept(row.longValue(CASE_SIGNIFICANCE));
 
-                    PublicId publicId = PublicIds.of(UuidUtil.fromSNOMED(data[CONCEPT_ID]));
-                    EntityProxy.Concept concept = EntityProxy.Concept.make(publicId);
+        EntityProxy.Concept concept = SnomedLoincUtility.getConcept(context.idCache(), row.longValue(CONCEPT_ID));
 
-                    previousRowId = data[ID];
+        return new DescriptionRow(descriptionSemantic, concept, languageType, row.string(TERM), caseSensitivityConcept, descriptionType);
+    }
 
-                    session.compose((SemanticAssembler semanticAssembler) -> semanticAssembler
-                            .semantic(descriptionSemantic)
-                            .pattern(TinkarTerm.DESCRIPTION_PATTERN)
-                            .reference(concept)
-                            .fieldValues(fieldValues -> fieldValues
-                                    .with(languageType)
-                                    .with(data[TERM])
-                                    .with(caseSensitivityConcept)
-                                    .with(descriptionType)
-                            ));
-                });
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+    /**
+     * This method composes a description semantic for a row of a description file
+     * @param row parsed description
+     * @param session session for the STAMP of the row
+     */
+    @Override
+    void compose(DescriptionRow row, Session session) {
+        session.compose((SemanticAssembler semanticAssembler) -> semanticAssembler
+                .semantic(row.semantic())
+                .pattern(TinkarTerm.DESCRIPTION_PATTERN)
+                .reference(row.concept())
+                .fieldValues(fieldValues -> fieldValues
+                        .with(row.languageType())
+                        .with(row.term())
+                        .with(row.caseSensitivityConcept())
+                        .with(row.descriptionType())
+                ));
     }
 }
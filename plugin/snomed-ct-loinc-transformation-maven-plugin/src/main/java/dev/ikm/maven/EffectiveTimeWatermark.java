@@ -0,0 +1,154 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latest RF2 effectiveTime loaded per module, persisted next to the datastore. Rows at or before the
+ * watermark of their module were applied by an earlier run and are skipped, so a Delta or Snapshot
+ * release can be applied to an existing datastore. Effective times are kept in their yyyyMMdd form.
+ * The watermark read at start is not changed during a load; the times of composed rows are collected
+ * separately and only persisted by {@link #save()} once the load succeeded. A module with rejected rows
+ * is held below their effective time, so a re-run of the corrected release applies them.
+ */
+public class EffectiveTimeWatermark {
+    private static final Logger LOG = LoggerFactory.getLogger(EffectiveTimeWatermark.class.getSimpleName());
+    static final String FILE_NAME = "effective-time-watermark.properties";
+
+    private final Path file;
+    private final Map<Long, Integer> loaded;
+    private final Map<Long, Integer> seen = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> held = new ConcurrentHashMap<>();
+
+    private EffectiveTimeWatermark(Path file, Map<Long, Integer> loaded) {
+        this.file = file;
+        this.loaded = loaded;
+    }
+
+    /**
+     * Reads the watermark of a datastore, a datastore without one starts empty
+     *
+     * @param datastore datastore directory
+     * @return watermark of the datastore
+     * @throws IOException if an existing watermark cannot be read
+     */
+    public static EffectiveTimeWatermark load(Path datastore) throws IOException {
+        Path file = datastore.resolve(FILE_NAME);
+        Map<Long, Integer> loaded = new ConcurrentHashMap<>();
+        if (Files.exists(file)) {
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(file)) {
+                properties.load(reader);
+            }
+            properties.forEach((module, effectiveTime) ->
+                    loaded.put(Long.parseLong((String) module), Integer.parseInt((String) effectiveTime)));
+            LOG.info("Loaded effective time watermark for " + loaded.size() + " module(s) from " + file);
+        }
+        return new EffectiveTimeWatermark(file, loaded);
+    }
+
+    /**
+     * @return true if no earlier load recorded a watermark
+     */
+    public boolean isEmpty() {
+        return loaded.isEmpty();
+    }
+
+    /**
+     * Decides whether a row still has to be applied. Safe to call concurrently.
+     *
+     * @param moduleId      SCTID of the module of the row
+     * @param effectiveTime effectiveTime of the row in yyyyMMdd form
+     * @return true if the row is newer than the watermark of its module
+     */
+    public boolean accepts(long moduleId, int effectiveTime) {
+        Integer watermark = loaded.get(moduleId);
+        return watermark == null || effectiveTime > watermark;
+    }
+
+    /**
+     * Records the effective time of a row once it has been composed. Safe to call concurrently.
+     *
+     * @param moduleId      SCTID of the module of the row
+     * @param effectiveTime effectiveTime of the row in yyyyMMdd form
+     */
+    public void record(long moduleId, int effectiveTime) {
+        seen.merge(moduleId, effectiveTime, Math::max);
+    }
+
+    /**
+     * Keeps the watermark of a module below the effective time of a row that was rejected. Safe to
+     * call concurrently.
+     *
+     * @param moduleId      SCTID of the module of the row
+     * @param effectiveTime effectiveTime of the row in yyyyMMdd form
+     */
+    public void hold(long moduleId, int effectiveTime) {
+        held.merge(moduleId, effectiveTime, Math::min);
+    }
+
+    /**
+     * @return latest effectiveTime accepted per module during this load
+     */
+    public Map<Long, Integer> seen() {
+        return Map.copyOf(seen);
+    }
+
+    /**
+     * Adds effective times accepted by an earlier, interrupted attempt of this load
+     *
+     * @param effectiveTimes latest effectiveTime per module
+     */
+    public void restoreSeen(Map<Long, Integer> effectiveTimes) {
+        effectiveTimes.forEach((module, effectiveTime) -> seen.merge(module, effectiveTime, Math::max));
+    }
+
+    /**
+     * Persists the previous watermark raised by every row accepted during this load
+     *
+     * @throws IOException if the watermark cannot be written
+     */
+    public void save() throws IOException {
+        Map<Long, Integer> merged = new TreeMap<>(loaded);
+        seen.forEach((module, effectiveTime) -> merged.merge(module, effectiveTime, Math::max));
+        held.forEach((module, effectiveTime) -> merged.computeIfPresent(module,
+                // Only compared with <=, so one below the rejected time need not be a valid date
+                (key, watermark) -> Math.max(loaded.getOrDefault(key, Integer.MIN_VALUE), Math.min(watermark, effectiveTime - 1))));
+        Properties properties = new Properties();
+        merged.forEach((module, effectiveTime) -> properties.setProperty(module.toString(), effectiveTime.toString()));
+        Files.createDirectories(file.getParent());
+        // Write next to the target and move, a crash never leaves a truncated watermark behind
+        Path temporary = file.resolveSibling(FILE_NAME + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporary)) {
+            properties.store(writer, "Latest RF2 effectiveTime loaded per module");
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        LOG.info("Saved effective time watermark for " + merged.size() + " module(s) to " + file);
+    }
+}
@@ -16,26 +16,17 @@
 package dev.ikm.maven;
 
 
-import dev.ikm.tinkar.common.id.PublicId;
-import dev.ikm.tinkar.common.id.PublicIds;
-import dev.ikm.tinkar.common.util.uuid.UuidUtil;
-import dev.ikm.tinkar.composer.Composer;
 import dev.ikm.tinkar.composer.Session;
 import dev.ikm.tinkar.composer.assembler.ConceptAssembler;
 import dev.ikm.tinkar.composer.template.Identifier;
 import dev.ikm.tinkar.terms.EntityProxy;
-import dev.ikm.tinkar.terms.State;
 import dev.ikm.tinkar.terms.TinkarTerm;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
 import java.util.UUID;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.util.stream.Stream;
 
-public class IdentifierTransformer extends AbstractTransformer {
+public class IdentifierTransformer extends AbstractTransformer<IdentifierTransformer.IdentifierRow> {
 
     private static final Logger LOG = LoggerFactory.getLogger(ConceptTransformer.class.getSimpleName());
     private static final int REFCOMPID = 5;
@@ -46,45 +37,62 @@ public class IdentifierTransformer extends AbstractTransformer {
     private static final int DEFINITION_STATUS_ID = 4;
     private String previousRowId;
 
-    IdentifierTransformer(UUID namespace) {super(namespace);}
+    IdentifierTransformer(UUID namespace, TransformationContext context) {
+        super(namespace, context);
+    }
+
+    record IdentifierRow(String id, EntityProxy.Concept concept) {
+    }
+
+    /**
+     * Identifier rows are grouped so each alternate identifier is attached once, from its earliest
+     * version, whatever the order of the file
+     */
+    @Override
+    boolean groupsVersions() {
+        return true;
+    }
 
     /**
-     * transforms identifier file into entity
-     * @param inputFile identifier input txt file
+     * A resumed file does not attach the identifier of the last committed row again
+     * @param lastRowId alternate identifier of the last committed row
      */
     @Override
-    public void transform(File inputFile, Composer composer){
-        EntityProxy.Concept author = SnomedLoincUtility.getUserConcept(namespace);
-        EntityProxy.Concept path = SnomedLoincUtility.getPathConcept();
+    void resumeAfter(String lastRowId) {
+        previousRowId = lastRowId;
+    }
 
-        try (Stream<String> lines = Files.lines(inputFile.toPath())) {
-            lines.skip(1) //skip first line, i.e. header line
-                    .map(row -> row.split("\t"))
-                    .forEach(data -> {
-                        State status = Integer.parseInt(data[ACTIVE]) == 1 ? State.ACTIVE : State.INACTIVE;
-                        long time = SnomedLoincUtility.snomedTimestampToEpochSeconds(data[EFFECTIVE_TIME]);
-                        EntityProxy.Concept moduleIdConcept = EntityProxy.Concept.make(PublicIds.of(UuidUtil.fromSNOMED(data[MODULE_ID])));
-                        Session session = composer.open(status, time, author, moduleIdConcept, path);
+    /**
+     * parses a row of the identifier file
+     * @param row identifier file row
+     */
+    @Override
+    IdentifierRow parse(Rf2Record row) {
+        // Alternate identifiers are LOINC codes such as 40316-2, so they stay text
+        return new IdentifierRow(row.string(ID), SnomedLoincUtility.getConcept(context.idCache(), row.longValue(REFCOMPID)));
+    }
 
-                        PublicId publicId = PublicIds.of(UuidUtil.fromSNOMED(data[REFCOMPID]));
-                        EntityProxy.Concept concept = EntityProxy.Concept.make(publicId);
-                        if (!data[ID].equals(previousRowId)) {
-                            session.compose((ConceptAssembler conceptAssembler) -> conceptAssembler
-                                    .concept(concept)
-                                    .attach((Identifier identifier) -> identifier
-                                            .source(TinkarTerm.UNIVERSALLY_UNIQUE_IDENTIFIER)
-                                            .identifier(concept.asUuidArray()[0].toString())
-                                    )
-                                    .attach((Identifier identifier) -> identifier
-                                            .source(SnomedLoincUtility.getSnomedLoincIdentifierConcept())
-                                            .identifier(data[ID])
-                                    )
-                            );
-                        }
-                        previousRowId = data[ID];
-                    });
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+    /**
+     * attaches the identifier of a row to its concept
+     * @param row parsed identifier
+     * @param session session for the STAMP of the row
+     */
+    @Override
+    void compose(IdentifierRow row, Session session) {
+        EntityProxy.Concept concept = row.concept();
+        if (!row.id().equals(previousRowId)) {
+            session.compose((ConceptAssembler conceptAssembler) -> conceptAssembler
+                    .concept(concept)
+                    .attach((Identifier identifier) -> identifier
+                            .source(TinkarTerm.UNIVERSALLY_UNIQUE_IDENTIFIER)
+                            .identifier(concept.asUuidArray()[0].toString())
+                    )
+                    .attach((Identifier identifier) -> identifier
+                            .source(SnomedLoincUtility.getSnomedLoincIdentifierConcept())
+                            .identifier(row.id())
+                    )
+            );
         }
+        previousRowId = row.id();
     }
 }
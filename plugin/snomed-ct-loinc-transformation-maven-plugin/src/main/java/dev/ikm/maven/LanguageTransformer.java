@@ -15,23 +15,15 @@
  */
 package dev.ikm.maven;
 
-import dev.ikm.tinkar.common.id.PublicIds;
-import dev.ikm.tinkar.common.util.uuid.UuidUtil;
-import dev.ikm.tinkar.composer.Composer;
 import dev.ikm.tinkar.composer.Session;
 import dev.ikm.tinkar.composer.assembler.SemanticAssembler;
 import dev.ikm.tinkar.terms.EntityProxy;
-import dev.ikm.tinkar.terms.State;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
-import java.io.IOException;
-import java.nio.file.Files;
 import java.util.*;
-import java.util.stream.Stream;
 
-public class LanguageTransformer extends AbstractTransformer {
+public class LanguageTransformer extends AbstractTransformer<LanguageTransformer.LanguageRow> {
 
     private static final Logger LOG = LoggerFactory.getLogger(LanguageTransformer.class.getSimpleName());
     private static final int ID = 0;
@@ -41,41 +33,38 @@ public class LanguageTransformer extends AbstractTransformer {
     private static final int REFSET_ID = 4;
     private static final int REFERENCED_COMPONENT_ID = 5;
     private static final int ACCEPTABILITY_ID = 6;
-    LanguageTransformer(UUID namespace) {
-        super(namespace);
+    LanguageTransformer(UUID namespace, TransformationContext context) {
+        super(namespace, context);
+    }
+
+    record LanguageRow(EntityProxy.Pattern dialectPattern, EntityProxy.Concept referencedComponent, EntityProxy.Concept acceptability) {
     }
 
     /**
-     * This method uses a language file and transforms it into a list of entities
-     * @param inputFile text file to be transformed
-     * @Returns EntityList
+     * This method parses a row of a language file
+     * @param row language file row
+     * @Returns parsed dialect
      */
     @Override
-    public void transform(File inputFile, Composer composer) {
-        EntityProxy.Concept author = SnomedLoincUtility.getUserConcept(namespace);
-        EntityProxy.Concept path = SnomedLoincUtility.getPathConcept();
-
-        try (Stream<String> lines = Files.lines(inputFile.toPath())) {
-            lines.skip(1) //skip first line, i.e. header line
-                .map(row -> row.split("\t"))
-                .forEach((data) -> {
-                    State status = Integer.parseInt(data[ACTIVE]) == 1 ? State.ACTIVE : State.INACTIVE;
-                    long epochTime = SnomedLoincUtility.snomedTimestampToEpochSeconds(data[EFFECTIVE_TIME]);
-                    EntityProxy.Concept moduleId = EntityProxy.Concept.make(PublicIds.of(UuidUtil.fromSNOMED(data[MODULE_ID])));
-
-                    Session session = composer.open(status, epochTime, author, moduleId, path);
-
-                    EntityProxy.Concept referencedComponent = EntityProxy.Concept.make(PublicIds.of(UuidUtil.fromSNOMED(data[REFERENCED_COMPONENT_ID])));
+    LanguageRow parse(Rf2Record row) {
+        EntityProxy.Concept referencedComponent = SnomedLoincUtility.getConcept(context.idCache(), row.longValue(REFERENCED_COMPONENT_ID));
+        EntityProxy.Pattern dialectPattern = SnomedLoincUtility.getDialectPattern(row.longValue(REFSET_ID));
+        EntityProxy.Concept acceptability = SnomedLoincUtility.getDialectAccceptability(row.longValue(ACCEPTABILITY_ID));
+        return new LanguageRow(dialectPattern, referencedComponent, acceptability);
+    }
 
-                    session.compose((SemanticAssembler semanticAssembler) -> semanticAssembler
-                            .pattern(SnomedLoincUtility.getDialectPattern(data[REFSET_ID]))
-                            .reference(referencedComponent)
-                            .fieldValues(fieldValues -> fieldValues
-                                    .with(SnomedLoincUtility.getDialectAccceptability(data[ACCEPTABILITY_ID]))
-                            ));
-                 });
-        } catch(IOException e) {
-             LOG.warn("Error parsing language file");
-        }
+    /**
+     * This method composes a dialect semantic for a row of a language file
+     * @param row parsed dialect
+     * @param session session for the STAMP of the row
+     */
+    @Override
+    void compose(LanguageRow row, Session session) {
+        session.compose((SemanticAssembler semanticAssembler) -> semanticAssembler
+                .pattern(row.dialectPattern())
+                .reference(row.referencedComponent())
+                .fieldValues(fieldValues -> fieldValues
+                        .with(row.acceptability())
+                ));
     }
 }
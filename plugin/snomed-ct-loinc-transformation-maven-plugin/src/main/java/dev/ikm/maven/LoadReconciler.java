@@ -0,0 +1,454 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+import dev.ikm.tinkar.common.id.PublicIds;
+import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.common.util.uuid.UuidUtil;
+import dev.ikm.tinkar.entity.EntityService;
+import dev.ikm.tinkar.entity.SemanticEntity;
+import dev.ikm.tinkar.entity.SemanticEntityVersion;
+import dev.ikm.tinkar.terms.EntityFacade;
+import dev.ikm.tinkar.terms.EntityProxy;
+import dev.ikm.tinkar.terms.TinkarTerm;
+import org.eclipse.collections.api.factory.primitive.IntLists;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Checks that an RF2 release is completely loaded in a datastore without looking its rows up one
+ * by one. Both sides are reduced to a {@link ContentDigest} per {@link ReconciledComponent} over the
+ * same normalized rows: the RF2 files are parsed in parallel chunks, and the semantics of the loaded
+ * patterns are scanned in parallel, keeping only versions authored by the load. When the digests of a
+ * component differ, the mismatching buckets alone are read a second time, keyed by component, to
+ * name the components that are missing, unexpected or different.
+ * Metadata concepts are compared by nid and SNOMED CT components by their UUID, so rows of a
+ * component that was never loaded do not add nids to the datastore. Rows the load rejects, such as
+ * rows with an unrecognized language code, are left out of the digests and reported as mismatches.
+ * The datastore side only counts versions within the effective times of the release, so versions of
+ * earlier releases loaded into the same datastore are not compared with a Delta or a later Full.
+ */
+public class LoadReconciler {
+    private static final Logger LOG = LoggerFactory.getLogger(LoadReconciler.class.getSimpleName());
+    private static final int ID = 0;
+    private static final int EFFECTIVE_TIME = 1;
+    private static final int ACTIVE = 2;
+    private static final int MODULE_ID = 3;
+    private static final int CONCEPT_ID = 4;
+    private static final int REFSET_ID = 4;
+    private static final int LANGUAGE_CODE = 5;
+    private static final int REFERENCED_COMPONENT_ID = 5;
+    private static final int TYPE_ID = 6;
+    private static final int ACCEPTABILITY_ID = 6;
+    private static final int OWL_EXPRESSION = 6;
+    private static final int TERM = 7;
+    private static final int CASE_SIGNIFICANCE = 8;
+
+    private final EntityProxy.Concept author;
+    private final ForkJoinPool pool;
+    private final OwlExpressionRewriter owlExpressionRewriter = new OwlExpressionRewriter();
+    private final Map<Long, Integer> moduleNids = new ConcurrentHashMap<>();
+    private final Map<Integer, UUID> uuids = new ConcurrentHashMap<>();
+
+    /**
+     * @param namespace namespace of the load, identifies its author
+     * @param pool      pool the files are parsed and the datastore is scanned on
+     */
+    public LoadReconciler(UUID namespace, ForkJoinPool pool) {
+        this.author = SnomedLoincUtility.getUserConcept(namespace);
+        this.pool = pool;
+    }
+
+    /**
+     * Receives normalized rows, from either side
+     */
+    interface RowSink {
+        void accept(ReconciledComponent component, UUID key, String label, int bucket, long[] hash);
+    }
+
+    private record NormalizedRow(UUID key, String label, String group, long time, int bucket, long[] hash, String rejection) {
+    }
+
+    /**
+     * First and last version time of the rows of a release
+     */
+    private static class TimeRange {
+        private long first = Long.MAX_VALUE;
+        private long last = Long.MIN_VALUE;
+
+        void add(long time) {
+            first = Math.min(first, time);
+            last = Math.max(last, time);
+        }
+
+        boolean contains(long time) {
+            return time >= first && time <= last;
+        }
+    }
+
+    /**
+     * Digest of a single RF2 file
+     */
+    public record FileDigest(String fileName, ReconciledComponent component, long rows, String digest) {
+    }
+
+    /**
+     * A component whose rows differ
+     *
+     * @param status missing from the datastore, unexpected in the datastore or different
+     */
+    public record Mismatch(UUID key, String label, String status) {
+    }
+
+    /**
+     * Digests of a component on both sides, with the components named when they differ
+     */
+    public record ComponentResult(ReconciledComponent component, long releaseRows, String releaseDigest,
+                                  long datastoreRows, String datastoreDigest, int mismatchingBuckets,
+                                  List<Mismatch> mismatches) {
+        public boolean matches() {
+            return mismatchingBuckets == 0 && mismatches.isEmpty();
+        }
+    }
+
+    /**
+     * Outcome of a reconciliation
+     */
+    public record Result(List<FileDigest> files, List<ComponentResult> components) {
+        public boolean matches() {
+            return components.stream().allMatch(ComponentResult::matches);
+        }
+    }
+
+    /**
+     * One digest per component, filled by a single thread
+     */
+    static class ComponentDigests implements RowSink {
+        private final Map<ReconciledComponent, ContentDigest> digests = new EnumMap<>(ReconciledComponent.class);
+
+        ComponentDigests() {
+            for (ReconciledComponent component : ReconciledComponent.values()) {
+                digests.put(component, new ContentDigest());
+            }
+        }
+
+        @Override
+        public void accept(ReconciledComponent component, UUID key, String label, int bucket, long[] hash) {
+            digests.get(component).add(bucket, hash, 1);
+        }
+
+        void add(ComponentDigests other) {
+            digests.forEach((component, digest) -> digest.add(other.get(component)));
+        }
+
+        ContentDigest get(ReconciledComponent component) {
+            return digests.get(component);
+        }
+    }
+
+    private record ComponentKey(ReconciledComponent component, UUID key) {
+    }
+
+    /**
+     * Sums of the rows of one component on both sides
+     */
+    private static class KeySums {
+        private final long[] release = new long[3];
+        private final long[] datastore = new long[3];
+        private String label;
+
+        synchronized void add(boolean fromRelease, String rowLabel, long[] hash) {
+            long[] sums = fromRelease ? release : datastore;
+            long low = sums[1] + hash[1];
+            sums[0] += hash[0] + (Long.compareUnsigned(low, sums[1]) < 0 ? 1 : 0);
+            sums[1] = low;
+            sums[2]++;
+            if (label == null || fromRelease) {
+                label = rowLabel;
+            }
+        }
+
+        synchronized Optional<String> status() {
+            if (release[2] == 0) {
+                return Optional.of("unexpected");
+            } else if (datastore[2] == 0) {
+                return Optional.of("missing");
+            } else if (release[0] != datastore[0] || release[1] != datastore[1] || release[2] != datastore[2]) {
+                return Optional.of("different");
+            }
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Reconciles the release files with the running datastore
+     *
+     * @param files                 RF2 files that were loaded, files no transformer handles are ignored
+     * @param maxReportedMismatches buckets narrowed down to components per component kind
+     * @return digests of both sides and the components that differ
+     * @throws IOException if a file cannot be read
+     */
+    public Result reconcile(List<Path> files, int maxReportedMismatches) throws IOException {
+        List<Path> loaded = files.stream()
+                .filter(file -> Rf2FileType.of(file.getFileName().toString()).isPresent())
+                .sorted(Comparator.comparing(file -> file.getFileName().toString()))
+                .toList();
+        List<FileDigest> fileDigests = new ArrayList<>();
+        ComponentDigests release = new ComponentDigests();
+        Map<ReconciledComponent, Set<Mismatch>> rejected = new ConcurrentHashMap<>();
+        TimeRange range = new TimeRange();
+        for (Path file : loaded) {
+            Rf2FileType type = Rf2FileType.of(file.getFileName().toString()).orElseThrow();
+            ComponentDigests fileDigest = new ComponentDigests();
+            readFile(file, type, fileDigest, rejected, range);
+            ContentDigest digest = fileDigest.get(ReconciledComponent.of(type));
+            fileDigests.add(new FileDigest(file.getFileName().toString(), ReconciledComponent.of(type), digest.count(), digest.value()));
+            release.add(fileDigest);
+        }
+        ComponentDigests datastore = scanDatastore(range, ComponentDigests::new, ComponentDigests::add);
+
+        Map<ReconciledComponent, BitSet> mismatching = new EnumMap<>(ReconciledComponent.class);
+        Map<ReconciledComponent, BitSet> narrowed = new EnumMap<>(ReconciledComponent.class);
+        for (ReconciledComponent component : ReconciledComponent.values()) {
+            BitSet buckets = release.get(component).mismatchingBuckets(datastore.get(component));
+            mismatching.put(component, buckets);
+            // Every mismatching bucket holds at least one differing component, so more buckets would not be reported
+            BitSet limited = new BitSet(ContentDigest.BUCKETS);
+            buckets.stream().limit(maxReportedMismatches).forEach(limited::set);
+            narrowed.put(component, limited);
+        }
+
+        Map<ComponentKey, KeySums> keyed = new ConcurrentHashMap<>();
+        if (narrowed.values().stream().anyMatch(buckets -> !buckets.isEmpty())) {
+            LOG.info("Digests differ, reading " + narrowed.values().stream().mapToInt(BitSet::cardinality).sum()
+                    + " bucket(s) again to find the differing components");
+            for (Path file : loaded) {
+                readFile(file, Rf2FileType.of(file.getFileName().toString()).orElseThrow(), keyedSink(narrowed, keyed, true),
+                        new ConcurrentHashMap<>(), new TimeRange());
+            }
+            RowSink datastoreSink = keyedSink(narrowed, keyed, false);
+            scanDatastore(range, () -> datastoreSink, (left, right) -> {
+            });
+        }
+
+        List<ComponentResult> components = new ArrayList<>();
+        for (ReconciledComponent component : ReconciledComponent.values()) {
+            List<Mismatch> mismatches = new ArrayList<>(rejected.getOrDefault(component, Set.of()));
+            keyed.forEach((key, sums) -> {
+                if (key.component() == component) {
+                    sums.status().ifPresent(status -> mismatches.add(new Mismatch(key.key(), sums.label, status)));
+                }
+            });
+            mismatches.sort(Comparator.comparing(Mismatch::label));
+            ContentDigest releaseDigest = release.get(component);
+            ContentDigest datastoreDigest = datastore.get(component);
+            components.add(new ComponentResult(component, releaseDigest.count(), releaseDigest.value(),
+                    datastoreDigest.count(), datastoreDigest.value(), mismatching.get(component).cardinality(),
+                    mismatches.stream().limit(maxReportedMismatches).toList()));
+        }
+        return new Result(fileDigests, components);
+    }
+
+    private static RowSink keyedSink(Map<ReconciledComponent, BitSet> narrowed, Map<ComponentKey, KeySums> keyed, boolean fromRelease) {
+        return (component, key, label, bucket, hash) -> {
+            if (narrowed.get(component).get(bucket)) {
+                keyed.computeIfAbsent(new ComponentKey(component, key), componentKey -> new KeySums()).add(fromRelease, label, hash);
+            }
+        };
+    }
+
+    private void readFile(Path file, Rf2FileType type, RowSink sink, Map<ReconciledComponent, Set<Mismatch>> rejected,
+                          TimeRange range) throws IOException {
+        ReconciledComponent component = ReconciledComponent.of(type);
+        // Concepts and identifiers are loaded once per id, the transformers read them sorted by id while
+        // the file is read here in its own order
+        Set<String> groups = new HashSet<>();
+        new Rf2ChunkedParser(pool).forEachRow(file, row -> normalizeOrReject(type, row), row -> {
+            if (row.rejection() != null) {
+                rejected.computeIfAbsent(component, key -> ConcurrentHashMap.newKeySet())
+                        .add(new Mismatch(row.key(), row.label(), "rejected (" + row.rejection() + ")"));
+                return;
+            }
+            range.add(row.time());
+            if (row.group() != null && !groups.add(row.group())) {
+                return;
+            }
+            sink.accept(component, row.key(), row.label(), row.bucket(), row.hash());
+        });
+    }
+
+    /**
+     * Normalizes a row, or marks it rejected when the transformers would reject it
+     */
+    private NormalizedRow normalizeOrReject(Rf2FileType type, Rf2Record row) {
+        try {
+            return normalize(type, row);
+        } catch (Rf2RowRejectedException e) {
+            return rejected(row, e.reason());
+        } catch (NumberFormatException | IndexOutOfBoundsException | DateTimeException e) {
+            return rejected(row, RejectSink.Reason.MALFORMED_ROW);
+        }
+    }
+
+    private static NormalizedRow rejected(Rf2Record row, RejectSink.Reason reason) {
+        String id = row.columnCount() > ID ? row.string(ID) : "";
+        // The row may not even hold a valid id, so it is keyed by its text
+        UUID key = UUID.nameUUIDFromBytes(id.getBytes(StandardCharsets.UTF_8));
+        return new NormalizedRow(key, id, null, 0, ContentDigest.bucket(key), null, reason.name());
+    }
+
+    private NormalizedRow normalize(Rf2FileType type, Rf2Record row) {
+        String id = row.string(ID);
+        long time = SnomedLoincUtility.snomedTimestampToEpochSeconds(row.intValue(EFFECTIVE_TIME));
+        return switch (type) {
+            case CONCEPT -> normalized(SnomedLoincUtility.fromSnomed(row.longValue(ID)), id, id, time, id);
+            case IDENTIFIER -> normalized(SnomedLoincUtility.fromSnomed(row.longValue(REFERENCED_COMPONENT_ID)), id, id, time, id);
+            case DESCRIPTION, DEFINITION -> normalized(SnomedLoincUtility.fromSnomed(row.longValue(ID)), id, null, time,
+                    descriptionFact(stampFact(row), SnomedLoincUtility.fromSnomed(row.longValue(CONCEPT_ID)),
+                            SnomedLoincUtility.getLanguageConcept(row.string(LANGUAGE_CODE)).nid(), row.string(TERM),
+                            SnomedLoincUtility.getDescriptionCaseSignificanceConcept(row.longValue(CASE_SIGNIFICANCE)).nid(),
+                            SnomedLoincUtility.getDescriptionType(row.longValue(TYPE_ID)).nid()));
+            case OWL_EXPRESSION -> normalized(UuidUtil.fromSNOMED(id), id, null, time,
+                    axiomFact(stampFact(row), SnomedLoincUtility.fromSnomed(row.longValue(REFERENCED_COMPONENT_ID)),
+                            owlExpressionRewriter.rewrite(row.string(OWL_EXPRESSION))));
+            case LANGUAGE -> normalized(SnomedLoincUtility.fromSnomed(row.longValue(REFERENCED_COMPONENT_ID)), id, null, time,
+                    languageFact(SnomedLoincUtility.getDialectPattern(row.longValue(REFSET_ID)).nid(), stampFact(row),
+                            SnomedLoincUtility.getDialectAccceptability(row.longValue(ACCEPTABILITY_ID)).nid()));
+        };
+    }
+
+    private static NormalizedRow normalized(UUID key, String label, String group, long time, String fact) {
+        return new NormalizedRow(key, label, group, time, ContentDigest.bucket(key), ContentDigest.hash(key, fact), null);
+    }
+
+    private String stampFact(Rf2Record row) {
+        long moduleId = row.longValue(MODULE_ID);
+        int moduleNid = moduleNids.computeIfAbsent(moduleId,
+                id -> EntityProxy.Concept.make(PublicIds.of(SnomedLoincUtility.fromSnomed(id))).nid());
+        return stampFact(row.booleanValue(ACTIVE),
+                SnomedLoincUtility.snomedTimestampToEpochSeconds(row.intValue(EFFECTIVE_TIME)), moduleNid);
+    }
+
+    private static String stampFact(boolean active, long time, int moduleNid) {
+        return (active ? "1|" : "0|") + time + "|" + moduleNid;
+    }
+
+    private static String descriptionFact(String stamp, UUID concept, int languageNid, String term, int caseSignificanceNid, int typeNid) {
+        return stamp + "|" + concept + "|" + languageNid + "|" + term + "|" + caseSignificanceNid + "|" + typeNid;
+    }
+
+    private static String axiomFact(String stamp, UUID concept, String owlExpression) {
+        return stamp + "|" + concept + "|" + owlExpression;
+    }
+
+    private static String languageFact(int patternNid, String stamp, int acceptabilityNid) {
+        return patternNid + "|" + stamp + "|" + acceptabilityNid;
+    }
+
+    private <S extends RowSink> S scanDatastore(TimeRange range, Supplier<S> supplier, BiConsumer<S, S> combiner) {
+        int authorNid = author.nid();
+        S result = supplier.get();
+        for (EntityProxy.Pattern pattern : List.of(TinkarTerm.IDENTIFIER_PATTERN, TinkarTerm.DESCRIPTION_PATTERN,
+                TinkarTerm.OWL_AXIOM_SYNTAX_PATTERN, TinkarTerm.US_DIALECT_PATTERN, TinkarTerm.GB_DIALECT_PATTERN)) {
+            MutableIntList nids = IntLists.mutable.empty();
+            PrimitiveData.get().forEachSemanticNidOfPattern(pattern.nid(), nids::add);
+            S scanned = pool.submit(() -> IntStream.of(nids.toArray()).parallel()
+                    .collect(supplier, (sink, nid) -> scanSemantic(nid, authorNid, range, sink), combiner)).join();
+            combiner.accept(result, scanned);
+        }
+        return result;
+    }
+
+    private void scanSemantic(int nid, int authorNid, TimeRange range, RowSink sink) {
+        SemanticEntity<SemanticEntityVersion> semantic = EntityService.get().getEntityFast(nid);
+        int patternNid = semantic.patternNid();
+        UUID referenced = uuid(semantic.referencedComponentNid());
+        if (patternNid == TinkarTerm.IDENTIFIER_PATTERN.nid()) {
+            scanIdentifier(semantic, authorNid, range, referenced, sink);
+            return;
+        }
+        for (SemanticEntityVersion version : semantic.versions()) {
+            if (version.authorNid() != authorNid || !range.contains(version.time())) {
+                continue;
+            }
+            String stamp = stampFact(version.active(), version.time(), version.moduleNid());
+            ImmutableList<Object> fields = version.fieldValues();
+            if (patternNid == TinkarTerm.DESCRIPTION_PATTERN.nid()) {
+                emit(sink, ReconciledComponent.DESCRIPTION, uuid(nid), descriptionFact(stamp, referenced,
+                        nid(fields.get(0)), (String) fields.get(1), nid(fields.get(2)), nid(fields.get(3))));
+            } else if (patternNid == TinkarTerm.OWL_AXIOM_SYNTAX_PATTERN.nid()) {
+                emit(sink, ReconciledComponent.AXIOM, uuid(nid), axiomFact(stamp, referenced, (String) fields.get(0)));
+            } else {
+                emit(sink, ReconciledComponent.LANGUAGE, referenced, languageFact(patternNid, stamp, nid(fields.get(0))));
+            }
+        }
+    }
+
+    private void scanIdentifier(SemanticEntity<SemanticEntityVersion> semantic, int authorNid, TimeRange range,
+                                UUID referenced, RowSink sink) {
+        // An identifier is loaded once per component and release, whatever the number of its versions
+        SemanticEntityVersion loaded = null;
+        for (SemanticEntityVersion version : semantic.versions()) {
+            if (version.authorNid() == authorNid && range.contains(version.time())) {
+                loaded = version;
+            }
+        }
+        if (loaded == null) {
+            return;
+        }
+        int sourceNid = nid(loaded.fieldValues().get(0));
+        String value = (String) loaded.fieldValues().get(1);
+        if (sourceNid == SnomedLoincUtility.getIdentifierConcept().nid()) {
+            emit(sink, ReconciledComponent.CONCEPT, referenced, value);
+        } else if (sourceNid == SnomedLoincUtility.getSnomedLoincIdentifierConcept().nid()) {
+            emit(sink, ReconciledComponent.IDENTIFIER, referenced, value);
+        }
+    }
+
+    private static void emit(RowSink sink, ReconciledComponent component, UUID key, String fact) {
+        sink.accept(component, key, key.toString(), ContentDigest.bucket(key), ContentDigest.hash(key, fact));
+    }
+
+    private static int nid(Object field) {
+        return ((EntityFacade) field).nid();
+    }
+
+    private UUID uuid(int nid) {
+        return uuids.computeIfAbsent(nid, key -> EntityService.get().getEntityFast(key).publicId().asUuidArray()[0]);
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Memory mapped index between LOINC codes and the SNOMED concepts they identify, written by
+ * {@link LoincConceptIndexWriter} during a load. Lookups by code, SCTID or nid hash straight into the
+ * mapped file, so answering "which concept is LOINC 40316-2?" takes a few reads and no datastore.
+ * Every code and concept pair is kept with the state of its latest identifier row; lookups return the
+ * active pairs only.
+ *
+ * <p>Layout: magic, version, entry count, the sizes of the three hash tables and of the code bytes,
+ * then the entries sorted by code and SCTID, the entry numbers sorted by SCTID and code, the code,
+ * SCTID and nid tables, and the UTF-8 codes. An entry is the SCTID, nid, effectiveTime, offset and
+ * length of its code and its active flag. Tables use linear probing over int slots holding one plus
+ * the position of the first entry of a code, or of a concept in the SCTID order; 0 marks a free slot.
+ */
+public class LoincConceptIndex implements AutoCloseable {
+    static final int MAGIC = 0x4C4E4349;
+    static final int VERSION = 1;
+    static final String FILE_NAME = "loinc-concept-index.bin";
+    static final int HEADER_BYTES = 6 * Integer.BYTES + Long.BYTES;
+    static final int ENTRY_BYTES = Long.BYTES + 3 * Integer.BYTES + Short.BYTES + 2;
+    /**
+     * Nid of a concept the datastore did not know when the index was written
+     */
+    public static final int NO_NID = Integer.MIN_VALUE;
+
+    private final FileChannel channel;
+    private final ByteBuffer index;
+    private final int entryCount;
+    private final int bySctidPosition;
+    private final int codeTablePosition;
+    private final int codeTableSize;
+    private final int sctidTablePosition;
+    private final int sctidTableSize;
+    private final int nidTablePosition;
+    private final int nidTableSize;
+    private final int codesPosition;
+
+    /**
+     * One LOINC code and the concept it identifies
+     *
+     * @param loincCode     LOINC code, such as 40316-2
+     * @param sctid         SCTID of the concept
+     * @param nid           nid of the concept, {@link #NO_NID} if unknown
+     * @param effectiveTime effectiveTime of the latest identifier row of the pair, in yyyyMMdd form
+     * @param active        state of the latest identifier row of the pair
+     */
+    public record Mapping(String loincCode, long sctid, int nid, int effectiveTime, boolean active) {
+    }
+
+    private LoincConceptIndex(FileChannel channel, ByteBuffer index) throws IOException {
+        this.channel = channel;
+        this.index = index;
+        if (index.getInt(0) != MAGIC || index.getInt(4) != VERSION) {
+            throw new IOException("Not a LOINC concept index of version " + VERSION);
+        }
+        this.entryCount = index.getInt(8);
+        this.codeTableSize = index.getInt(12);
+        this.sctidTableSize = index.getInt(16);
+        this.nidTableSize = index.getInt(20);
+        this.bySctidPosition = HEADER_BYTES + entryCount * ENTRY_BYTES;
+        this.codeTablePosition = bySctidPosition + entryCount * Integer.BYTES;
+        this.sctidTablePosition = codeTablePosition + codeTableSize * Integer.BYTES;
+        this.nidTablePosition = sctidTablePosition + sctidTableSize * Integer.BYTES;
+        this.codesPosition = nidTablePosition + nidTableSize * Integer.BYTES;
+    }
+
+    /**
+     * Maps an index file
+     *
+     * @param file file written by {@link LoincConceptIndexWriter}
+     * @return mapped index, closed by the caller
+     * @throws IOException if the file cannot be read or is not an index of this version
+     */
+    public static LoincConceptIndex open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new LoincConceptIndex(channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param datastore datastore directory
+     * @return location of the index written by a load into the datastore
+     */
+    public static Path of(Path datastore) {
+        return datastore.resolve(FILE_NAME);
+    }
+
+    /**
+     * @return number of code and concept pairs, active or not
+     */
+    public int size() {
+        return entryCount;
+    }
+
+    /**
+     * @param loincCode LOINC code, such as 40316-2
+     * @return active concepts the code identifies, usually one
+     */
+    public List<Mapping> concepts(String loincCode) {
+        byte[] code = loincCode.getBytes(StandardCharsets.UTF_8);
+        int mask = codeTableSize - 1;
+        for (int slot = (int) OnHeapSctIdCache.mix(hash(code)) & mask; ; slot = (slot + 1) & mask) {
+            int first = index.getInt(codeTablePosition + slot * Integer.BYTES) - 1;
+            if (first < 0) {
+                return List.of();
+            }
+            if (codeEquals(first, code)) {
+                List<Mapping> mappings = new ArrayList<>(1);
+                for (int entry = first; entry < entryCount && codeEquals(entry, code); entry++) {
+                    addIfActive(entry, mappings);
+                }
+                return mappings;
+            }
+        }
+    }
+
+    /**
+     * @param sctid SCTID of a concept
+     * @return active LOINC codes that identify the concept
+     */
+    public List<Mapping> loincCodes(long sctid) {
+        int mask = sctidTableSize - 1;
+        for (int slot = (int) OnHeapSctIdCache.mix(sctid) & mask; ; slot = (slot + 1) & mask) {
+            int first = index.getInt(sctidTablePosition + slot * Integer.BYTES) - 1;
+            if (first < 0) {
+                return List.of();
+            }
+            if (sctid(entryBySctid(first)) == sctid) {
+                return mappingsFrom(first);
+            }
+        }
+    }
+
+    /**
+     * @param nid nid of a concept
+     * @return active LOINC codes that identify the concept
+     */
+    public List<Mapping> loincCodesOfNid(int nid) {
+        int mask = nidTableSize - 1;
+        for (int slot = (int) OnHeapSctIdCache.mix(nid) & mask; ; slot = (slot + 1) & mask) {
+            int first = index.getInt(nidTablePosition + slot * Integer.BYTES) - 1;
+            if (first < 0) {
+                return List.of();
+            }
+            if (nid(entryBySctid(first)) == nid) {
+                return mappingsFrom(first);
+            }
+        }
+    }
+
+    /**
+     * Passes every pair, active or not, on in code order
+     *
+     * @param consumer receives every mapping
+     */
+    public void forEach(Consumer<Mapping> consumer) {
+        for (int entry = 0; entry < entryCount; entry++) {
+            consumer.accept(mapping(entry));
+        }
+    }
+
+    private List<Mapping> mappingsFrom(int first) {
+        long sctid = sctid(entryBySctid(first));
+        List<Mapping> mappings = new ArrayList<>(1);
+        for (int position = first; position < entryCount && sctid(entryBySctid(position)) == sctid; position++) {
+            addIfActive(entryBySctid(position), mappings);
+        }
+        return mappings;
+    }
+
+    private void addIfActive(int entry, List<Mapping> mappings) {
+        if (index.get(entryPosition(entry) + 22) == 1) {
+            mappings.add(mapping(entry));
+        }
+    }
+
+    private Mapping mapping(int entry) {
+        int position = entryPosition(entry);
+        byte[] code = new byte[index.getShort(position + 20)];
+        index.get(codesPosition + index.getInt(position + 16), code);
+        return new Mapping(new String(code, StandardCharsets.UTF_8), index.getLong(position),
+                index.getInt(position + 8), index.getInt(position + 12), index.get(position + 22) == 1);
+    }
+
+    private boolean codeEquals(int entry, byte[] code) {
+        int position = entryPosition(entry);
+        if (index.getShort(position + 20) != code.length) {
+            return false;
+        }
+        int codeOffset = codesPosition + index.getInt(position + 16);
+        for (int i = 0; i < code.length; i++) {
+            if (index.get(codeOffset + i) != code[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int entryBySctid(int position) {
+        return index.getInt(bySctidPosition + position * Integer.BYTES);
+    }
+
+    private long sctid(int entry) {
+        return index.getLong(entryPosition(entry));
+    }
+
+    private int nid(int entry) {
+        return index.getInt(entryPosition(entry) + 8);
+    }
+
+    private static int entryPosition(int entry) {
+        return HEADER_BYTES + entry * ENTRY_BYTES;
+    }
+
+    /**
+     * FNV-1a of the UTF-8 bytes of a code, shared with the writer
+     */
+    static long hash(byte[] code) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : code) {
+            hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
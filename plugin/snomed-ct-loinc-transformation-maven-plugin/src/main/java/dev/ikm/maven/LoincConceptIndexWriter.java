@@ -0,0 +1,211 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongToIntFunction;
+
+/**
+ * Builds the {@link LoincConceptIndex} of a load from the identifier rows of the release. An existing
+ * index is read first, so a Delta or Snapshot release updates the pairs it touches and keeps the rest.
+ * Of all rows of a code and concept pair the one with the latest effectiveTime decides whether the
+ * pair is active, rows of equal time are taken in file order. The rows are read in a pass of their
+ * own rather than while composing, so a resumed load still indexes the rows composed before its
+ * checkpoint.
+ */
+public class LoincConceptIndexWriter {
+    private static final Logger LOG = LoggerFactory.getLogger(LoincConceptIndexWriter.class.getSimpleName());
+    /**
+     * Identifier scheme of LOINC codes, see the LOINC Number concept of the starter data
+     */
+    static final long LOINC_SCHEME_ID = 705114005L;
+    private static final int ID = 0;
+    private static final int EFFECTIVE_TIME = 1;
+    private static final int ACTIVE = 2;
+    private static final int IDENTIFIER_SCHEME_ID = 4;
+    private static final int REFERENCED_COMPONENT_ID = 5;
+
+    private final Map<Pair, State> pairs = new HashMap<>();
+
+    private record Pair(String loincCode, long sctid) {
+    }
+
+    private record State(int effectiveTime, boolean active) {
+    }
+
+    private record Entry(byte[] code, long sctid, int nid, int effectiveTime, boolean active) {
+    }
+
+    /**
+     * Starts from the pairs of an existing index, if there is one
+     *
+     * @param file index file
+     * @return writer holding the existing pairs
+     * @throws IOException if an existing index cannot be read
+     */
+    public static LoincConceptIndexWriter load(Path file) throws IOException {
+        LoincConceptIndexWriter writer = new LoincConceptIndexWriter();
+        if (Files.exists(file)) {
+            try (LoincConceptIndex index = LoincConceptIndex.open(file)) {
+                index.forEach(mapping -> writer.record(mapping.loincCode(), mapping.sctid(),
+                        mapping.effectiveTime(), mapping.active()));
+            }
+            LOG.info("Updating LOINC concept index of " + writer.pairs.size() + " pair(s) in " + file);
+        }
+        return writer;
+    }
+
+    /**
+     * Records the LOINC rows of an RF2 identifier file
+     *
+     * @param identifierFile RF2 identifier file, on disk or inside a release archive
+     * @throws IOException if the file cannot be read
+     */
+    public void add(Path identifierFile) throws IOException {
+        try (Rf2RecordReader row = Rf2RecordReader.open(identifierFile)) {
+            row.next(); //skip first line, i.e. header line
+            while (row.next()) {
+                if (row.longValue(IDENTIFIER_SCHEME_ID) == LOINC_SCHEME_ID) {
+                    record(row.string(ID), row.longValue(REFERENCED_COMPONENT_ID),
+                            row.intValue(EFFECTIVE_TIME), row.booleanValue(ACTIVE));
+                }
+            }
+        }
+    }
+
+    /**
+     * Records one version of a code and concept pair
+     *
+     * @param loincCode     LOINC code
+     * @param sctid         SCTID of the concept the code identifies
+     * @param effectiveTime effectiveTime of the version, in yyyyMMdd form
+     * @param active        state of the version
+     */
+    public void record(String loincCode, long sctid, int effectiveTime, boolean active) {
+        pairs.merge(new Pair(loincCode, sctid), new State(effectiveTime, active),
+                (known, version) -> version.effectiveTime() >= known.effectiveTime() ? version : known);
+    }
+
+    /**
+     * @return number of code and concept pairs recorded, active or not
+     */
+    public int size() {
+        return pairs.size();
+    }
+
+    /**
+     * Writes the index, replacing the file in one move
+     *
+     * @param file       index file
+     * @param nidOfSctid nid of a concept by SCTID, {@link LoincConceptIndex#NO_NID} if unknown
+     * @throws IOException if the index cannot be written
+     */
+    public void write(Path file, LongToIntFunction nidOfSctid) throws IOException {
+        Entry[] entries = pairs.entrySet().stream()
+                .map(pair -> new Entry(pair.getKey().loincCode().getBytes(StandardCharsets.UTF_8), pair.getKey().sctid(),
+                        nidOfSctid.applyAsInt(pair.getKey().sctid()), pair.getValue().effectiveTime(), pair.getValue().active()))
+                .sorted(Comparator.comparing(Entry::code, Arrays::compareUnsigned).thenComparingLong(Entry::sctid))
+                .toArray(Entry[]::new);
+        Integer[] bySctid = new Integer[entries.length];
+        Arrays.setAll(bySctid, i -> i);
+        Arrays.sort(bySctid, Comparator.comparingLong((Integer entry) -> entries[entry].sctid()).thenComparingInt(entry -> entry));
+
+        int[] codeTable = new int[tableSize(entries.length)];
+        for (int entry = 0; entry < entries.length; entry++) {
+            if (entry == 0 || !Arrays.equals(entries[entry].code(), entries[entry - 1].code())) {
+                insert(codeTable, OnHeapSctIdCache.mix(LoincConceptIndex.hash(entries[entry].code())), entry);
+            }
+        }
+        int[] sctidTable = new int[tableSize(entries.length)];
+        int[] nidTable = new int[tableSize(entries.length)];
+        for (int position = 0; position < bySctid.length; position++) {
+            Entry entry = entries[bySctid[position]];
+            if (position == 0 || entries[bySctid[position - 1]].sctid() != entry.sctid()) {
+                insert(sctidTable, OnHeapSctIdCache.mix(entry.sctid()), position);
+                if (entry.nid() != LoincConceptIndex.NO_NID) {
+                    insert(nidTable, OnHeapSctIdCache.mix(entry.nid()), position);
+                }
+            }
+        }
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path partial = file.resolveSibling(file.getFileName() + ".partial");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(partial)))) {
+            long codeBytes = Arrays.stream(entries).mapToLong(entry -> entry.code().length).sum();
+            out.writeInt(LoincConceptIndex.MAGIC);
+            out.writeInt(LoincConceptIndex.VERSION);
+            out.writeInt(entries.length);
+            out.writeInt(codeTable.length);
+            out.writeInt(sctidTable.length);
+            out.writeInt(nidTable.length);
+            out.writeLong(codeBytes);
+            int codeOffset = 0;
+            for (Entry entry : entries) {
+                out.writeLong(entry.sctid());
+                out.writeInt(entry.nid());
+                out.writeInt(entry.effectiveTime());
+                out.writeInt(codeOffset);
+                out.writeShort(entry.code().length);
+                out.writeByte(entry.active() ? 1 : 0);
+                out.writeByte(0);
+                codeOffset += entry.code().length;
+            }
+            for (int entry : bySctid) {
+                out.writeInt(entry);
+            }
+            for (int[] table : List.of(codeTable, sctidTable, nidTable)) {
+                for (int slot : table) {
+                    out.writeInt(slot);
+                }
+            }
+            for (Entry entry : entries) {
+                out.write(entry.code());
+            }
+        }
+        Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        LOG.info("Wrote LOINC concept index of " + entries.length + " pair(s) to " + file);
+    }
+
+    /**
+     * @return power of two of at least twice the keys, so probes stay short and a slot is always free
+     */
+    private static int tableSize(int keys) {
+        return Math.max(2, Integer.highestOneBit(Math.max(1, keys) * 2 - 1) << 1);
+    }
+
+    private static void insert(int[] table, long hash, int value) {
+        int mask = table.length - 1;
+        int slot = (int) hash & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = value + 1;
+    }
+}
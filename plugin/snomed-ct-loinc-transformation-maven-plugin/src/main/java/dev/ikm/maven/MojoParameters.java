@@ -0,0 +1,184 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Configures a mojo of this plugin outside Maven, for harnesses that run the load in their own JVM.
+ * Every parameter first gets the default of the plugin descriptor, the way Maven would set it, and
+ * then the values given by the caller. A required parameter left without a value, or a value for a
+ * parameter the mojo does not have, fails the configuration, so a parameter added to the mojo later
+ * is never silently left at 0 or null. Parameters without a default keep their field value, as they
+ * do under Maven.
+ */
+public class MojoParameters {
+    private static final String DESCRIPTOR = "META-INF/maven/plugin.xml";
+    private static final String BUILD_DIRECTORY = "${project.build.directory}";
+    private static final String PLUGIN_VERSION = "${plugin.version}";
+
+    private MojoParameters() {
+    }
+
+    /**
+     * Sets every parameter of a mojo
+     *
+     * @param mojo           mojo to configure, an instance of a mojo class of this plugin or of a subclass
+     * @param buildDirectory directory the defaults that refer to the project build directory resolve against
+     * @param values         parameter values by parameter name, overriding the defaults
+     * @throws ReflectiveOperationException if a parameter field cannot be set
+     * @throws IOException                  if the plugin descriptors cannot be listed
+     * @throws IllegalArgumentException     if a parameter is unknown or a required one is left without a value
+     */
+    public static void configure(Object mojo, Path buildDirectory, Map<String, Object> values) throws ReflectiveOperationException, IOException {
+        Element mojoElement = null;
+        Document descriptor = null;
+        // Other plugins on the class path have descriptors of their own
+        for (URL url : Collections.list(MojoParameters.class.getClassLoader().getResources(DESCRIPTOR))) {
+            descriptor = descriptor(url);
+            mojoElement = mojoElement(descriptor, mojo.getClass());
+            if (mojoElement != null) {
+                break;
+            }
+        }
+        if (mojoElement == null) {
+            throw new IllegalArgumentException(mojo.getClass().getName() + " is not a mojo of a plugin on the class path");
+        }
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        Set<String> required = new HashSet<>();
+        for (Element parameter : children(child(mojoElement, "parameters"), "parameter")) {
+            parameters.put(text(parameter, "name"), null);
+            if (Boolean.parseBoolean(text(parameter, "required"))) {
+                required.add(text(parameter, "name"));
+            }
+        }
+        String pluginVersion = text(descriptor.getDocumentElement(), "version");
+        for (Element configuration : children(child(mojoElement, "configuration"), null)) {
+            String defaultValue = configuration.getAttribute("default-value");
+            if (configuration.hasAttribute("default-value") && parameters.containsKey(configuration.getTagName())) {
+                parameters.put(configuration.getTagName(), defaultValue
+                        .replace(BUILD_DIRECTORY, buildDirectory.toString())
+                        .replace(PLUGIN_VERSION, pluginVersion));
+            }
+        }
+        for (Map.Entry<String, Object> value : values.entrySet()) {
+            if (!parameters.containsKey(value.getKey())) {
+                throw new IllegalArgumentException(mojo.getClass().getSimpleName() + " has no parameter " + value.getKey());
+            }
+            parameters.put(value.getKey(), value.getValue());
+        }
+        for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+            Object value = parameter.getValue();
+            if (value == null && !required.contains(parameter.getKey())) {
+                continue;
+            }
+            if (value == null || value instanceof String text && text.contains("${")) {
+                throw new IllegalArgumentException("No value for parameter " + parameter.getKey() + " of "
+                        + mojo.getClass().getSimpleName() + (value == null ? "" : ", its default is " + value));
+            }
+            Field field = field(mojo.getClass(), parameter.getKey());
+            field.setAccessible(true);
+            field.set(mojo, value instanceof String text ? convert(text, field.getType()) : value);
+        }
+    }
+
+    private static Object convert(String text, Class<?> type) {
+        if (type == int.class || type == Integer.class) {
+            return Integer.parseInt(text);
+        } else if (type == long.class || type == Long.class) {
+            return Long.parseLong(text);
+        } else if (type == double.class || type == Double.class) {
+            return Double.parseDouble(text);
+        } else if (type == boolean.class || type == Boolean.class) {
+            return Boolean.parseBoolean(text);
+        }
+        return text;
+    }
+
+    private static Document descriptor(URL url) {
+        try (InputStream input = url.openStream()) {
+            return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(input);
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to read the plugin descriptor " + url, e);
+        }
+    }
+
+    private static Element mojoElement(Document descriptor, Class<?> type) {
+        Map<String, Element> mojos = new HashMap<>();
+        for (Element mojo : children(child(descriptor.getDocumentElement(), "mojos"), "mojo")) {
+            mojos.put(text(mojo, "implementation"), mojo);
+        }
+        // A subclass configures like the mojo it extends
+        for (Class<?> declaring = type; declaring != null; declaring = declaring.getSuperclass()) {
+            if (mojos.containsKey(declaring.getName())) {
+                return mojos.get(declaring.getName());
+            }
+        }
+        return null;
+    }
+
+    private static Field field(Class<?> type, String name) throws NoSuchFieldException {
+        for (Class<?> declaring = type; declaring != null; declaring = declaring.getSuperclass()) {
+            try {
+                return declaring.getDeclaredField(name);
+            } catch (NoSuchFieldException e) {
+                // Declared further up
+            }
+        }
+        throw new NoSuchFieldException(name);
+    }
+
+    private static Element child(Element parent, String name) {
+        for (Element child : children(parent, name)) {
+            return child;
+        }
+        throw new IllegalStateException("Plugin descriptor has no " + name + " in " + parent.getTagName());
+    }
+
+    private static Iterable<Element> children(Element parent, String name) {
+        NodeList nodes = parent.getChildNodes();
+        List<Element> children = new ArrayList<>();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Node node = nodes.item(i);
+            if (node instanceof Element element && (name == null || element.getTagName().equals(name))) {
+                children.add(element);
+            }
+        }
+        return children;
+    }
+
+    private static String text(Element parent, String name) {
+        return child(parent, name).getTextContent().trim();
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+import dev.ikm.tinkar.common.id.PublicIds;
+import dev.ikm.tinkar.terms.EntityProxy;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link SctIdCache} that keeps its id to UUID table in direct memory, for loads where the number of
+ * distinct identifiers would otherwise crowd the heap. Each slot holds the SCTID and the two halves of
+ * its UUID; proxies are thin wrappers and are created per call.
+ */
+public class OffHeapSctIdCache implements SctIdCache {
+    private static final int STRIPE_BITS = 6;
+    private static final int INITIAL_STRIPE_CAPACITY = 1 << 10;
+    private static final int SLOT_BYTES = 3 * Long.BYTES;
+    // SCTIDs are never zero, so zero marks an empty slot
+    private static final long EMPTY = 0;
+
+    private final Stripe[] stripes = new Stripe[1 << STRIPE_BITS];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public OffHeapSctIdCache() {
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    private final class Stripe {
+        private ByteBuffer slots = ByteBuffer.allocateDirect(INITIAL_STRIPE_CAPACITY * SLOT_BYTES);
+        private int capacity = INITIAL_STRIPE_CAPACITY;
+        private int size;
+
+        private synchronized UUID getOrCreate(long sctid, long hash) {
+            int mask = capacity - 1;
+            int slot = (int) hash & mask;
+            long key;
+            while ((key = slots.getLong(slot * SLOT_BYTES)) != EMPTY) {
+                if (key == sctid) {
+                    hits.increment();
+                    return new UUID(slots.getLong(slot * SLOT_BYTES + Long.BYTES), slots.getLong(slot * SLOT_BYTES + 2 * Long.BYTES));
+                }
+                slot = (slot + 1) & mask;
+            }
+            misses.increment();
+            UUID uuid = SnomedLoincUtility.fromSnomed(sctid);
+            write(slots, slot, sctid, uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+            if (++size > capacity * 3 / 4) {
+                grow();
+            }
+            return uuid;
+        }
+
+        private void grow() {
+            ByteBuffer old = slots;
+            int oldCapacity = capacity;
+            capacity = oldCapacity * 2;
+            slots = ByteBuffer.allocateDirect(capacity * SLOT_BYTES);
+            int mask = capacity - 1;
+            for (int i = 0; i < oldCapacity; i++) {
+                long key = old.getLong(i * SLOT_BYTES);
+                if (key != EMPTY) {
+                    int slot = (int) OnHeapSctIdCache.mix(key) & mask;
+                    while (slots.getLong(slot * SLOT_BYTES) != EMPTY) {
+                        slot = (slot + 1) & mask;
+                    }
+                    write(slots, slot, key, old.getLong(i * SLOT_BYTES + Long.BYTES), old.getLong(i * SLOT_BYTES + 2 * Long.BYTES));
+                }
+            }
+        }
+
+        private synchronized int size() {
+            return size;
+        }
+    }
+
+    private static void write(ByteBuffer slots, int slot, long sctid, long msb, long lsb) {
+        slots.putLong(slot * SLOT_BYTES, sctid);
+        slots.putLong(slot * SLOT_BYTES + Long.BYTES, msb);
+        slots.putLong(slot * SLOT_BYTES + 2 * Long.BYTES, lsb);
+    }
+
+    @Override
+    public UUID uuid(long sctid) {
+        long hash = OnHeapSctIdCache.mix(sctid);
+        return stripes[(int) (hash >>> (Long.SIZE - STRIPE_BITS))].getOrCreate(sctid, hash);
+    }
+
+    @Override
+    public EntityProxy.Concept concept(long sctid) {
+        return EntityProxy.Concept.make(PublicIds.of(uuid(sctid)));
+    }
+
+    @Override
+    public EntityProxy.Semantic semantic(long sctid) {
+        return EntityProxy.Semantic.make(PublicIds.of(uuid(sctid)));
+    }
+
+    @Override
+    public long hits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long misses() {
+        return misses.sum();
+    }
+
+    @Override
+    public int size() {
+        return Arrays.stream(stripes).mapToInt(Stripe::size).sum();
+    }
+}
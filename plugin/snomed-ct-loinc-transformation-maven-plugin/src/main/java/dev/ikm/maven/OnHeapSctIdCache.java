@@ -0,0 +1,154 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+import dev.ikm.tinkar.common.id.PublicIds;
+import dev.ikm.tinkar.terms.EntityProxy;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link SctIdCache} backed by lock striped open addressing tables with primitive long keys. Proxies
+ * are created once per identifier and shared.
+ */
+public class OnHeapSctIdCache implements SctIdCache {
+    private static final int STRIPE_BITS = 6;
+    private static final int INITIAL_STRIPE_CAPACITY = 1 << 10;
+
+    private final Stripe[] stripes = new Stripe[1 << STRIPE_BITS];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public OnHeapSctIdCache() {
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    private static final class Entry {
+        private final UUID uuid;
+        private EntityProxy.Concept concept;
+        private EntityProxy.Semantic semantic;
+
+        private Entry(UUID uuid) {
+            this.uuid = uuid;
+        }
+
+        private synchronized EntityProxy.Concept concept() {
+            if (concept == null) {
+                concept = EntityProxy.Concept.make(PublicIds.of(uuid));
+            }
+            return concept;
+        }
+
+        private synchronized EntityProxy.Semantic semantic() {
+            if (semantic == null) {
+                semantic = EntityProxy.Semantic.make(PublicIds.of(uuid));
+            }
+            return semantic;
+        }
+    }
+
+    private final class Stripe {
+        private long[] keys = new long[INITIAL_STRIPE_CAPACITY];
+        private Entry[] entries = new Entry[INITIAL_STRIPE_CAPACITY];
+        private int size;
+
+        private synchronized Entry getOrCreate(long sctid, long hash) {
+            int mask = keys.length - 1;
+            int slot = (int) hash & mask;
+            while (entries[slot] != null) {
+                if (keys[slot] == sctid) {
+                    hits.increment();
+                    return entries[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            misses.increment();
+            Entry entry = new Entry(SnomedLoincUtility.fromSnomed(sctid));
+            keys[slot] = sctid;
+            entries[slot] = entry;
+            if (++size > keys.length * 3 / 4) {
+                grow();
+            }
+            return entry;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            Entry[] oldEntries = entries;
+            keys = new long[oldKeys.length * 2];
+            entries = new Entry[oldEntries.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldEntries[i] != null) {
+                    int slot = (int) mix(oldKeys[i]) & mask;
+                    while (entries[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    entries[slot] = oldEntries[i];
+                }
+            }
+        }
+
+        private synchronized int size() {
+            return size;
+        }
+    }
+
+    static long mix(long sctid) {
+        long hash = sctid * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 32);
+    }
+
+    private Entry entry(long sctid) {
+        long hash = mix(sctid);
+        return stripes[(int) (hash >>> (Long.SIZE - STRIPE_BITS))].getOrCreate(sctid, hash);
+    }
+
+    @Override
+    public UUID uuid(long sctid) {
+        return entry(sctid).uuid;
+    }
+
+    @Override
+    public EntityProxy.Concept concept(long sctid) {
+        return entry(sctid).concept();
+    }
+
+    @Override
+    public EntityProxy.Semantic semantic(long sctid) {
+        return entry(sctid).semantic();
+    }
+
+    @Override
+    public long hits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long misses() {
+        return misses.sum();
+    }
+
+    @Override
+    public int size() {
+        return Arrays.stream(stripes).mapToInt(Stripe::size).sum();
+    }
+}
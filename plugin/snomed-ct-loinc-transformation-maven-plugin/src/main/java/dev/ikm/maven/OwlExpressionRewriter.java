@@ -0,0 +1,158 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+import dev.ikm.tinkar.common.id.PublicIds;
+import dev.ikm.tinkar.common.util.uuid.UuidUtil;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rewrites the identifiers of an OWL functional syntax expression to public ids in a single pass.
+ * IRIs between angle brackets are replaced by the public id of the IRI, and every run of digits and
+ * dashes that follows a colon is replaced by the public id of the SCTID or LOINC code. The output is
+ * the same as applying the IRI replacement first and the identifier replacement to its result, so the
+ * public id text of an IRI is scanned for identifiers as well. Public id text is memoized per identifier
+ * and each thread reuses its own output buffer. Thread safe.
+ */
+public class OwlExpressionRewriter {
+    private static final int MAX_LONG_KEY_DIGITS = 18;
+
+    private final Map<Long, String> sctIdTexts = new ConcurrentHashMap<>();
+    private final Map<String, String> codeTexts = new ConcurrentHashMap<>();
+    private final Map<String, String> iriTexts = new ConcurrentHashMap<>();
+    private final ThreadLocal<Scan> scans = ThreadLocal.withInitial(Scan::new);
+
+    /**
+     * Rewrites an expression
+     *
+     * @param owlExpression OWL expression as read from the RF2 file
+     * @return expression with public ids in place of IRIs and identifiers
+     */
+    public String rewrite(String owlExpression) {
+        Scan scan = scans.get();
+        scan.reset();
+        boolean hasIris = owlExpression.indexOf('>') >= 0;
+        int length = owlExpression.length();
+        int i = 0;
+        while (i < length) {
+            char c = owlExpression.charAt(i);
+            if (c == '<' && hasIris) {
+                int end = owlExpression.indexOf('>', i + 1);
+                if (end > i + 1) {
+                    String iriText = iriTexts.computeIfAbsent(owlExpression.substring(i + 1, end),
+                            iri -> publicIdText(UUID.nameUUIDFromBytes(iri.getBytes())));
+                    for (int j = 0; j < iriText.length(); j++) {
+                        scan.accept(iriText.charAt(j));
+                    }
+                    i = end + 1;
+                    continue;
+                }
+                if (end < 0) {
+                    hasIris = false;
+                }
+            }
+            scan.accept(c);
+            i++;
+        }
+        return scan.finish();
+    }
+
+    private static boolean isIdChar(char c) {
+        return (c >= '0' && c <= '9') || c == '-';
+    }
+
+    private static String publicIdText(UUID uuid) {
+        return PublicIds.of(uuid).toString().replace("\"", "");
+    }
+
+    private String idText(CharSequence id) {
+        int length = id.length();
+        boolean digitsOnly = true;
+        for (int i = 0; i < length && digitsOnly; i++) {
+            digitsOnly = id.charAt(i) != '-';
+        }
+        if (!digitsOnly) {
+            // TODO: Determine namespace to use if this is a Loinc identifier
+            return codeTexts.computeIfAbsent(id.toString(),
+                    code -> publicIdText(UUID.nameUUIDFromBytes(("org.loinc." + code).getBytes())));
+        }
+        if (length <= MAX_LONG_KEY_DIGITS && (length == 1 || id.charAt(0) != '0')) {
+            long sctid = 0;
+            for (int i = 0; i < length; i++) {
+                sctid = sctid * 10 + (id.charAt(i) - '0');
+            }
+            String text = sctIdTexts.get(sctid);
+            if (text == null) {
+                text = publicIdText(UuidUtil.fromSNOMED(id.toString()));
+                sctIdTexts.putIfAbsent(sctid, text);
+            }
+            return text;
+        }
+        // Leading zeros or more digits than fit a long, keep the exact text as key
+        return codeTexts.computeIfAbsent(id.toString(), sctid -> publicIdText(UuidUtil.fromSNOMED(sctid)));
+    }
+
+    /**
+     * Output buffer plus the identifier state machine, fed one character at a time
+     */
+    private final class Scan {
+        private final StringBuilder out = new StringBuilder(1024);
+        private final StringBuilder id = new StringBuilder(32);
+        private boolean afterColon;
+        private boolean inId;
+
+        private void reset() {
+            out.setLength(0);
+            id.setLength(0);
+            afterColon = false;
+            inId = false;
+        }
+
+        private void accept(char c) {
+            if (inId) {
+                if (isIdChar(c)) {
+                    id.append(c);
+                    return;
+                }
+                flushId();
+            }
+            if (afterColon && isIdChar(c)) {
+                inId = true;
+                afterColon = false;
+                id.append(c);
+                return;
+            }
+            out.append(c);
+            afterColon = c == ':';
+        }
+
+        private void flushId() {
+            out.append(idText(id));
+            id.setLength(0);
+            inId = false;
+        }
+
+        private String finish() {
+            if (inId) {
+                flushId();
+            }
+            return out.toString();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+import java.nio.file.Path;
+import java.util.UUID;
+
+/**
+ * Step that {@link SnomedLoincPipelineMojo} runs on the started store after the load, such as the OWL
+ * transform or the reasoner. Implementations are found with {@link java.util.ServiceLoader}, so a
+ * stage is added by putting its jar on the dependencies of the plugin and naming it in the stages of
+ * the pipeline goal. A stage must not start or stop the store.
+ */
+public interface PipelineStage {
+
+    /**
+     * What a stage gets to work with
+     *
+     * @param namespace namespace of the load
+     * @param datastore datastore directory of the started store
+     */
+    record Context(UUID namespace, Path datastore) {
+    }
+
+    /**
+     * @return name of the stage in the stages parameter, such as owl-transform or reasoner
+     */
+    String name();
+
+    /**
+     * Runs the stage and commits what it wrote
+     *
+     * @param context namespace and datastore of the pipeline
+     * @throws Exception if the stage failed, which fails the pipeline
+     */
+    void run(Context context) throws Exception;
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+/**
+ * Kinds of loaded content that a reconciliation compares. Several RF2 file types can load the same
+ * kind of content, descriptions and text definitions for example both become description semantics.
+ */
+public enum ReconciledComponent {
+    /** SNOMED CT identifier of every concept in the concept files */
+    CONCEPT,
+    /** LOINC identifiers attached by the identifier files */
+    IDENTIFIER,
+    /** Description semantics of the description and text definition files */
+    DESCRIPTION,
+    /** OWL axiom semantics of the OWL expression files */
+    AXIOM,
+    /** Dialect semantics of the language refset files */
+    LANGUAGE;
+
+    /**
+     * @param type RF2 file type
+     * @return content loaded from files of the type
+     */
+    public static ReconciledComponent of(Rf2FileType type) {
+        return switch (type) {
+            case CONCEPT -> CONCEPT;
+            case IDENTIFIER -> IDENTIFIER;
+            case DESCRIPTION, DEFINITION -> DESCRIPTION;
+            case OWL_EXPRESSION -> AXIOM;
+            case LANGUAGE -> LANGUAGE;
+        };
+    }
+}
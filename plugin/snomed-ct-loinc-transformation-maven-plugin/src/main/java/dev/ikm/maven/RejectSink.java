@@ -0,0 +1,181 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Quarantines RF2 rows that cannot be transformed instead of failing the load on the first one. Every
+ * rejected row is appended to a reject file named after its RF2 file, as tab separated offset, reason
+ * code, detail and the row itself; rows are parsed concurrently, so a reject file is in the order the
+ * rows were rejected, the offset gives their order in the RF2 file. A file that could not be read to
+ * its end is recorded with the offset its unread rows start at, but does not count against the error
+ * budget: it always fails the load. Once more rows than the error budget are rejected the load fails.
+ * Thread safe.
+ */
+public class RejectSink implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(RejectSink.class.getSimpleName());
+    private static final String SUFFIX = ".rejects.tsv";
+    private static final String HEADER = "offset\treason\tdetail\trow";
+    // Rejects logged one by one before the sink only counts them
+    private static final int LOGGED_REJECTS = 20;
+
+    /**
+     * Why a row was rejected
+     */
+    public enum Reason {
+        UNRECOGNIZED_LANGUAGE_CODE,
+        UNRECOGNIZED_CASE_SIGNIFICANCE,
+        UNRECOGNIZED_DESCRIPTION_TYPE,
+        UNRECOGNIZED_DIALECT_REFSET,
+        UNRECOGNIZED_ACCEPTABILITY,
+        MALFORMED_ROW,
+        READ_FAILURE
+    }
+
+    private final Path directory;
+    private final long budget;
+    private final Map<String, BufferedWriter> writers = new HashMap<>();
+    private final Map<Reason, AtomicLong> counts = new EnumMap<>(Reason.class);
+    private final AtomicLong rejected = new AtomicLong();
+
+    private RejectSink(Path directory, long budget) {
+        this.directory = directory;
+        this.budget = budget;
+        for (Reason reason : Reason.values()) {
+            counts.put(reason, new AtomicLong());
+        }
+    }
+
+    /**
+     * @param directory directory of the reject files, created when the first row is rejected
+     * @param budget    rejected rows tolerated before the load fails, negative values tolerate any number
+     * @return sink writing reject files
+     */
+    public static RejectSink open(Path directory, long budget) {
+        return new RejectSink(directory, budget);
+    }
+
+    /**
+     * @return sink that fails the load on the first rejected row, without writing reject files
+     */
+    public static RejectSink disabled() {
+        return new RejectSink(null, 0);
+    }
+
+    /**
+     * Records a row that cannot be transformed
+     *
+     * @param fileName RF2 file of the row
+     * @param offset   offset in the RF2 text just past the row
+     * @param reason   reason code
+     * @param detail   description of the problem
+     * @param row      columns of the row, tab separated
+     * @throws IllegalStateException once the error budget is exceeded
+     */
+    public void reject(String fileName, long offset, Reason reason, String detail, String row) {
+        long total = rejected.incrementAndGet();
+        counts.get(reason).incrementAndGet();
+        if (total <= LOGGED_REJECTS) {
+            LOG.warn("Rejected row of " + fileName + " at offset " + offset + ": " + reason + " " + detail);
+        }
+        if (directory != null) {
+            write(fileName, offset + "\t" + reason + "\t" + clean(detail) + "\t" + row);
+        }
+        if (budget >= 0 && total > budget) {
+            throw new IllegalStateException("Rejected " + total + " row(s), more than the error budget of " + budget
+                    + (directory == null ? "" : ", see the reject files in " + directory));
+        }
+    }
+
+    /**
+     * Records a file that could not be read to its end. Not counted against the error budget, the
+     * caller fails the load.
+     *
+     * @param fileName RF2 file that failed
+     * @param offset   offset in the RF2 text the unread rows start at
+     * @param detail   description of the failure
+     */
+    public void readFailed(String fileName, long offset, String detail) {
+        counts.get(Reason.READ_FAILURE).incrementAndGet();
+        LOG.error("Unable to read " + fileName + " past offset " + offset + ": " + detail);
+        if (directory != null) {
+            write(fileName, offset + "\t" + Reason.READ_FAILURE + "\t" + clean(detail) + "\t");
+        }
+    }
+
+    private synchronized void write(String fileName, String line) {
+        try {
+            BufferedWriter writer = writers.get(fileName);
+            if (writer == null) {
+                Files.createDirectories(directory);
+                writer = Files.newBufferedWriter(directory.resolve(fileName + SUFFIX), StandardCharsets.UTF_8);
+                writer.write(HEADER);
+                writer.newLine();
+                writers.put(fileName, writer);
+            }
+            writer.write(line);
+            writer.newLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write the reject file of " + fileName, e);
+        }
+    }
+
+    private static String clean(String detail) {
+        return detail == null ? "" : detail.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    /**
+     * @return rows rejected so far
+     */
+    public long rejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Closes the reject files and logs the rejected rows per reason
+     */
+    @Override
+    public synchronized void close() {
+        for (Map.Entry<String, BufferedWriter> writer : writers.entrySet()) {
+            try {
+                writer.getValue().close();
+            } catch (IOException e) {
+                LOG.warn("Unable to close the reject file of " + writer.getKey() + ": " + e);
+            }
+        }
+        writers.clear();
+        if (rejected.get() > 0 || counts.get(Reason.READ_FAILURE).get() > 0) {
+            LOG.warn("Rejected " + rejected.get() + " row(s)" + (budget >= 0 ? ", error budget " + budget : "") + ": " + counts.entrySet().stream()
+                    .filter(count -> count.getValue().get() > 0)
+                    .map(count -> count.getKey() + "=" + count.getValue().get())
+                    .collect(Collectors.joining(", ")));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event spanning the commit of one batch of composed rows
+ */
+@Name("dev.ikm.snomedloinc.BatchCommit")
+@Label("RF2 Batch Commit")
+@Category({"IKM", "Snomed Loinc Transformation"})
+@Description("Commit of the sessions holding a batch of composed RF2 rows")
+public class Rf2BatchCommitEvent extends Event {
+    @Label("File")
+    String fileName;
+
+    @Label("Rows")
+    @Description("Rows composed into the committed sessions")
+    long rows;
+
+    @Label("Sessions")
+    int sessions;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocatedBytes;
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Parses an RF2 file in parallel through a {@link Rf2RowPipeline}. Large files on the default file
+ * system are memory mapped and split into newline aligned chunks that the workers map and parse.
+ * Small files, and files that cannot be mapped such as zip entries, are read by the reader thread
+ * into newline aligned blocks that the workers parse. Either way the parsed rows are handed to the
+ * consumer on the calling thread in original row order.
+ */
+public class Rf2ChunkedParser {
+    private static final long MIN_CHUNKED_FILE_SIZE = 8L << 20;
+    private static final int CHUNK_SIZE = 4 << 20;
+    private static final int BOUNDARY_SCAN_SIZE = 8 << 10;
+    private static final byte LINE_FEED = '\n';
+
+    private final Rf2RowPipeline pipeline;
+
+    public Rf2ChunkedParser(Rf2RowPipeline pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    public Rf2ChunkedParser(ForkJoinPool pool) {
+        this(Rf2RowPipeline.of(pool));
+    }
+
+    /**
+     * Parses every row after the header and passes the results on in file order
+     *
+     * @param file     RF2 file
+     * @param parser   row parser, called concurrently and must not keep the reader
+     * @param consumer receives parsed rows in file order on the calling thread, null results are skipped
+     * @param <R>      parsed row type
+     * @throws IOException if the file cannot be read
+     */
+    public <R> void forEachRow(Path file, Function<Rf2Record, R> parser, Consumer<R> consumer) throws IOException {
+        forEachRow(file, 0, parser, consumer);
+    }
+
+    /**
+     * Parses every row from a row boundary on and passes the results on in file order
+     *
+     * @param file        RF2 file
+     * @param startOffset byte offset of the first row to parse, as reported by {@link Rf2RecordReader#offset()};
+     *                    0 starts after the header
+     * @param parser      row parser, called concurrently and must not keep the reader
+     * @param consumer    receives parsed rows in file order on the calling thread, null results are skipped
+     * @param <R>         parsed row type
+     * @throws IOException if the file cannot be read
+     */
+    public <R> void forEachRow(Path file, long startOffset, Function<Rf2Record, R> parser, Consumer<R> consumer) throws IOException {
+        if (file.getFileSystem() != FileSystems.getDefault() || Files.size(file) < MIN_CHUNKED_FILE_SIZE) {
+            try (ReadableByteChannel channel = Files.newByteChannel(file)) {
+                pipeline.run(new ReadBlocks<>(channel, startOffset, parser), consumer);
+            }
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Iterator<long[]> chunks = chunks(channel, startOffset).iterator();
+            pipeline.run(() -> {
+                if (!chunks.hasNext()) {
+                    return null;
+                }
+                long[] chunk = chunks.next();
+                return () -> parseChunk(channel, chunk, parser);
+            }, consumer);
+        }
+    }
+
+    private static <R> List<R> parseChunk(FileChannel channel, long[] chunk, Function<Rf2Record, R> parser) throws IOException {
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, chunk[0], chunk[1] - chunk[0]);
+        return parseBuffer(mapped, chunk[0], parser);
+    }
+
+    private static <R> List<R> parseBuffer(ByteBuffer buffer, long offset, Function<Rf2Record, R> parser) throws IOException {
+        List<R> rows = new ArrayList<>();
+        try (Rf2RecordReader row = new Rf2RecordReader(buffer, offset)) {
+            while (row.next()) {
+                rows.add(parser.apply(row));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Reads a channel that cannot be mapped into blocks that end on a line boundary. Each block is a
+     * new array, as it is parsed on a worker while the next one is read.
+     */
+    private static class ReadBlocks<R> implements Rf2RowPipeline.ChunkSource<R> {
+        private final ReadableByteChannel channel;
+        private final long startOffset;
+        private final Function<Rf2Record, R> parser;
+        // Bytes read past the end of the previous block, the start of its next row
+        private byte[] carry = new byte[0];
+        // Offset in the source of the first byte of carry
+        private long offset;
+        private boolean skipped;
+        private boolean endOfInput;
+
+        ReadBlocks(ReadableByteChannel channel, long startOffset, Function<Rf2Record, R> parser) {
+            this.channel = channel;
+            this.startOffset = startOffset;
+            this.parser = parser;
+        }
+
+        @Override
+        public Callable<List<R>> next() throws IOException {
+            if (!skipped) {
+                skipHeaderAndCompletedRows();
+                skipped = true;
+            }
+            byte[] block = Arrays.copyOf(carry, Math.max(CHUNK_SIZE, carry.length * 2));
+            int length = carry.length;
+            int cut;
+            while (true) {
+                length = fill(block, length);
+                cut = endOfInput ? length : lastLineEnd(block, length);
+                if (cut > 0 || endOfInput) {
+                    break;
+                }
+                // A single row is larger than the block
+                block = Arrays.copyOf(block, block.length * 2);
+            }
+            if (cut == 0) {
+                return null;
+            }
+            carry = Arrays.copyOfRange(block, cut, length);
+            long blockOffset = offset;
+            offset += cut;
+            ByteBuffer rows = ByteBuffer.wrap(block, 0, cut);
+            return () -> parseBuffer(rows, blockOffset, parser);
+        }
+
+        private int fill(byte[] block, int length) throws IOException {
+            ByteBuffer target = ByteBuffer.wrap(block, length, block.length - length);
+            while (target.hasRemaining()) {
+                if (channel.read(target) < 0) {
+                    endOfInput = true;
+                    break;
+                }
+            }
+            return target.position();
+        }
+
+        /**
+         * Discards the header row, and on resume every row before the start offset; zip entries cannot
+         * be positioned, so those bytes are read and dropped
+         */
+        private void skipHeaderAndCompletedRows() throws IOException {
+            byte[] block = new byte[BOUNDARY_SCAN_SIZE];
+            boolean headerSkipped = false;
+            while (true) {
+                int length = fill(block, 0);
+                int skip = 0;
+                if (!headerSkipped) {
+                    int lineEnd = indexOf(block, 0, length);
+                    if (lineEnd >= 0) {
+                        headerSkipped = true;
+                        skip = lineEnd + 1;
+                    } else {
+                        skip = length;
+                    }
+                }
+                if (headerSkipped) {
+                    skip = (int) Math.max(skip, Math.min(length, startOffset - offset));
+                }
+                offset += skip;
+                if (skip < length || endOfInput) {
+                    carry = Arrays.copyOfRange(block, skip, length);
+                    return;
+                }
+            }
+        }
+
+        private static int indexOf(byte[] block, int from, int length) {
+            for (int i = from; i < length; i++) {
+                if (block[i] == LINE_FEED) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static int lastLineEnd(byte[] block, int length) {
+            for (int i = length - 1; i >= 0; i--) {
+                if (block[i] == LINE_FEED) {
+                    return i + 1;
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Splits the file after its header, or from a row boundary on, into [start, end) byte ranges that
+     * each end on a line boundary
+     */
+    static List<long[]> chunks(FileChannel channel, long startOffset) throws IOException {
+        long size = channel.size();
+        List<long[]> chunks = new ArrayList<>();
+        long start = Math.max(startOffset, nextLineStart(channel, 0));
+        while (start < size) {
+            long end = start + CHUNK_SIZE >= size ? size : nextLineStart(channel, start + CHUNK_SIZE);
+            chunks.add(new long[]{start, end});
+            start = end;
+        }
+        return chunks;
+    }
+
+    private static long nextLineStart(FileChannel channel, long from) throws IOException {
+        ByteBuffer scan = ByteBuffer.allocate(BOUNDARY_SCAN_SIZE);
+        long position = from;
+        while (true) {
+            scan.clear();
+            int read = channel.read(scan, position);
+            if (read < 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (scan.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+    }
+}
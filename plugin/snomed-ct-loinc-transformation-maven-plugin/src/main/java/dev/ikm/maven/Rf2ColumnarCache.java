@@ -0,0 +1,501 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.nio.file.attribute.FileTime;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * Keeps a {@link Rf2ColumnarFile} of every RF2 file a load has read, so later loads of the same
+ * release skip decoding text. Cache files are named after the SHA-256 of the source, so an edited or
+ * different release never hits a stale entry. Hashes are remembered per path, size and modification
+ * time, so an unchanged source is hashed only once. Once the cache files exceed the size limit the
+ * least recently used are deleted. The cache only speeds loads up, any failure to read or write it
+ * falls back to the text.
+ */
+public class Rf2ColumnarCache {
+    private static final Logger LOG = LoggerFactory.getLogger(Rf2ColumnarCache.class.getSimpleName());
+    private static final String HASHES_FILE = "source-hashes.properties";
+    private static final String EXTENSION = ".rf2c";
+    // Columns with more distinct values than this are stored as numbers or text
+    private static final int MAX_DICTIONARY_SIZE = 4096;
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final Properties hashes = new Properties();
+
+    private Rf2ColumnarCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return cache that never holds anything
+     */
+    public static Rf2ColumnarCache disabled() {
+        return new Rf2ColumnarCache(null, 0);
+    }
+
+    /**
+     * @param directory directory of the cache files, created when needed
+     * @param maxBytes  total size of the cache files kept, the least recently used beyond it are deleted
+     * @return cache in the directory
+     * @throws IOException if remembered source hashes cannot be read
+     */
+    public static Rf2ColumnarCache open(Path directory, long maxBytes) throws IOException {
+        Rf2ColumnarCache cache = new Rf2ColumnarCache(directory, maxBytes);
+        Path hashesFile = directory.resolve(HASHES_FILE);
+        if (Files.exists(hashesFile)) {
+            try (InputStream in = Files.newInputStream(hashesFile)) {
+                cache.hashes.load(in);
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * @return false if the cache never holds anything
+     */
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Maps the cached rows of a source file
+     *
+     * @param source  RF2 file, on disk or inside a zip file system
+     * @param variant distinguishes encodings of the same source, e.g. sorted rows
+     * @return mapped rows, or empty if the source is not cached
+     */
+    public Optional<Rf2ColumnarFile> open(Path source, String variant) {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        Path cached = null;
+        try {
+            cached = cacheFile(source, variant);
+            if (!Files.exists(cached)) {
+                return Optional.empty();
+            }
+            Rf2ColumnarFile file = Rf2ColumnarFile.open(cached);
+            // The modification time orders the files for eviction
+            Files.setLastModifiedTime(cached, FileTime.from(Instant.now()));
+            LOG.info("Reading " + file.rowCount() + " row(s) of " + source.getFileName() + " from " + cached.getFileName());
+            return Optional.of(file);
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Ignoring unreadable columnar cache " + cached + ": " + e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Encodes the rows of a source file
+     *
+     * @param source  RF2 file the rows were loaded from, names the cache file
+     * @param variant distinguishes encodings of the same source, e.g. sorted rows
+     * @param rows    RF2 file holding the rows, the source itself or a copy such as its sorted rows
+     */
+    public void store(Path source, String variant, Path rows) {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            Path cached = cacheFile(source, variant);
+            if (Files.exists(cached)) {
+                return;
+            }
+            Path partial = Files.createTempFile(directory, cached.getFileName().toString(), ".partial");
+            try {
+                write(rows, partial);
+                Files.move(partial, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(partial);
+            }
+            LOG.info("Cached the rows of " + source.getFileName() + " in " + cached.getFileName());
+            evict(cached);
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Unable to cache the rows of " + source.getFileName() + ": " + e);
+        }
+    }
+
+    /**
+     * Deletes the least recently used cache files until the cache fits its size limit
+     *
+     * @param kept cache file just stored, never deleted
+     * @throws IOException if the cache directory cannot be listed
+     */
+    private synchronized void evict(Path kept) throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(file -> file.getFileName().toString().endsWith(EXTENSION)).toList();
+        }
+        Map<Path, Long> sizes = new HashMap<>();
+        Map<Path, FileTime> used = new HashMap<>();
+        long total = 0;
+        for (Path file : files) {
+            try {
+                sizes.put(file, Files.size(file));
+                used.put(file, Files.getLastModifiedTime(file));
+                total += sizes.get(file);
+            } catch (IOException e) {
+                // Deleted meanwhile
+            }
+        }
+        List<Path> oldestFirst = new ArrayList<>(used.keySet());
+        oldestFirst.sort(Comparator.comparing(used::get));
+        for (Path file : oldestFirst) {
+            if (total <= maxBytes) {
+                break;
+            }
+            if (file.equals(kept)) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(file);
+                total -= sizes.get(file);
+                LOG.info("Evicted " + file.getFileName() + " from the columnar cache");
+            } catch (IOException e) {
+                // Still mapped by a running load on some platforms, evicted by a later one
+                LOG.warn("Unable to evict " + file + ": " + e);
+            }
+        }
+    }
+
+    private Path cacheFile(Path source, String variant) throws IOException {
+        return directory.resolve(hash(source) + (variant.isEmpty() ? "" : "-" + variant) + EXTENSION);
+    }
+
+    private String hash(Path source) throws IOException {
+        String key = source.toUri() + "|" + Files.size(source) + "|" + Files.getLastModifiedTime(source).toMillis();
+        synchronized (hashes) {
+            String known = hashes.getProperty(key);
+            if (known != null) {
+                return known;
+            }
+        }
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        byte[] buffer = new byte[WRITE_BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(source)) {
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                sha256.update(buffer, 0, read);
+            }
+        }
+        String hash = HexFormat.of().formatHex(sha256.digest());
+        synchronized (hashes) {
+            hashes.setProperty(key, hash);
+            Files.createDirectories(directory);
+            Path partial = Files.createTempFile(directory, HASHES_FILE, ".partial");
+            try (OutputStream out = Files.newOutputStream(partial)) {
+                hashes.store(out, "SHA-256 of RF2 sources by uri, size and modification time");
+            }
+            Files.move(partial, directory.resolve(HASHES_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        return hash;
+    }
+
+    /**
+     * Choice of storage for one column, made from every value of the column
+     */
+    private static class ColumnStats {
+        private boolean canonicalLong = true;
+        private boolean fitsInt = true;
+        private Map<String, Integer> dictionary = new LinkedHashMap<>();
+        private long textBytes;
+
+        void accept(String value) {
+            if (canonicalLong) {
+                canonicalLong = isCanonicalNumber(value);
+                fitsInt = canonicalLong && fitsInt && Rf2ColumnarFile.parseNumber(value) <= Integer.MAX_VALUE;
+            }
+            if (dictionary != null) {
+                dictionary.putIfAbsent(value, dictionary.size());
+                if (dictionary.size() > MAX_DICTIONARY_SIZE) {
+                    dictionary = null;
+                }
+            }
+            textBytes += value.getBytes(StandardCharsets.UTF_8).length;
+        }
+
+        Rf2ColumnarFile.Kind kind() {
+            if (dictionary != null && !fitsInt) {
+                return Rf2ColumnarFile.Kind.DICTIONARY;
+            } else if (fitsInt) {
+                return Rf2ColumnarFile.Kind.INT;
+            } else if (canonicalLong) {
+                return Rf2ColumnarFile.Kind.LONG;
+            }
+            return Rf2ColumnarFile.Kind.TEXT;
+        }
+
+        private static boolean isCanonicalNumber(String value) {
+            // Numbers are stored as values, so their text must be what Long.toString gives back
+            if (value.isEmpty() || value.length() > 18 || (value.length() > 1 && value.charAt(0) == '0')) {
+                return false;
+            }
+            for (int i = 0; i < value.length(); i++) {
+                if (value.charAt(i) < '0' || value.charAt(i) > '9') {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Writes the columnar encoding of an RF2 file, reading it twice: once to choose the storage of
+     * every column and size the regions, once to fill them
+     *
+     * @param rows   RF2 file
+     * @param target columnar file to write
+     * @throws IOException if the file cannot be read or written, or its rows differ in column count
+     */
+    static void write(Path rows, Path target) throws IOException {
+        String header = "";
+        ColumnStats[] stats = new ColumnStats[0];
+        int rowCount = 0;
+        try (Rf2RecordReader row = Rf2RecordReader.open(rows)) {
+            if (row.next()) {
+                header = String.join("\t", columns(row));
+            }
+            while (row.next()) {
+                if (rowCount == 0) {
+                    stats = new ColumnStats[row.columnCount()];
+                    for (int i = 0; i < stats.length; i++) {
+                        stats[i] = new ColumnStats();
+                    }
+                } else if (row.columnCount() != stats.length) {
+                    throw new IOException("Row " + (rowCount + 1) + " has " + row.columnCount() + " column(s), expected " + stats.length);
+                }
+                for (int i = 0; i < stats.length; i++) {
+                    stats[i].accept(row.string(i));
+                }
+                rowCount++;
+            }
+        }
+
+        byte[] headerBytes = header.getBytes(StandardCharsets.UTF_8);
+        Rf2ColumnarFile.Kind[] kinds = new Rf2ColumnarFile.Kind[stats.length];
+        long[][] regions = new long[stats.length][];
+        long position = 4L * Integer.BYTES + Long.BYTES + stats.length * (1L + 4L * Long.BYTES) + Integer.BYTES + headerBytes.length;
+        byte[][] dictionaries = new byte[stats.length][];
+        for (int i = 0; i < stats.length; i++) {
+            kinds[i] = stats[i].kind();
+            long dataLength = switch (kinds[i]) {
+                case INT -> (long) rowCount * Integer.BYTES;
+                case LONG -> (long) rowCount * Long.BYTES;
+                case DICTIONARY -> (long) rowCount * Short.BYTES;
+                case TEXT -> (rowCount + 1L) * Integer.BYTES;
+            };
+            long extraLength = 0;
+            if (kinds[i] == Rf2ColumnarFile.Kind.DICTIONARY) {
+                dictionaries[i] = dictionary(stats[i].dictionary);
+                extraLength = dictionaries[i].length;
+            } else if (kinds[i] == Rf2ColumnarFile.Kind.TEXT) {
+                if (stats[i].textBytes > Integer.MAX_VALUE) {
+                    throw new IOException("Column " + i + " holds more than 2 GB of text");
+                }
+                extraLength = stats[i].textBytes;
+            }
+            regions[i] = new long[]{position, dataLength, position + dataLength, extraLength};
+            position += dataLength + extraLength;
+        }
+        long rowEndsPosition = position;
+
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteArrayOutputStream prefixBytes = new ByteArrayOutputStream();
+            try (DataOutputStream prefix = new DataOutputStream(prefixBytes)) {
+                prefix.writeInt(Rf2ColumnarFile.MAGIC);
+                prefix.writeInt(Rf2ColumnarFile.VERSION);
+                prefix.writeInt(rowCount);
+                prefix.writeInt(stats.length);
+                prefix.writeLong(rowEndsPosition);
+                for (int i = 0; i < stats.length; i++) {
+                    prefix.writeByte(kinds[i].ordinal());
+                    for (long value : regions[i]) {
+                        prefix.writeLong(value);
+                    }
+                }
+                prefix.writeInt(headerBytes.length);
+                prefix.write(headerBytes);
+            }
+            RegionWriter prefixWriter = new RegionWriter(channel, 0);
+            prefixWriter.put(prefixBytes.toByteArray());
+            prefixWriter.flush();
+
+            RegionWriter[] data = new RegionWriter[stats.length];
+            RegionWriter[] extra = new RegionWriter[stats.length];
+            int[] textOffsets = new int[stats.length];
+            for (int i = 0; i < stats.length; i++) {
+                data[i] = new RegionWriter(channel, regions[i][0]);
+                extra[i] = new RegionWriter(channel, regions[i][2]);
+                if (kinds[i] == Rf2ColumnarFile.Kind.DICTIONARY) {
+                    extra[i].put(dictionaries[i]);
+                } else if (kinds[i] == Rf2ColumnarFile.Kind.TEXT) {
+                    data[i].putInt(0);
+                }
+            }
+            RegionWriter rowEnds = new RegionWriter(channel, rowEndsPosition);
+            int written = 0;
+            try (Rf2RecordReader row = Rf2RecordReader.open(rows)) {
+                row.next(); //skip first line, i.e. header line
+                while (row.next()) {
+                    if (written == rowCount || row.columnCount() != stats.length) {
+                        throw new IOException(rows + " changed while it was cached");
+                    }
+                    for (int i = 0; i < stats.length; i++) {
+                        switch (kinds[i]) {
+                            case INT -> data[i].putInt(row.intValue(i));
+                            case LONG -> data[i].putLong(row.longValue(i));
+                            case DICTIONARY -> {
+                                Integer code = stats[i].dictionary.get(row.string(i));
+                                if (code == null) {
+                                    throw new IOException(rows + " changed while it was cached");
+                                }
+                                data[i].putShort((short) (int) code);
+                            }
+                            case TEXT -> {
+                                byte[] text = row.string(i).getBytes(StandardCharsets.UTF_8);
+                                extra[i].put(text);
+                                textOffsets[i] += text.length;
+                                data[i].putInt(textOffsets[i]);
+                            }
+                        }
+                    }
+                    rowEnds.putLong(row.offset());
+                    written++;
+                }
+            }
+            if (written != rowCount) {
+                throw new IOException(rows + " changed while it was cached");
+            }
+            for (int i = 0; i < stats.length; i++) {
+                data[i].flush();
+                extra[i].flush();
+            }
+            rowEnds.flush();
+        }
+    }
+
+    private static String[] columns(Rf2RecordReader row) {
+        String[] columns = new String[row.columnCount()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = row.string(i);
+        }
+        return columns;
+    }
+
+    private static byte[] dictionary(Map<String, Integer> dictionary) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(dictionary.size());
+            // Entries are in code order, codes were handed out in insertion order
+            for (String value : dictionary.keySet()) {
+                byte[] text = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(text.length);
+                out.write(text);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Buffered sequential writer of one region of the file
+     */
+    private static class RegionWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+        private long position;
+
+        RegionWriter(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        void putShort(short value) throws IOException {
+            ensure(Short.BYTES);
+            buffer.putShort(value);
+        }
+
+        void put(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensure(1);
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Memory mapped binary columnar encoding of the rows of an RF2 file, written by
+ * {@link Rf2ColumnarCache}. Every column is stored in the narrowest form that reproduces its text:
+ * canonical numbers as ints or longs, low cardinality columns such as modules, types and
+ * acceptabilities as dictionary codes, anything else as UTF-8 text. The offset of every row in the
+ * source text is kept as well, so checkpoints taken while reading text or the cache are interchangeable.
+ *
+ * <p>Layout: magic, version, row count, column count, position of the row offsets, then per column
+ * its kind and the position and length of its data and extra regions, then the header row. An int
+ * column holds 4 bytes per row, a long column 8, a dictionary column a 2 byte code per row with the
+ * dictionary in its extra region, a text column rowCount + 1 int offsets into the UTF-8 bytes of its
+ * extra region. Regions are mapped one by one, so no region needs to fit a single 2 GB mapping but its own.
+ */
+public class Rf2ColumnarFile implements AutoCloseable {
+    static final int MAGIC = 0x52463243;
+    static final int VERSION = 1;
+    private static final int CHUNK_ROWS = 1 << 16;
+
+    /**
+     * Storage of a column
+     */
+    enum Kind {
+        INT, LONG, DICTIONARY, TEXT
+    }
+
+    private record Column(Kind kind, ByteBuffer data, ByteBuffer extra, String[] dictionary, long[] dictionaryValues,
+                          boolean[] dictionaryNumeric) {
+    }
+
+    private final FileChannel channel;
+    private final int rowCount;
+    private final String header;
+    private final Column[] columns;
+    private final ByteBuffer rowEnds;
+
+    private Rf2ColumnarFile(FileChannel channel, int rowCount, String header, Column[] columns, ByteBuffer rowEnds) {
+        this.channel = channel;
+        this.rowCount = rowCount;
+        this.header = header;
+        this.columns = columns;
+        this.rowEnds = rowEnds;
+    }
+
+    /**
+     * Maps a columnar file
+     *
+     * @param file file written by {@link Rf2ColumnarCache}
+     * @return mapped file, closed by the caller
+     * @throws IOException if the file cannot be read or is not a columnar file of this version
+     */
+    public static Rf2ColumnarFile open(Path file) throws IOException {
+        int rowCount;
+        long rowEndsPosition;
+        Kind[] kinds;
+        long[][] regions;
+        String header;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a columnar RF2 file of version " + VERSION + ": " + file);
+            }
+            rowCount = in.readInt();
+            int columnCount = in.readInt();
+            rowEndsPosition = in.readLong();
+            kinds = new Kind[columnCount];
+            regions = new long[columnCount][];
+            for (int i = 0; i < columnCount; i++) {
+                kinds[i] = Kind.values()[in.readByte()];
+                regions[i] = new long[]{in.readLong(), in.readLong(), in.readLong(), in.readLong()};
+            }
+            byte[] headerBytes = new byte[in.readInt()];
+            in.readFully(headerBytes);
+            header = new String(headerBytes, StandardCharsets.UTF_8);
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            Column[] columns = new Column[kinds.length];
+            for (int i = 0; i < kinds.length; i++) {
+                columns[i] = column(channel, kinds[i], regions[i]);
+            }
+            ByteBuffer rowEnds = channel.map(FileChannel.MapMode.READ_ONLY, rowEndsPosition, (long) rowCount * Long.BYTES);
+            return new Rf2ColumnarFile(channel, rowCount, header, columns, rowEnds);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static Column column(FileChannel channel, Kind kind, long[] region) throws IOException {
+        ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, region[0], region[1]);
+        ByteBuffer extra = channel.map(FileChannel.MapMode.READ_ONLY, region[2], region[3]);
+        if (kind != Kind.DICTIONARY) {
+            return new Column(kind, data, extra, null, null, null);
+        }
+        int size = extra.getInt(0);
+        String[] dictionary = new String[size];
+        long[] values = new long[size];
+        boolean[] numeric = new boolean[size];
+        int position = Integer.BYTES;
+        for (int i = 0; i < size; i++) {
+            int length = extra.getInt(position);
+            byte[] bytes = new byte[length];
+            extra.get(position + Integer.BYTES, bytes);
+            position += Integer.BYTES + length;
+            dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+            try {
+                values[i] = parseNumber(dictionary[i]);
+                numeric[i] = true;
+            } catch (NumberFormatException e) {
+                numeric[i] = false;
+            }
+        }
+        return new Column(kind, data, extra, dictionary, values, numeric);
+    }
+
+    /**
+     * @return number of rows after the header
+     */
+    public int rowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return header row of the source
+     */
+    public String header() {
+        return header;
+    }
+
+    /**
+     * Parses every row from a row boundary on and passes the results on in row order, the same contract
+     * as {@link Rf2ChunkedParser#forEachRow(Path, long, Function, Consumer)}
+     *
+     * @param pipeline    pipeline the rows are parsed on
+     * @param startOffset offset in the source text of the first row to parse, 0 starts at the first row
+     * @param parser      row parser, called concurrently and must not keep the record
+     * @param consumer    receives parsed rows in row order on the calling thread, null results are skipped
+     * @param <R>         parsed row type
+     * @throws IOException if the pipeline is interrupted
+     */
+    public <R> void forEachRow(Rf2RowPipeline pipeline, long startOffset, Function<Rf2Record, R> parser,
+                               Consumer<R> consumer) throws IOException {
+        int[] next = {firstRowAfter(startOffset)};
+        pipeline.run(() -> {
+            if (next[0] >= rowCount) {
+                return null;
+            }
+            int start = next[0];
+            int end = (int) Math.min(rowCount, (long) start + CHUNK_ROWS);
+            next[0] = end;
+            return () -> parseRows(start, end, parser);
+        }, consumer);
+    }
+
+    private <R> List<R> parseRows(int start, int end, Function<Rf2Record, R> parser) {
+        List<R> rows = new ArrayList<>(end - start);
+        Cursor cursor = new Cursor();
+        for (int row = start; row < end; row++) {
+            cursor.row = row;
+            rows.add(parser.apply(cursor));
+        }
+        return rows;
+    }
+
+    /**
+     * @return index of the first row that ends after the offset, rows ending at or before it were read
+     */
+    private int firstRowAfter(long offset) {
+        int low = 0;
+        int high = rowCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (rowEnds.getLong(middle * Long.BYTES) <= offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Parses an RF2 identifier the way {@link Rf2RecordReader#longValue(int)} does
+     */
+    static long parseNumber(String text) {
+        if (text.isEmpty() || text.length() > 18) {
+            throw new NumberFormatException("Not an RF2 identifier: " + text);
+        }
+        long value = 0;
+        for (int i = 0; i < text.length(); i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Not an RF2 identifier: " + text);
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Row view over the mapped columns, one per parsing thread
+     */
+    private class Cursor implements Rf2Record {
+        private int row;
+
+        @Override
+        public long offset() {
+            return rowEnds.getLong(row * Long.BYTES);
+        }
+
+        @Override
+        public int columnCount() {
+            return columns.length;
+        }
+
+        @Override
+        public long longValue(int column) {
+            Column values = column(column);
+            return switch (values.kind()) {
+                case INT -> values.data().getInt(row * Integer.BYTES);
+                case LONG -> values.data().getLong(row * Long.BYTES);
+                case DICTIONARY -> {
+                    int code = code(values);
+                    if (!values.dictionaryNumeric()[code]) {
+                        throw new NumberFormatException("Not an RF2 identifier: " + values.dictionary()[code]);
+                    }
+                    yield values.dictionaryValues()[code];
+                }
+                case TEXT -> parseNumber(text(values));
+            };
+        }
+
+        @Override
+        public int intValue(int column) {
+            long value = longValue(column);
+            if (value > Integer.MAX_VALUE) {
+                throw new NumberFormatException("Value out of int range: " + string(column));
+            }
+            return (int) value;
+        }
+
+        @Override
+        public boolean booleanValue(int column) {
+            return intValue(column) == 1;
+        }
+
+        @Override
+        public String string(int column) {
+            Column values = column(column);
+            return switch (values.kind()) {
+                case INT -> Integer.toString(values.data().getInt(row * Integer.BYTES));
+                case LONG -> Long.toString(values.data().getLong(row * Long.BYTES));
+                case DICTIONARY -> values.dictionary()[code(values)];
+                case TEXT -> text(values);
+            };
+        }
+
+        private Column column(int column) {
+            if (column >= columns.length) {
+                throw new IndexOutOfBoundsException("Column " + column + " missing, row has " + columns.length + " column(s)");
+            }
+            return columns[column];
+        }
+
+        private int code(Column values) {
+            return Short.toUnsignedInt(values.data().getShort(row * Short.BYTES));
+        }
+
+        private String text(Column values) {
+            int start = values.data().getInt(row * Integer.BYTES);
+            int end = values.data().getInt((row + 1) * Integer.BYTES);
+            byte[] bytes = new byte[end - start];
+            values.extra().get(start, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
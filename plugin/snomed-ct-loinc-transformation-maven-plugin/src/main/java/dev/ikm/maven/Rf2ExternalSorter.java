@@ -0,0 +1,233 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
+
+/**
+ * Sorts RF2 files by id and effective time under bounded memory, so every version of a component
+ * sits on adjacent rows in effective time order whatever the order of the release. At most
+ * maxRowsInMemory rows are sorted in memory at a time and spilled to a run file; the runs are then
+ * merged into the sorted file. Rows with the same id and effective time keep their original order,
+ * so sorting the same file always gives the same bytes and checkpoint offsets stay valid.
+ */
+public class Rf2ExternalSorter {
+    private static final Logger LOG = LoggerFactory.getLogger(Rf2ExternalSorter.class.getSimpleName());
+    private static final String LINE_END = "\r\n";
+
+    /**
+     * Orders rows by the id column, then the effective time column. Ids are compared as text, which
+     * keeps equal ids together, and effective times sort by date as they are fixed width.
+     */
+    static final Comparator<String> ROW_ORDER = Rf2ExternalSorter::compareRows;
+
+    private final Path workDirectory;
+    private final int maxRowsInMemory;
+
+    /**
+     * @param workDirectory   directory the sorted files and run files are written to
+     * @param maxRowsInMemory rows sorted in memory before they are spilled to a run file
+     */
+    public Rf2ExternalSorter(Path workDirectory, int maxRowsInMemory) {
+        this.workDirectory = workDirectory;
+        this.maxRowsInMemory = Math.max(1, maxRowsInMemory);
+    }
+
+    /**
+     * Returns the rows of a file in id and effective time order
+     *
+     * @param file RF2 file, on disk or inside a zip file system
+     * @return the file itself when it is already sorted, otherwise a sorted copy in the work directory
+     * @throws IOException if the file cannot be read or the sorted copy cannot be written
+     */
+    public Path sorted(Path file) throws IOException {
+        if (isSorted(file)) {
+            return file;
+        }
+        String fileName = file.getFileName().toString();
+        Path sorted = workDirectory.resolve(fileName);
+        Path runDirectory = workDirectory.resolve(fileName + ".runs");
+        Files.createDirectories(runDirectory);
+        List<Path> runs = new ArrayList<>();
+        String header;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            header = reader.readLine();
+            List<String> rows = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                rows.add(line);
+                if (rows.size() == maxRowsInMemory) {
+                    runs.add(spill(rows, runDirectory.resolve("run-" + runs.size() + ".txt")));
+                    rows.clear();
+                }
+            }
+            if (!rows.isEmpty() || runs.isEmpty()) {
+                runs.add(spill(rows, runDirectory.resolve("run-" + runs.size() + ".txt")));
+            }
+        }
+        Path partial = workDirectory.resolve(fileName + ".partial");
+        merge(header, runs, partial);
+        Files.move(partial, sorted, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        delete(runDirectory);
+        LOG.info("Sorted " + fileName + " by id and effective time in " + runs.size() + " run(s)");
+        return sorted;
+    }
+
+    /**
+     * Removes a sorted copy once its file is transformed
+     *
+     * @param file   RF2 file that was sorted
+     * @param sorted result of {@link #sorted(Path)} for the file
+     * @throws IOException if the copy cannot be removed
+     */
+    public void release(Path file, Path sorted) throws IOException {
+        if (!sorted.equals(file)) {
+            Files.deleteIfExists(sorted);
+        }
+    }
+
+    /**
+     * Checks the order of a file on the raw bytes of its id and effective time columns, nothing is
+     * decoded. Ids and effective times are ASCII, so byte order is the text order of {@link #ROW_ORDER}.
+     *
+     * @param file RF2 file
+     * @return true if every row sorts at or after the one before it
+     * @throws IOException if the file cannot be read
+     */
+    static boolean isSorted(Path file) throws IOException {
+        try (Rf2RecordReader row = Rf2RecordReader.open(file)) {
+            row.next(); //skip first line, i.e. header line
+            byte[] previousId = new byte[32];
+            byte[] previousTime = new byte[16];
+            int previousIdLength = -1;
+            int previousTimeLength = 0;
+            while (row.next()) {
+                if (previousIdLength >= 0) {
+                    int compared = row.compareColumn(0, previousId, previousIdLength);
+                    if (compared < 0 || (compared == 0 && row.compareColumn(1, previousTime, previousTimeLength) < 0)) {
+                        return false;
+                    }
+                }
+                previousId = row.copyColumn(0, previousId);
+                previousIdLength = row.columnLength(0);
+                previousTime = row.copyColumn(1, previousTime);
+                previousTimeLength = row.columnLength(1);
+            }
+        }
+        return true;
+    }
+
+    private static Path spill(List<String> rows, Path run) throws IOException {
+        // List.sort is stable, equal keys keep their original order
+        rows.sort(ROW_ORDER);
+        try (BufferedWriter writer = Files.newBufferedWriter(run, StandardCharsets.UTF_8)) {
+            for (String row : rows) {
+                writer.write(row);
+                writer.write(LINE_END);
+            }
+        }
+        return run;
+    }
+
+    private record RunHead(String row, int run, BufferedReader reader) {
+    }
+
+    private static void merge(String header, List<Path> runs, Path target) throws IOException {
+        // Ties go to the earlier run, which holds the earlier rows of the file
+        PriorityQueue<RunHead> heads = new PriorityQueue<>(Comparator.comparing(RunHead::row, ROW_ORDER)
+                .thenComparingInt(RunHead::run));
+        List<BufferedReader> readers = new ArrayList<>();
+        try (BufferedWriter writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < runs.size(); i++) {
+                BufferedReader reader = Files.newBufferedReader(runs.get(i), StandardCharsets.UTF_8);
+                readers.add(reader);
+                String row = reader.readLine();
+                if (row != null) {
+                    heads.add(new RunHead(row, i, reader));
+                }
+            }
+            if (header != null) {
+                writer.write(header);
+                writer.write(LINE_END);
+            }
+            RunHead head;
+            while ((head = heads.poll()) != null) {
+                writer.write(head.row());
+                writer.write(LINE_END);
+                String next = head.reader().readLine();
+                if (next != null) {
+                    heads.add(new RunHead(next, head.run(), head.reader()));
+                }
+            }
+        } finally {
+            for (BufferedReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    private static int compareRows(String left, String right) {
+        int leftIdEnd = tab(left, 0);
+        int rightIdEnd = tab(right, 0);
+        int compared = compareRegion(left, 0, leftIdEnd, right, 0, rightIdEnd);
+        if (compared != 0) {
+            return compared;
+        }
+        return compareRegion(left, leftIdEnd + 1, tab(left, leftIdEnd + 1), right, rightIdEnd + 1, tab(right, rightIdEnd + 1));
+    }
+
+    private static int tab(String row, int from) {
+        if (from > row.length()) {
+            return row.length();
+        }
+        int tab = row.indexOf('\t', from);
+        return tab < 0 ? row.length() : tab;
+    }
+
+    private static int compareRegion(String left, int leftStart, int leftEnd, String right, int rightStart, int rightEnd) {
+        int leftLength = Math.max(0, leftEnd - leftStart);
+        int rightLength = Math.max(0, rightEnd - rightStart);
+        for (int i = 0; i < Math.min(leftLength, rightLength); i++) {
+            int compared = Character.compare(left.charAt(leftStart + i), right.charAt(rightStart + i));
+            if (compared != 0) {
+                return compared;
+            }
+        }
+        return Integer.compare(leftLength, rightLength);
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
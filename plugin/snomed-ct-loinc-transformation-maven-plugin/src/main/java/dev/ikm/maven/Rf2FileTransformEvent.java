@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event spanning the transformation of one RF2 file, carrying its hot path counters
+ */
+@Name("dev.ikm.snomedloinc.FileTransform")
+@Label("RF2 File Transform")
+@Category({"IKM", "Snomed Loinc Transformation"})
+@Description("Transformation of a single RF2 file")
+public class Rf2FileTransformEvent extends Event {
+    @Label("File")
+    String fileName;
+
+    @Label("Transformer")
+    String transformer;
+
+    @Label("Rows Read")
+    long rowsRead;
+
+    @Label("Rows Skipped")
+    @Description("Rows at or before the effective time watermark")
+    long rowsSkipped;
+
+    @Label("Rows Composed")
+    long rowsComposed;
+
+    @Label("Parse Time")
+    @Description("Time spent parsing rows, summed over every parsing thread")
+    @Timespan
+    long parseNanos;
+
+    @Label("Compose Time")
+    @Timespan
+    long composeNanos;
+
+    @Label("Commit Time")
+    @Timespan
+    long commitNanos;
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * RF2 file kinds handled by the transformation, along with the dependency stage each kind is loaded in.
+ * Files in a lower stage are fully transformed before any file of a higher stage starts.
+ */
+public enum Rf2FileType {
+    // Declaration order matters: it is the order in which file names are matched
+    CONCEPT("Concept", 0),
+    DEFINITION("Definition", 1),
+    DESCRIPTION("Description", 1),
+    LANGUAGE("Language", 2),
+    // Composes concepts too, so it runs after the concept file instead of next to it
+    IDENTIFIER("Identifier", 1),
+    OWL_EXPRESSION("OWLExpression", 1);
+
+    private final String keyword;
+    private final int stage;
+
+    Rf2FileType(String keyword, int stage) {
+        this.keyword = keyword;
+        this.stage = stage;
+    }
+
+    /**
+     * @return dependency stage of this file kind, lowest stage is loaded first
+     */
+    public int stage() {
+        return stage;
+    }
+
+    /**
+     * Creates the transformer for files of this kind
+     *
+     * @param namespace namespace of the load
+     * @param context   settings and services shared by the transformers of the load
+     * @return new transformer, one is used per file
+     */
+    public Transformer newTransformer(UUID namespace, TransformationContext context) {
+        return switch (this) {
+            case CONCEPT -> new ConceptTransformer(namespace, context);
+            case DEFINITION -> new DefinitionTransformer(namespace, context);
+            case DESCRIPTION -> new DescriptionTransformer(namespace, context);
+            case LANGUAGE -> new LanguageTransformer(namespace, context);
+            case IDENTIFIER -> new IdentifierTransformer(namespace, context);
+            case OWL_EXPRESSION -> new AxiomSyntaxTransformer(namespace, context);
+        };
+    }
+
+    /**
+     * Checks file name for matching keywords
+     *
+     * @param fileName RF2 file name
+     * @return file type, or empty if the file cannot be processed
+     */
+    public static Optional<Rf2FileType> of(String fileName) {
+        for (Rf2FileType type : values()) {
+            if (fileName.contains(type.keyword)) {
+                return Optional.of(type);
+            }
+        }
+        return Optional.empty();
+    }
+}
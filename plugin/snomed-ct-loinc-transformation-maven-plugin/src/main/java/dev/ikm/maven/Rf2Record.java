@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+/**
+ * Current row of an RF2 file, read either from text by {@link Rf2RecordReader} or from a binary
+ * columnar cache by {@link Rf2ColumnarFile}. Column values are only valid until the source moves to
+ * the next row.
+ */
+public interface Rf2Record {
+
+    /**
+     * @return offset in the RF2 text just past the current row, where reading would resume after it
+     */
+    long offset();
+
+    /**
+     * @return number of columns in the current row
+     */
+    int columnCount();
+
+    /**
+     * Parses a numeric column such as an SCTID
+     *
+     * @param column zero based column index
+     * @return column value
+     */
+    long longValue(int column);
+
+    /**
+     * Parses a numeric column that fits an int, such as an effectiveTime in yyyyMMdd form
+     *
+     * @param column zero based column index
+     * @return column value
+     */
+    int intValue(int column);
+
+    /**
+     * Reads an RF2 active flag
+     *
+     * @param column zero based column index
+     * @return true when the column holds 1
+     */
+    boolean booleanValue(int column);
+
+    /**
+     * Reads a column as text, use only for text columns such as terms and OWL expressions
+     *
+     * @param column zero based column index
+     * @return column value
+     */
+    String string(int column);
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Reads tab separated RF2 rows straight from bytes. The reader keeps one buffer and one set of column
+ * offsets that are reused for every row, numeric columns are parsed from the bytes and only columns
+ * read through {@link #string(int)} are decoded into Strings. Column values are only valid until the
+ * next call to {@link #next()}.
+ */
+public class Rf2RecordReader implements Rf2Record, AutoCloseable {
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+    private static final byte TAB = '\t';
+    private static final byte LINE_FEED = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    private final ReadableByteChannel channel;
+    private ByteBuffer buffer;
+    // Offset in the source of the first byte of the buffer
+    private long bufferOffset;
+    private int position;
+    private int limit;
+    private boolean endOfInput;
+
+    private int[] columnStarts = new int[16];
+    private int[] columnEnds = new int[16];
+    private int columnCount;
+    private byte[] scratch = new byte[256];
+
+    /**
+     * Reads rows from a channel, refilling an internal buffer as rows are consumed
+     *
+     * @param channel RF2 content, closed with this reader
+     */
+    public Rf2RecordReader(ReadableByteChannel channel) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
+        this.bufferOffset = 0;
+        this.position = 0;
+        this.limit = 0;
+        this.endOfInput = false;
+    }
+
+    /**
+     * Reads rows held in the remaining bytes of a buffer, for example a memory mapped region
+     *
+     * @param buffer RF2 content between its position and limit
+     */
+    public Rf2RecordReader(ByteBuffer buffer) {
+        this(buffer, 0);
+    }
+
+    /**
+     * Reads rows held in the remaining bytes of a buffer that was taken from a larger source
+     *
+     * @param buffer      RF2 content between its position and limit
+     * @param startOffset offset in the source of the buffer position, used by {@link #offset()}
+     */
+    public Rf2RecordReader(ByteBuffer buffer, long startOffset) {
+        this.channel = null;
+        this.buffer = buffer;
+        this.bufferOffset = startOffset - buffer.position();
+        this.position = buffer.position();
+        this.limit = buffer.limit();
+        this.endOfInput = true;
+    }
+
+    /**
+     * Opens a reader over an RF2 file, on disk or inside a zip file system
+     *
+     * @param file RF2 file
+     * @return reader positioned before the header row
+     * @throws IOException if the file cannot be opened
+     */
+    public static Rf2RecordReader open(Path file) throws IOException {
+        return new Rf2RecordReader(Files.newByteChannel(file));
+    }
+
+    /**
+     * Advances to the next row
+     *
+     * @return false once every row has been read
+     * @throws IOException if the underlying channel fails
+     */
+    public boolean next() throws IOException {
+        int lineEnd;
+        while ((lineEnd = indexOfLineFeed()) < 0) {
+            if (endOfInput) {
+                if (position >= limit) {
+                    return false;
+                }
+                // Last row without a trailing line feed
+                lineEnd = limit;
+                break;
+            }
+            fill();
+        }
+        int lineStart = position;
+        position = lineEnd < limit ? lineEnd + 1 : limit;
+        if (lineEnd > lineStart && buffer.get(lineEnd - 1) == CARRIAGE_RETURN) {
+            lineEnd--;
+        }
+        splitColumns(lineStart, lineEnd);
+        return true;
+    }
+
+    private int indexOfLineFeed() {
+        for (int i = position; i < limit; i++) {
+            if (buffer.get(i) == LINE_FEED) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void fill() throws IOException {
+        int remaining = limit - position;
+        if (position == 0 && limit == buffer.capacity()) {
+            // A single row is larger than the buffer
+            buffer = ByteBuffer.wrap(Arrays.copyOf(buffer.array(), buffer.capacity() * 2));
+        } else if (position > 0) {
+            System.arraycopy(buffer.array(), position, buffer.array(), 0, remaining);
+            bufferOffset += position;
+        }
+        position = 0;
+        limit = remaining;
+        buffer.limit(buffer.capacity()).position(limit);
+        int read = channel.read(buffer);
+        if (read < 0) {
+            endOfInput = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    private void splitColumns(int lineStart, int lineEnd) {
+        columnCount = 0;
+        int start = lineStart;
+        for (int i = lineStart; i < lineEnd; i++) {
+            if (buffer.get(i) == TAB) {
+                addColumn(start, i);
+                start = i + 1;
+            }
+        }
+        addColumn(start, lineEnd);
+    }
+
+    private void addColumn(int start, int end) {
+        if (columnCount == columnStarts.length) {
+            columnStarts = Arrays.copyOf(columnStarts, columnCount * 2);
+            columnEnds = Arrays.copyOf(columnEnds, columnCount * 2);
+        }
+        columnStarts[columnCount] = start;
+        columnEnds[columnCount] = end;
+        columnCount++;
+    }
+
+    /**
+     * @return offset in the source just past the current row, where reading would resume after it
+     */
+    @Override
+    public long offset() {
+        return bufferOffset + position;
+    }
+
+    /**
+     * @return number of columns in the current row
+     */
+    @Override
+    public int columnCount() {
+        return columnCount;
+    }
+
+    /**
+     * Parses a numeric column such as an SCTID
+     *
+     * @param column zero based column index
+     * @return column value
+     */
+    @Override
+    public long longValue(int column) {
+        checkColumn(column);
+        int start = columnStarts[column];
+        int end = columnEnds[column];
+        if (start == end || end - start > 18) {
+            throw new NumberFormatException("Not an RF2 identifier: " + string(column));
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Not an RF2 identifier: " + string(column));
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Parses a numeric column that fits an int, such as an effectiveTime in yyyyMMdd form
+     *
+     * @param column zero based column index
+     * @return column value
+     */
+    @Override
+    public int intValue(int column) {
+        long value = longValue(column);
+        if (value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Value out of int range: " + string(column));
+        }
+        return (int) value;
+    }
+
+    /**
+     * Reads an RF2 active flag
+     *
+     * @param column zero based column index
+     * @return true when the column holds 1
+     */
+    @Override
+    public boolean booleanValue(int column) {
+        return intValue(column) == 1;
+    }
+
+    /**
+     * Decodes a column as UTF-8, use only for text columns such as terms and OWL expressions
+     *
+     * @param column zero based column index
+     * @return new String holding the column value
+     */
+    @Override
+    public String string(int column) {
+        checkColumn(column);
+        int start = columnStarts[column];
+        int length = columnEnds[column] - start;
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + start, length, StandardCharsets.UTF_8);
+        }
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buffer.get(start, scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param column zero based column index
+     * @return length of the column in bytes, 0 for a column the row does not have
+     */
+    int columnLength(int column) {
+        return column < columnCount ? columnEnds[column] - columnStarts[column] : 0;
+    }
+
+    /**
+     * Copies the bytes of a column, so they can be compared with a later row
+     *
+     * @param column zero based column index
+     * @param target array to copy into, replaced by a larger one when too small
+     * @return array holding the column in its first {@link #columnLength(int)} bytes
+     */
+    byte[] copyColumn(int column, byte[] target) {
+        int length = columnLength(column);
+        if (target.length < length) {
+            target = new byte[Math.max(length, target.length * 2)];
+        }
+        if (length > 0) {
+            buffer.get(columnStarts[column], target, 0, length);
+        }
+        return target;
+    }
+
+    /**
+     * Compares a column with bytes copied from an earlier row, unsigned byte by byte and then by
+     * length, without decoding either
+     *
+     * @param column zero based column index, a column the row does not have is empty
+     * @param other  bytes of the other column
+     * @param length length of the other column
+     * @return negative, zero or positive as the column sorts before, with or after the other
+     */
+    int compareColumn(int column, byte[] other, int length) {
+        int ownLength = columnLength(column);
+        int start = ownLength == 0 ? 0 : columnStarts[column];
+        for (int i = 0; i < Math.min(ownLength, length); i++) {
+            int compared = Byte.compareUnsigned(buffer.get(start + i), other[i]);
+            if (compared != 0) {
+                return compared;
+            }
+        }
+        return Integer.compare(ownLength, length);
+    }
+
+    private void checkColumn(int column) {
+        if (column >= columnCount) {
+            throw new IndexOutOfBoundsException("Column " + column + " missing, row has " + columnCount + " column(s)");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * RF2 release distributions. Each release zip holds a folder per distribution, the terminology files
+ * are read from its Terminology sub folder.
+ */
+public enum Rf2ReleaseType {
+    /** Every version of every component */
+    FULL("Full"),
+    /** Latest version of every component */
+    SNAPSHOT("Snapshot"),
+    /** Versions changed since the previous release */
+    DELTA("Delta");
+
+    private final String folderName;
+
+    Rf2ReleaseType(String folderName) {
+        this.folderName = folderName;
+    }
+
+    /**
+     * @return name of the release folder holding this distribution
+     */
+    public String folderName() {
+        return folderName;
+    }
+
+    /**
+     * Finds the Terminology folder of this distribution, e.g. Full/Terminology, either on disk or
+     * inside a zip file system
+     *
+     * @param root directory to search from
+     * @return terminology folder
+     * @throws FileNotFoundException if the release has no Terminology folder for this distribution
+     */
+    public Path terminologyFolder(Path root) throws IOException {
+        try (Stream<Path> found = Files.find(root, Integer.MAX_VALUE, (path, attributes) -> attributes.isDirectory()
+                && path.getFileName() != null && path.getFileName().toString().equals("Terminology")
+                && path.getParent().getFileName() != null && path.getParent().getFileName().toString().equals(folderName))) {
+            return found.findFirst()
+                    .orElseThrow(() -> new FileNotFoundException("The data folder could not be found..."));
+        }
+    }
+
+    /**
+     * Looks a release type up by folder name, ignoring case
+     *
+     * @param name folder name such as Full, Snapshot or Delta
+     * @return release type, or empty if the name is unknown
+     */
+    public static Optional<Rf2ReleaseType> of(String name) {
+        return Arrays.stream(values())
+                .filter(type -> type.folderName.equalsIgnoreCase(name))
+                .findFirst();
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Three stage pipeline that turns chunks of RF2 rows into parsed rows. A reader thread takes chunks
+ * from a {@link ChunkSource} and submits them to the parse workers, the workers parse the rows of a
+ * chunk, deriving UUIDs and proxies, and the calling thread is the single writer that receives the
+ * parsed rows in original order. Chunks travel from reader to writer through a bounded queue, so when
+ * the writer is the bottleneck the reader blocks and at most capacity chunks are parsed ahead of it.
+ * One pipeline is shared by every file of a load; each {@link #run} has its own reader and queue.
+ */
+public class Rf2RowPipeline {
+    private final ExecutorService workers;
+    private final int capacity;
+    // Chunks submitted by the readers and not yet taken by the writers, over every running file
+    private final AtomicInteger queued = new AtomicInteger();
+
+    /**
+     * Supplies the chunks of a file in order, called on the reader thread only
+     *
+     * @param <R> parsed row type
+     */
+    @FunctionalInterface
+    public interface ChunkSource<R> {
+        /**
+         * @return task parsing the next chunk, null once every chunk was supplied
+         * @throws IOException if the file cannot be read
+         */
+        Callable<List<R>> next() throws IOException;
+    }
+
+    /**
+     * @param workers  parse workers, a fork-join pool, a fixed pool or a virtual thread per task
+     * @param capacity chunks parsed or being parsed ahead of the writer, values below 1 allow one
+     */
+    public Rf2RowPipeline(ExecutorService workers, int capacity) {
+        this.workers = workers;
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * @param pool parse workers
+     * @return pipeline keeping two chunks per worker in flight
+     */
+    public static Rf2RowPipeline of(ForkJoinPool pool) {
+        return new Rf2RowPipeline(pool, Math.max(2, pool.getParallelism() * 2));
+    }
+
+    /**
+     * @return chunks parsed or being parsed ahead of the writer
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return chunks submitted for parsing and not yet handed to the writers, over every running file
+     */
+    public int queueDepth() {
+        // The reader counts a chunk after queueing it, so a writer may briefly take it first
+        return Math.max(0, queued.get());
+    }
+
+    /**
+     * Parses every chunk of a source and hands the rows to the writer in order
+     *
+     * @param source chunks of one file
+     * @param writer receives parsed rows in order on the calling thread, null rows are skipped
+     * @param <R>    parsed row type
+     * @throws IOException if the source cannot be read
+     */
+    public <R> void run(ChunkSource<R> source, Consumer<R> writer) throws IOException {
+        BlockingQueue<Future<List<R>>> queue = new ArrayBlockingQueue<>(capacity);
+        Future<List<R>> end = CompletableFuture.completedFuture(List.of());
+        Thread reader = Thread.ofVirtual().name("rf2-reader").start(() -> read(source, queue, end));
+        try {
+            Future<List<R>> chunk;
+            while ((chunk = queue.take()) != end) {
+                queued.decrementAndGet();
+                for (R row : chunk.get()) {
+                    if (row != null) {
+                        writer.accept(row);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for parsed rows");
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        } finally {
+            // Stops the reader if the writer failed, a finished reader ignores the interrupt
+            reader.interrupt();
+            joinUninterruptibly(reader);
+            queue.forEach(pending -> {
+                if (pending != end) {
+                    queued.decrementAndGet();
+                }
+                pending.cancel(true);
+            });
+        }
+    }
+
+    private <R> void read(ChunkSource<R> source, BlockingQueue<Future<List<R>>> queue, Future<List<R>> end) {
+        try {
+            try {
+                Callable<List<R>> chunk;
+                while ((chunk = source.next()) != null) {
+                    queue.put(workers.submit(chunk));
+                    queued.incrementAndGet();
+                }
+                queue.put(end);
+            } catch (IOException | RuntimeException e) {
+                // Handed to the writer after the chunks read before the failure
+                queue.put(CompletableFuture.failedFuture(e));
+                queued.incrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            // The writer stopped
+        }
+    }
+
+    private static void joinUninterruptibly(Thread thread) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                thread.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static IOException rethrow(Throwable cause) {
+        if (cause instanceof IOException e) {
+            return e;
+        }
+        if (cause instanceof RuntimeException e) {
+            throw e;
+        }
+        if (cause instanceof Error e) {
+            throw e;
+        }
+        throw new RuntimeException(cause);
+    }
+
+    /**
+     * Stops the parse workers unless they are the shared common pool
+     */
+    public void shutdown() {
+        if (workers != ForkJoinPool.commonPool()) {
+            workers.shutdownNow();
+        }
+    }
+}
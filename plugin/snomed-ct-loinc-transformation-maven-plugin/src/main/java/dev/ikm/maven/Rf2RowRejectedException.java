@@ -0,0 +1,37 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+/**
+ * Thrown while parsing a row whose content cannot be transformed, such as an unrecognized code. The
+ * transformer hands the row to the {@link RejectSink} with the reason and carries on with the file.
+ */
+public class Rf2RowRejectedException extends RuntimeException {
+    private final RejectSink.Reason reason;
+
+    /**
+     * @param reason  reason code written to the reject file
+     * @param message description of the rejected value
+     */
+    public Rf2RowRejectedException(RejectSink.Reason reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    public RejectSink.Reason reason() {
+        return reason;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+import dev.ikm.tinkar.terms.EntityProxy;
+
+import java.util.UUID;
+
+/**
+ * Maps SCTIDs parsed as longs to their UUID and entity proxies for the duration of a load. Module,
+ * concept and description ids repeat across rows and files, so each UUID is derived once. Implementations
+ * are thread safe.
+ */
+public interface SctIdCache {
+
+    /**
+     * Creates a cache
+     *
+     * @param offHeap keep the id to UUID table in direct memory; proxies are then rebuilt on each call
+     * @return empty cache
+     */
+    static SctIdCache create(boolean offHeap) {
+        return offHeap ? new OffHeapSctIdCache() : new OnHeapSctIdCache();
+    }
+
+    /**
+     * @param sctid snomed identifier
+     * @return UUID of the identifier, as {@link SnomedLoincUtility#fromSnomed(long)} derives it
+     */
+    UUID uuid(long sctid);
+
+    /**
+     * @param sctid snomed identifier of a concept
+     * @return concept proxy for the identifier
+     */
+    EntityProxy.Concept concept(long sctid);
+
+    /**
+     * @param sctid snomed identifier of a semantic
+     * @return semantic proxy for the identifier
+     */
+    EntityProxy.Semantic semantic(long sctid);
+
+    /**
+     * @return lookups answered from the cache
+     */
+    long hits();
+
+    /**
+     * @return lookups that had to derive a UUID
+     */
+    long misses();
+
+    /**
+     * @return share of lookups answered from the cache, 0 before the first lookup
+     */
+    default double hitRate() {
+        long hits = hits();
+        long total = hits + misses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * @return number of identifiers held
+     */
+    int size();
+}
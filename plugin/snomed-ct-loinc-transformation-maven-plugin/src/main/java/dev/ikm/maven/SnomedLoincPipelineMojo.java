@@ -0,0 +1,134 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * Runs starter data, the transformation and any further stages in one process against one started
+ * store, instead of one Maven module and one store start and stop per step. Stages other than
+ * starterdata and transformation are {@link PipelineStage} implementations on the plugin dependencies,
+ * run in the order they are named once the load has finished. The time of every stage is logged and
+ * written to the transformation report.
+ */
+@Mojo(name = "run-snomed-loinc-pipeline", defaultPhase = LifecyclePhase.INSTALL)
+public class SnomedLoincPipelineMojo extends SnomedLoincTransformationMojo {
+    private static final Logger LOG = LoggerFactory.getLogger(SnomedLoincPipelineMojo.class.getSimpleName());
+    static final String STAGE = "pipeline";
+    static final String STARTER_DATA = "starterdata";
+
+    /**
+     * Comma separated stages in run order. starterdata, if named, must come before transformation;
+     * every other name must match a {@link PipelineStage} found on the plugin dependencies.
+     */
+    @Parameter(property = "pipelineStages", defaultValue = STARTER_DATA + "," + SnomedLoincTransformationMojo.STAGE)
+    private String pipelineStages;
+
+    private boolean starterData;
+    private final List<PipelineStage> afterLoad = new ArrayList<>();
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        resolveStages();
+        super.execute();
+    }
+
+    private void resolveStages() throws MojoExecutionException {
+        Map<String, PipelineStage> available = new LinkedHashMap<>();
+        ServiceLoader.load(PipelineStage.class, getClass().getClassLoader())
+                .forEach(stage -> available.put(stage.name(), stage));
+        List<String> names = Arrays.stream(pipelineStages.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .toList();
+        int transformation = names.indexOf(SnomedLoincTransformationMojo.STAGE);
+        if (transformation < 0) {
+            throw new MojoExecutionException("Pipeline stages " + names + " do not include " + SnomedLoincTransformationMojo.STAGE);
+        }
+        starterData = false;
+        afterLoad.clear();
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i);
+            if (names.indexOf(name) != i) {
+                throw new MojoExecutionException("Pipeline stage " + name + " is named more than once");
+            }
+            if (name.equals(STARTER_DATA)) {
+                if (i > transformation) {
+                    throw new MojoExecutionException(STARTER_DATA + " must run before " + SnomedLoincTransformationMojo.STAGE);
+                }
+                starterData = true;
+            } else if (!name.equals(SnomedLoincTransformationMojo.STAGE)) {
+                PipelineStage stage = available.get(name);
+                if (stage == null) {
+                    throw new MojoExecutionException("Unknown pipeline stage " + name + ", available: " + available.keySet());
+                }
+                if (i < transformation) {
+                    throw new MojoExecutionException(name + " must run after " + SnomedLoincTransformationMojo.STAGE);
+                }
+                afterLoad.add(stage);
+            }
+        }
+    }
+
+    @Override
+    protected String stage() {
+        return STAGE;
+    }
+
+    @Override
+    protected Map<String, String> fingerprintSettings() {
+        Map<String, String> settings = super.fingerprintSettings();
+        settings.put("pipelineStages", pipelineStages);
+        return settings;
+    }
+
+    @Override
+    protected void beforeLoad(File datastore) throws MojoExecutionException {
+        if (starterData) {
+            long started = System.nanoTime();
+            SnomedLoincStarterData.compose(namespace());
+            report().stageFinished(STARTER_DATA, System.nanoTime() - started);
+        }
+    }
+
+    @Override
+    protected void afterLoad(File datastore) throws MojoExecutionException {
+        PipelineStage.Context context = new PipelineStage.Context(namespace(), datastore.toPath());
+        for (PipelineStage stage : afterLoad) {
+            LOG.info("########## Pipeline stage " + stage.name() + " starting");
+            long started = System.nanoTime();
+            try {
+                stage.run(context);
+            } catch (Exception e) {
+                throw new MojoExecutionException("Pipeline stage " + stage.name() + " failed", e);
+            }
+            report().stageFinished(stage.name(), System.nanoTime() - started);
+        }
+    }
+}
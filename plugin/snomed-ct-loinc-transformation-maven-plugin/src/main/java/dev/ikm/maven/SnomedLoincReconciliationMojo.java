@@ -0,0 +1,179 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+import dev.ikm.tinkar.common.service.CachingService;
+import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.common.service.ServiceKeys;
+import dev.ikm.tinkar.common.service.ServiceProperties;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * Checks that a datastore holds everything a SNOMED CT LOINC release loads into it by comparing
+ * order independent digests of both sides, see {@link LoadReconciler}. The release is read in place
+ * from its zip file and the datastore is only read. Full and Delta releases are compared with the
+ * versions of the datastore within their effective times; Snapshot releases are refused.
+ */
+@Mojo(name = "reconcile-snomed-loinc-load", defaultPhase = LifecyclePhase.INSTALL)
+public class SnomedLoincReconciliationMojo extends AbstractMojo {
+    private static final Logger LOG = LoggerFactory.getLogger(SnomedLoincReconciliationMojo.class.getSimpleName());
+
+    @Parameter(property = "origin.namespace", required = true)
+    String namespaceString;
+    @Parameter(property = "datastorePath", required = true)
+    private String datastorePath;
+    @Parameter(property = "inputDirectoryPath", required = true)
+    private String inputDirectoryPath;
+    @Parameter(property = "controllerName", defaultValue = "Open SpinedArrayStore")
+    private String controllerName;
+    @Parameter(property = "releaseType", defaultValue = "Full")
+    private String releaseType;
+    @Parameter(property = "parallelism", defaultValue = "0")
+    private int parallelism;
+
+    /**
+     * Differing components named in the report per component kind
+     */
+    @Parameter(property = "reconcile.maxReportedMismatches", defaultValue = "100")
+    private int maxReportedMismatches;
+    /**
+     * Fail the build when the datastore does not match the release, otherwise only the report names the differences
+     */
+    @Parameter(property = "reconcile.failOnMismatch", defaultValue = "false")
+    private boolean failOnMismatch;
+    @Parameter(property = "reconcile.skip", defaultValue = "false")
+    private boolean skip;
+    @Parameter(property = "reconcile.reportPath", defaultValue = "${project.build.directory}/snomed-loinc-reconciliation-report.json")
+    private String reportPath;
+
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if (skip) {
+            LOG.info("Reconciliation skipped");
+            return;
+        }
+        Rf2ReleaseType release = Rf2ReleaseType.of(releaseType)
+                .orElseThrow(() -> new MojoExecutionException("Unknown RF2 release type: " + releaseType));
+        if (release == Rf2ReleaseType.SNAPSHOT) {
+            // Only the versions a Full or Delta holds can be told apart from those of earlier releases
+            throw new MojoExecutionException("A Snapshot holds only the latest version of each component and cannot"
+                    + " be reconciled with the versions of a datastore, reconcile the Full or Delta release instead");
+        }
+        UUID namespace;
+        try {
+            namespace = UUID.fromString(namespaceString);
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException("Invalid namespace for UUID formatting", e);
+        }
+        ForkJoinPool pool = parallelism < 1 ? new ForkJoinPool() : new ForkJoinPool(parallelism);
+        LoadReconciler.Result result;
+        long started = System.nanoTime();
+        initializeDatastore(new File(datastorePath));
+        try (FileSystem archive = FileSystems.newFileSystem(Path.of(inputDirectoryPath))) {
+            Path terminology = release.terminologyFolder(archive.getRootDirectories().iterator().next());
+            List<Path> files;
+            try (Stream<Path> children = Files.list(terminology)) {
+                files = children.filter(file -> file.getFileName().toString().endsWith(".txt")).toList();
+            }
+            result = new LoadReconciler(namespace, pool).reconcile(files, maxReportedMismatches);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to reconcile " + inputDirectoryPath, e);
+        } finally {
+            pool.shutdown();
+            PrimitiveData.stop();
+        }
+        LOG.info(String.format("Reconciled %d file(s) in %d ms", result.files().size(), (System.nanoTime() - started) / 1_000_000));
+        for (LoadReconciler.ComponentResult component : result.components()) {
+            LOG.info(String.format("%s: %s, %d release row(s), %d datastore row(s), %d mismatching bucket(s)",
+                    component.component(), component.matches() ? "match" : "MISMATCH", component.releaseRows(),
+                    component.datastoreRows(), component.mismatchingBuckets()));
+            component.mismatches().forEach(mismatch -> LOG.warn(component.component() + " " + mismatch.label()
+                    + " (" + mismatch.key() + ") is " + mismatch.status()));
+        }
+        writeReport(result);
+        if (failOnMismatch && !result.matches()) {
+            throw new MojoFailureException("Datastore " + datastorePath + " does not match " + inputDirectoryPath
+                    + ", see " + reportPath);
+        }
+    }
+
+    private void initializeDatastore(File datastore) {
+        CachingService.clearAll();
+        ServiceProperties.set(ServiceKeys.DATA_STORE_ROOT, datastore);
+        PrimitiveData.selectControllerByName(controllerName);
+        PrimitiveData.start();
+    }
+
+    private void writeReport(LoadReconciler.Result result) throws MojoExecutionException {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"matches\":").append(result.matches()).append(",\n  \"files\":[");
+        for (int i = 0; i < result.files().size(); i++) {
+            LoadReconciler.FileDigest file = result.files().get(i);
+            json.append(i == 0 ? "\n    " : ",\n    ")
+                    .append("{\"file\":").append(TransformationReport.quote(file.fileName()))
+                    .append(",\"component\":").append(TransformationReport.quote(file.component().name()))
+                    .append(",\"rows\":").append(file.rows())
+                    .append(",\"digest\":").append(TransformationReport.quote(file.digest())).append('}');
+        }
+        json.append("\n  ],\n  \"components\":[");
+        for (int i = 0; i < result.components().size(); i++) {
+            LoadReconciler.ComponentResult component = result.components().get(i);
+            json.append(i == 0 ? "\n    " : ",\n    ")
+                    .append("{\"component\":").append(TransformationReport.quote(component.component().name()))
+                    .append(",\"matches\":").append(component.matches())
+                    .append(",\"releaseRows\":").append(component.releaseRows())
+                    .append(",\"releaseDigest\":").append(TransformationReport.quote(component.releaseDigest()))
+                    .append(",\"datastoreRows\":").append(component.datastoreRows())
+                    .append(",\"datastoreDigest\":").append(TransformationReport.quote(component.datastoreDigest()))
+                    .append(",\"mismatchingBuckets\":").append(component.mismatchingBuckets())
+                    .append(",\"mismatches\":[");
+            for (int j = 0; j < component.mismatches().size(); j++) {
+                LoadReconciler.Mismatch mismatch = component.mismatches().get(j);
+                json.append(j == 0 ? "" : ",")
+                        .append("{\"id\":").append(TransformationReport.quote(mismatch.label()))
+                        .append(",\"uuid\":").append(TransformationReport.quote(mismatch.key().toString()))
+                        .append(",\"status\":").append(TransformationReport.quote(mismatch.status())).append('}');
+            }
+            json.append("]}");
+        }
+        json.append("\n  ]\n}\n");
+        try {
+            Path report = Path.of(reportPath);
+            Files.createDirectories(report.toAbsolutePath().getParent());
+            Files.writeString(report, json);
+            LOG.info("Reconciliation report written to " + report);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to write reconciliation report to " + reportPath, e);
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package dev.ikm.maven;
 
+import dev.ikm.tinkar.common.id.PublicIds;
 import dev.ikm.tinkar.common.service.CachingService;
 import dev.ikm.tinkar.common.service.PrimitiveData;
 import dev.ikm.tinkar.common.service.ServiceKeys;
@@ -31,8 +32,22 @@ import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 
 import java.io.*;
-import java.util.Arrays;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -42,6 +57,10 @@ import java.util.zip.ZipInputStream;
 @Mojo(name = "run-snomed-loinc-transformation", defaultPhase = LifecyclePhase.INSTALL)
 public class SnomedLoincTransformationMojo extends AbstractMojo {
     private static final Logger LOG = LoggerFactory.getLogger(SnomedLoincTransformationMojo.class.getSimpleName());
+    static final String STAGE = "transformation";
+    static final String OUTPUT_DATASTORE = "datastore";
+    static final String OUTPUT_CHANGESET = "changeset";
+    static final String EPHEMERAL_CONTROLLER = "Load Ephemeral Store";
 
     @Parameter(property = "origin.namespace", required = true)
     String namespaceString;
@@ -53,128 +72,513 @@ public class SnomedLoincTransformationMojo extends AbstractMojo {
     private String dataOutputPath;
     @Parameter(property = "controllerName", defaultValue = "Open SpinedArrayStore")
     private String controllerName;
+    @Parameter(property = "parallelism", defaultValue = "0")
+    private int parallelism;
+    @Parameter(property = "failFast", defaultValue = "true")
+    private boolean failFast;
+
+    @Parameter(property = "streamFromArchive", defaultValue = "false")
+    private boolean streamFromArchive;
+    @Parameter(property = "sessionCacheSize", defaultValue = "256")
+    private int sessionCacheSize;
+    /**
+     * Rows composed per file before the open sessions are committed, values below 1 commit only at the end of a file
+     */
+    @Parameter(property = "commitBatchSize", defaultValue = "100000")
+    private int commitBatchSize;
+    /**
+     * Share of the maximum heap above which open sessions are committed before the batch is full
+     */
+    @Parameter(property = "flushHeapThreshold", defaultValue = "0.75")
+    private double flushHeapThreshold;
+    @Parameter(property = "offHeapIdCache", defaultValue = "false")
+    private boolean offHeapIdCache;
+    /**
+     * RF2 distribution to load: Full, Snapshot or Delta. Rows older than the effective time watermark
+     * kept in the datastore are skipped, so Snapshot and Delta releases update an existing datastore.
+     */
+    @Parameter(property = "releaseType", defaultValue = "Full")
+    private String releaseType;
+
+    /**
+     * Record progress after every committed batch, so an interrupted run can resume
+     */
+    @Parameter(property = "checkpoint", defaultValue = "true")
+    private boolean checkpoint;
+    /**
+     * Least seconds between two saves of the datastore and checkpoint, a resumed run repeats at most
+     * the rows of one interval
+     */
+    @Parameter(property = "checkpointSaveSeconds", defaultValue = "300")
+    private int checkpointSaveSeconds;
+    /**
+     * Continue an interrupted run from its last checkpoint, skipping files it completed
+     */
+    @Parameter(property = "resume", defaultValue = "false")
+    private boolean resume;
+
+    /**
+     * JSON report of rows, timings, allocations and GC per transformed file
+     */
+    @Parameter(property = "reportPath", defaultValue = "${project.build.directory}/snomed-loinc-transformation-report.json")
+    private String reportPath;
+    /**
+     * Time and count the allocations of parsing and composing every row for the report, which costs
+     * two clock and two allocation counter reads per row and step
+     */
+    @Parameter(property = "detailedMetrics", defaultValue = "false")
+    private boolean detailedMetrics;
+
+    /**
+     * Directory the concept, identifier and definition files are sorted into when they are not in id
+     * and effective time order
+     */
+    @Parameter(property = "sortDirectory", defaultValue = "${project.build.directory}/rf2-sorted")
+    private String sortDirectory;
+    /**
+     * Rows sorted in memory before they are spilled to a run file
+     */
+    @Parameter(property = "sortRunRows", defaultValue = "500000")
+    private int sortRunRows;
+
+    /**
+     * Keep a binary columnar encoding of every RF2 file read, so later loads of the same release skip
+     * decoding text
+     */
+    @Parameter(property = "rowCache", defaultValue = "false")
+    private boolean rowCache;
+    @Parameter(property = "rowCacheDirectory", defaultValue = "${project.build.directory}/rf2-cache")
+    private String rowCacheDirectory;
+    /**
+     * Megabytes of columnar files kept in the row cache, the least recently used beyond it are deleted
+     */
+    @Parameter(property = "rowCacheMaxMegabytes", defaultValue = "8192")
+    private long rowCacheMaxMegabytes;
+
+    /**
+     * Threads parsing rows ahead of the composing thread of each file, 0 shares the common fork-join pool
+     */
+    @Parameter(property = "parseThreads", defaultValue = "0")
+    private int parseThreads;
+    /**
+     * Parse rows on a virtual thread per chunk instead of a pool of platform threads
+     */
+    @Parameter(property = "virtualThreadParsers", defaultValue = "false")
+    private boolean virtualThreadParsers;
+    /**
+     * Chunks of rows parsed ahead of the composing threads over the whole load, shared out between the
+     * files transformed at once with at least two per file, 0 keeps two per parse thread
+     */
+    @Parameter(property = "parseAheadChunks", defaultValue = "0")
+    private int parseAheadChunks;
+
+    /**
+     * Where the load goes: datastore composes into the datastore at datastorePath, changeset composes
+     * into an in-memory store and writes its entities to changesetPath, leaving datastorePath untouched.
+     * The changeset is not streamed: the in-memory store holds the whole release, so heap grows with it,
+     * and entities are serialized once the load has finished, since later stages still add versions and
+     * semantics to entities composed by earlier ones.
+     */
+    @Parameter(property = "output", defaultValue = OUTPUT_DATASTORE)
+    private String output;
+    @Parameter(property = "changesetPath", defaultValue = "${project.build.directory}/snomed-ct-loinc-changeset-pb.zip")
+    private String changesetPath;
+    /**
+     * Deflate level of the changeset, from 0 to 9
+     */
+    @Parameter(property = "changesetCompressionLevel", defaultValue = "6")
+    private int changesetCompressionLevel;
+    /**
+     * Stop the store once the load has finished. False leaves it started for a caller in the same JVM,
+     * such as integration tests verifying an ephemeral store, which then stops it. Ignored for changeset
+     * output, whose scratch store is always stopped and deleted.
+     */
+    @Parameter(property = "stopDatastore", defaultValue = "true")
+    private boolean stopDatastore;
+    /**
+     * Seconds between progress log lines during the load, 0 turns them off. Progress is published over
+     * JMX either way, see {@link TransformationProgressMXBean}.
+     */
+    @Parameter(property = "progressLogSeconds", defaultValue = "60")
+    private int progressLogSeconds;
+    /**
+     * Directory of the reject files, one per RF2 file that had rows rejected, see {@link RejectSink}
+     */
+    @Parameter(property = "rejectDirectory", defaultValue = "${project.build.directory}/rejects")
+    private String rejectDirectory;
+    /**
+     * Rejected rows tolerated before the load fails, 0 fails on the first one and -1 tolerates any number
+     */
+    @Parameter(property = "rejectBudget", defaultValue = "1000")
+    private long rejectBudget;
+
+    /**
+     * Write a memory mapped index between LOINC codes and concepts, see {@link LoincConceptIndex}
+     */
+    @Parameter(property = "loincIndex", defaultValue = "true")
+    private boolean loincIndex;
+    /**
+     * Location of the LOINC concept index, empty keeps it in the datastore directory
+     */
+    @Parameter(property = "loincIndexPath", defaultValue = "")
+    private String loincIndexPath;
+
+    /**
+     * Skip the transformation when the release zip, plugin, namespace, controller and release type are
+     * those of the last successful run into the datastore, see {@link PipelineStageLedger}
+     */
+    @Parameter(property = "upToDateCheck", defaultValue = "true")
+    private boolean upToDateCheck;
+    @Parameter(defaultValue = "${plugin.version}", readonly = true)
+    private String pluginVersion;
+
+    private Rf2ReleaseType release;
 
     private UUID namespace;
+    private TransformationContext context;
 
     public void execute() throws MojoExecutionException {
+        this.release = Rf2ReleaseType.of(releaseType)
+                .orElseThrow(() -> new MojoExecutionException("Unknown RF2 release type: " + releaseType));
+        if (!OUTPUT_DATASTORE.equalsIgnoreCase(output) && !changesetOutput()) {
+            throw new MojoExecutionException("Unknown output: " + output + ", expected " + OUTPUT_DATASTORE + " or " + OUTPUT_CHANGESET);
+        }
         try {
             this.namespace = UUID.fromString(namespaceString);
-            File datastore = new File(datastorePath);
-            String unzippedData = unzipRawData(inputDirectoryPath);
-            File inputFileOrDirectory = new File(unzippedData);
-            validateInputDirectory(inputFileOrDirectory);
-
-            transformFile(datastore, inputFileOrDirectory);
         } catch (IllegalArgumentException e) {
-            throw new MojoExecutionException("Invalid namespace for UUID formatting");
+            throw new MojoExecutionException("Invalid namespace for UUID formatting", e);
+        }
+        File datastore = null;
+        try {
+            // A changeset load keeps its watermark, checkpoint and ledger in a scratch directory, so every run starts empty
+            datastore = changesetOutput()
+                    ? Files.createTempDirectory("snomed-loinc-changeset-store").toFile()
+                    : new File(datastorePath);
+            PipelineStageLedger ledger = PipelineStageLedger.load(datastore.toPath());
+            Map<String, String> fingerprint = ledger.fingerprint(getClass(), pluginVersion, fingerprintSettings(),
+                    Path.of(inputDirectoryPath));
+            if (upToDateCheck && ledger.isUpToDate(stage(), fingerprint)) {
+                LOG.info("########## Snomed-Loinc transformation is up to date with " + inputDirectoryPath + ", skipping");
+                return;
+            }
+            ledger.starting(stage());
+            EffectiveTimeWatermark watermark = EffectiveTimeWatermark.load(datastore.toPath());
+            if (release == Rf2ReleaseType.DELTA && watermark.isEmpty()) {
+                LOG.warn("Loading a Delta release into a datastore without an effective time watermark");
+            }
+            TransformationCheckpoint progress = checkpoint && !changesetOutput()
+                    ? TransformationCheckpoint.open(datastore.toPath(), runId(), resume, Duration.ofSeconds(checkpointSaveSeconds))
+                    : TransformationCheckpoint.disabled();
+            watermark.restoreSeen(progress.seenEffectiveTimes());
+            this.context = new TransformationContext(sessionCacheSize, commitBatchSize, flushHeapThreshold,
+                    SctIdCache.create(offHeapIdCache), new OwlExpressionRewriter(), watermark, progress,
+                    new TransformationReport(), new Rf2ExternalSorter(Path.of(sortDirectory), sortRunRows),
+                    rowCache ? Rf2ColumnarCache.open(Path.of(rowCacheDirectory), rowCacheMaxMegabytes << 20) : Rf2ColumnarCache.disabled(),
+                    parsers(), RejectSink.open(Path.of(rejectDirectory), rejectBudget),
+                    detailedMetrics);
+            if (streamFromArchive) {
+                // Read the RF2 entries in place through a zip file system, nothing is extracted to disk
+                try (FileSystem archive = FileSystems.newFileSystem(Path.of(inputDirectoryPath))) {
+                    Path inputFileOrDirectory = searchTerminologyFolder(archive.getRootDirectories().iterator().next());
+                    transformFile(datastore, inputFileOrDirectory);
+                }
+            } else {
+                Path inputFileOrDirectory = unzipRawData(inputDirectoryPath);
+                validateInputDirectory(inputFileOrDirectory);
+
+                transformFile(datastore, inputFileOrDirectory);
+            }
+            ledger.completed(stage(), fingerprint);
         } catch (IOException e) {
             throw new RuntimeException(e);
+        } finally {
+            if (changesetOutput() && datastore != null) {
+                deleteScratchStore(datastore.toPath());
+            }
+        }
+    }
+
+    private boolean changesetOutput() {
+        return OUTPUT_CHANGESET.equalsIgnoreCase(output);
+    }
+
+    private static void deleteScratchStore(Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            LOG.warn("Unable to delete scratch store " + directory + ": " + e);
         }
     }
 
-    private String unzipRawData(String zipFilePath) throws IOException {
-        File outputDirectory = new File(dataOutputPath);
-        try(ZipInputStream zis = new ZipInputStream(new FileInputStream(zipFilePath))) {
+    private Rf2RowPipeline parsers() {
+        int threads = parseThreads > 0 ? parseThreads : ForkJoinPool.commonPool().getParallelism();
+        int loadChunks = parseAheadChunks > 0 ? parseAheadChunks : threads * 2;
+        // Each file has its own window, so the load's is split between the files the scheduler runs at once
+        int files = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        int aheadChunks = Math.max(2, loadChunks / files);
+        if (virtualThreadParsers) {
+            return new Rf2RowPipeline(Executors.newVirtualThreadPerTaskExecutor(), aheadChunks);
+        }
+        if (parseThreads > 0) {
+            AtomicInteger threadCount = new AtomicInteger();
+            return new Rf2RowPipeline(Executors.newFixedThreadPool(parseThreads, runnable -> {
+                Thread thread = new Thread(runnable, "snomed-loinc-parser-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }), aheadChunks);
+        }
+        return new Rf2RowPipeline(ForkJoinPool.commonPool(), aheadChunks);
+    }
+
+    /**
+     * @return identity of the input and settings, a checkpoint is only resumed by the same run
+     */
+    private String runId() {
+        return String.join("|", inputDirectoryPath, release.folderName(), namespaceString, controllerName);
+    }
+
+    private Path unzipRawData(String zipFilePath) throws IOException {
+        Path outputDirectory = Path.of(dataOutputPath);
+        if (resume && Files.isDirectory(outputDirectory)) {
+            try {
+                // Extracted by the interrupted run
+                return searchTerminologyFolder(outputDirectory);
+            } catch (FileNotFoundException e) {
+                LOG.info("No extracted release to resume from in " + outputDirectory);
+            }
+        }
+        try(ZipInputStream zis = new ZipInputStream(new BufferedInputStream(new FileInputStream(zipFilePath)))) {
             ZipEntry zipEntry;
             while ((zipEntry = zis.getNextEntry()) != null) {
-                File newFile = new File(outputDirectory, zipEntry.getName());
+                Path newFile = outputDirectory.resolve(zipEntry.getName());
                 if(zipEntry.isDirectory()) {
-                    newFile.mkdirs();
+                    Files.createDirectories(newFile);
                 } else {
-                    new File(newFile.getParent()).mkdirs();
-                    try(FileOutputStream fos = new FileOutputStream(newFile)) {
-                        byte[] buffer = new byte[1024];
-                        int len;
-                        while ((len = zis.read(buffer)) > 0) {
-                            fos.write(buffer,0,len);
-                        }
-                    }
+                    Files.createDirectories(newFile.getParent());
+                    Files.copy(zis, newFile, StandardCopyOption.REPLACE_EXISTING);
                 }
                 zis.closeEntry();
             }
         }
-        File dataFolder = searchTerminologyFolder(outputDirectory);
+        return searchTerminologyFolder(outputDirectory);
+    }
 
-        if (dataFolder != null) {
-            return dataFolder.getAbsolutePath();
-        } else {
-            throw new FileNotFoundException("The data folder could not be found...");
-        }
-    }
-
-    private File searchTerminologyFolder(File dir) {
-        if (dir.isDirectory()){
-            File[] files = dir.listFiles();
-            if (files != null) {
-                for (File file : files) {
-                    if(file.isDirectory() && file.getName().equals("Terminology") &&
-                            file.getParentFile().getName().equals("Full")) {
-                        return file;
-                    }
-                    File found = searchTerminologyFolder(file);
-                    if (found != null) {
-                        return found;
-                    }
-                }
-            }
-        }
-        return null;
+    private Path searchTerminologyFolder(Path root) throws IOException {
+        return release.terminologyFolder(root);
     }
 
-    private void validateInputDirectory(File inputFileOrDirectory) throws MojoExecutionException {
-        if(!inputFileOrDirectory.exists()){
+    private void validateInputDirectory(Path inputFileOrDirectory) throws MojoExecutionException {
+        if(!Files.exists(inputFileOrDirectory)){
             throw new RuntimeException("Invalid input directory or file. Directory or file does not exist");
         }
     }
 
     /**
-     * Transforms each snomed file in a directory based on filename
+     * Transforms each snomed file in a directory based on filename. Independent files are transformed
+     * concurrently, see {@link TransformationScheduler}.
      *
      * @param datastore location of datastore to write entities to
-     * @param inputFileOrDirectory directory containing snomed files
+     * @param inputFileOrDirectory directory containing snomed files, on disk or inside a release archive
+     * @throws MojoExecutionException if any file failed to transform
      */
-    public void transformFile(File datastore, File inputFileOrDirectory){
+    public void transformFile(File datastore, Path inputFileOrDirectory) throws MojoExecutionException {
         LOG.info("########## Snomed-Loinc Transformer Starting...");
+        long started = System.nanoTime();
         initializeDatastore(datastore);
-        EntityService.get().beginLoadPhase();
+        context.report().stageFinished("start-store", System.nanoTime() - started);
         try {
-            Composer composer = new Composer("Snomed Transformer Composer");
-            processFilesFromInput(inputFileOrDirectory, composer);
-            composer.commitAllSessions();
+            beforeLoad(datastore);
+            started = System.nanoTime();
+            List<Path> files = inputFiles(inputFileOrDirectory);
+            EntityService.get().beginLoadPhase();
+            try {
+                try (TransformationProgress progress = TransformationProgress.start(context.report(), context.parsers(),
+                        files, context.checkpoint(), progressLogSeconds, datastore.getName())) {
+                    new TransformationScheduler(parallelism, failFast).run(files, this::processIndividualFile);
+                }
+            } finally {
+                SctIdCache idCache = context.idCache();
+                LOG.info(String.format("SCTID cache held %d identifier(s), hit rate %.1f%% (%d hits, %d misses)",
+                        idCache.size(), idCache.hitRate() * 100, idCache.hits(), idCache.misses()));
+                EntityService.get().endLoadPhase();
+            }
+            context.report().stageFinished(STAGE, System.nanoTime() - started);
+            afterLoad(datastore);
+            if (changesetOutput()) {
+                writeChangeset();
+            } else {
+                writeLoincIndex(datastore, files);
+            }
+            saveWatermark();
+            clearCheckpoint();
         } finally {
-            EntityService.get().endLoadPhase();
-            PrimitiveData.stop();
+            context.rejects().close();
+            writeReport();
+            context.parsers().shutdown();
+            if (stopDatastore || changesetOutput()) {
+                started = System.nanoTime();
+                PrimitiveData.stop();
+                LOG.info(String.format("Stopped the datastore in %.1f s", (System.nanoTime() - started) / 1e9));
+            }
             LOG.info("########## Snomed Transformer Finishing...");
         }
     }
 
+    /**
+     * Called on the started store before the load, the place for stages the load builds on
+     *
+     * @param datastore datastore directory
+     * @throws MojoExecutionException if the stage failed
+     */
+    protected void beforeLoad(File datastore) throws MojoExecutionException {
+    }
+
+    /**
+     * Called on the started store after the load, before the changeset or index is written and the
+     * store is stopped
+     *
+     * @param datastore datastore directory
+     * @throws MojoExecutionException if the stage failed
+     */
+    protected void afterLoad(File datastore) throws MojoExecutionException {
+    }
+
+    /**
+     * @return name the run is recorded under in the {@link PipelineStageLedger}
+     */
+    protected String stage() {
+        return STAGE;
+    }
+
+    /**
+     * @return settings the output of the run depends on, besides plugin and release zip
+     */
+    protected Map<String, String> fingerprintSettings() {
+        Map<String, String> settings = new TreeMap<>();
+        settings.put("namespace", namespaceString);
+        settings.put("controllerName", controllerName);
+        settings.put("releaseType", release.folderName());
+        return settings;
+    }
+
+    /**
+     * @return namespace of the load
+     */
+    protected UUID namespace() {
+        return namespace;
+    }
+
+    /**
+     * @return report of the run, which also records the time of every stage
+     */
+    protected TransformationReport report() {
+        return context.report();
+    }
+
+    private void saveWatermark() throws MojoExecutionException {
+        try {
+            context.watermark().save();
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to save the effective time watermark", e);
+        }
+    }
+
+    private void writeReport() {
+        try {
+            context.report().write(Path.of(reportPath), context.idCache());
+        } catch (IOException e) {
+            // The report is diagnostic only, it never fails the load
+            LOG.warn("Unable to write transformation report to " + reportPath + ": " + e);
+        }
+    }
+
+    private void clearCheckpoint() throws MojoExecutionException {
+        try {
+            context.checkpoint().clear();
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to remove the transformation checkpoint", e);
+        }
+    }
+
     private void initializeDatastore(File datastore){
         CachingService.clearAll();
         ServiceProperties.set(ServiceKeys.DATA_STORE_ROOT, datastore);
-        PrimitiveData.selectControllerByName(controllerName);
+        PrimitiveData.selectControllerByName(changesetOutput() ? EPHEMERAL_CONTROLLER : controllerName);
         PrimitiveData.start();
     }
 
-    private void processFilesFromInput(File inputFileOrDirectory, Composer composer){
-        if(inputFileOrDirectory.isDirectory()){
-            Arrays.stream(inputFileOrDirectory.listFiles())
-                    .filter(file -> file.getName().endsWith(".txt"))
-                    .forEach(file -> processIndividualFile(file, composer));
-        } else if (inputFileOrDirectory.isFile() && inputFileOrDirectory.getName().endsWith(".txt")) {
-            processIndividualFile(inputFileOrDirectory, composer);
+    private List<Path> inputFiles(Path inputFileOrDirectory) throws MojoExecutionException {
+        List<Path> files = new ArrayList<>();
+        if(Files.isDirectory(inputFileOrDirectory)){
+            try (Stream<Path> children = Files.list(inputFileOrDirectory)) {
+                children.filter(file -> file.getFileName().toString().endsWith(".txt"))
+                        .forEach(files::add);
+            } catch (IOException e) {
+                throw new MojoExecutionException("Unable to list " + inputFileOrDirectory, e);
+            }
+        } else if (Files.isRegularFile(inputFileOrDirectory) && inputFileOrDirectory.getFileName().toString().endsWith(".txt")) {
+            files.add(inputFileOrDirectory);
         }
+        return files;
     }
 
-    private void processIndividualFile(File file, Composer composer) {
-        String fileName = file.getName();
+    private void writeChangeset() throws MojoExecutionException {
+        try {
+            new ChangesetWriter(context.parsers(), changesetCompressionLevel).write(Path.of(changesetPath));
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to write the changeset " + changesetPath, e);
+        }
+    }
+
+    /**
+     * Indexes the LOINC codes of the identifier files, while the datastore is still open to give the
+     * nids of their concepts
+     */
+    private void writeLoincIndex(File datastore, List<Path> files) throws MojoExecutionException {
+        if (!loincIndex) {
+            return;
+        }
+        Path indexFile = loincIndexPath.isBlank() ? LoincConceptIndex.of(datastore.toPath()) : Path.of(loincIndexPath);
+        try {
+            LoincConceptIndexWriter writer = LoincConceptIndexWriter.load(indexFile);
+            for (Path file : files) {
+                if (Rf2FileType.of(file.getFileName().toString()).orElse(null) == Rf2FileType.IDENTIFIER) {
+                    writer.add(file);
+                }
+            }
+            writer.write(indexFile, this::nidOfConcept);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to write the LOINC concept index " + indexFile, e);
+        }
+    }
+
+    private int nidOfConcept(long sctid) {
+        // Asking a proxy for its nid assigns one, so a concept missing from the store is looked up first
+        if (!PrimitiveData.get().hasPublicId(PublicIds.of(SnomedLoincUtility.fromSnomed(sctid)))) {
+            return LoincConceptIndex.NO_NID;
+        }
+        return context.idCache().concept(sctid).nid();
+    }
+
+    /**
+     * Transforms a single file with its own composer, so files running concurrently never share sessions
+     *
+     * @param file RF2 file to transform
+     */
+    private void processIndividualFile(Path file) {
+        String fileName = file.getFileName().toString();
         Transformer transformer = getTransformer(fileName);
 
-        if (transformer != null) {
+        if (context.checkpoint().isComplete(fileName)) {
+            LOG.info("### Skipping file completed before the checkpoint : " + fileName);
+        } else if (transformer != null) {
             LOG.info("### Transformer Starting for file: " + fileName);
+            Composer composer = new Composer("Snomed Transformer Composer: " + fileName);
             transformer.transform(file, composer);
+            composer.commitAllSessions();
             LOG.info("### Transformer Finishing for file : " + fileName);
         } else {
-            LOG.info("This file cannot be processed at the moment : " + file.getName());
+            LOG.info("This file cannot be processed at the moment : " + fileName);
         }
     }
 
@@ -184,20 +588,9 @@ public class SnomedLoincTransformationMojo extends AbstractMojo {
      * @param fileName File for Transformer match
      */
     private Transformer getTransformer(String fileName) {
-        if(fileName.contains("Concept")){
-            return new ConceptTransformer(namespace);
-        } else if(fileName.contains("Definition")){
-            return new DefinitionTransformer(namespace);
-        } else if(fileName.contains("Description")){
-            return new DescriptionTransformer(namespace);
-        } else if(fileName.contains("Language")){
-            return new LanguageTransformer(namespace);
-        } else if(fileName.contains("Identifier")){
-            return new IdentifierTransformer(namespace);
-        } else if(fileName.contains("OWLExpression")){
-            return new AxiomSyntaxTransformer(namespace);
-        }
-        return null;
+        return Rf2FileType.of(fileName)
+                .map(type -> type.newTransformer(namespace, context))
+                .orElse(null);
     }
 
 }
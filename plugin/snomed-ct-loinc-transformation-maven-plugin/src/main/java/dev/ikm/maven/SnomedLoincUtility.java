@@ -26,15 +26,18 @@ import org.slf4j.LoggerFactory;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.*;
-import java.util.regex.MatchResult;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 
 public class SnomedLoincUtility {
 
     private static final Logger LOG = LoggerFactory.getLogger(SnomedLoincUtility .class.getSimpleName());
+    // Attached to every concept row, so derived once instead of per row
+    private static final Concept SNOMED_IDENTIFIER_CONCEPT = Concept.make(PublicIds.of(UuidUtil.fromSNOMED("900000000000294009")));
+    private static final OwlExpressionRewriter OWL_EXPRESSION_REWRITER = new OwlExpressionRewriter();
+    private static final Concept SNOMED_LOINC_IDENTIFIER_CONCEPT = Concept.make(PublicIds.of(UuidUtil.fromSNOMED("11010000107")));
 
 
     /**
@@ -52,6 +55,18 @@ public class SnomedLoincUtility {
         return epochTime;
     }
 
+    /**
+     * taking an effectiveTime already parsed from yyyyMMdd and making it an epoch
+     * @param effectiveTime date as the int yyyyMMdd
+     * @return long value of epochTime, identical to {@link #snomedTimestampToEpochSeconds(String)}
+     */
+    public static long snomedTimestampToEpochSeconds(int effectiveTime) {
+        return LocalDate.of(effectiveTime / 10000, effectiveTime / 100 % 100, effectiveTime % 100)
+                .atStartOfDay(ZoneId.systemDefault())
+                .toInstant()
+                .toEpochMilli();
+    }
+
     /**
      * transforms languageCode in concept
      * @param languageCode String representation of english or spanish
@@ -62,7 +77,8 @@ public class SnomedLoincUtility {
         switch (languageCode) {
             case "en" -> languageConcept = TinkarTerm.ENGLISH_LANGUAGE;
             case "es" -> languageConcept = TinkarTerm.SPANISH_LANGUAGE;
-            default -> throw new RuntimeException("UNRECOGNIZED LANGUAGE CODE");
+            default -> throw new Rf2RowRejectedException(RejectSink.Reason.UNRECOGNIZED_LANGUAGE_CODE,
+                    "UNRECOGNIZED LANGUAGE CODE " + languageCode);
         }
         return languageConcept;
     }
@@ -73,14 +89,24 @@ public class SnomedLoincUtility {
      * @return case sensitivity concept
      */
     public static Concept getDescriptionCaseSignificanceConcept(String caseSensitivityCode){
-        Concept caseSensitivityConcept = null;
-        switch (caseSensitivityCode) {
-            case "900000000000448009" -> caseSensitivityConcept = TinkarTerm.DESCRIPTION_NOT_CASE_SENSITIVE;
-            case "900000000000017005" -> caseSensitivityConcept = TinkarTerm.DESCRIPTION_CASE_SENSITIVE;
-            case "900000000000020002" -> caseSensitivityConcept = TinkarTerm.DESCRIPTION_INITIAL_CHARACTER_CASE_SENSITIVE;
-            default -> throw new RuntimeException("UNRECOGNIZED CASE SENSITIVITY CODE");
+        return getDescriptionCaseSignificanceConcept(parseCode(caseSensitivityCode));
+    }
+
+    /**
+     * transforms caseSensitivity code into concept
+     * @param caseSensitivityCode SCTID of the case sensitivity of a description
+     * @return case sensitivity concept
+     */
+    public static Concept getDescriptionCaseSignificanceConcept(long caseSensitivityCode){
+        if (caseSensitivityCode == 900000000000448009L) {
+            return TinkarTerm.DESCRIPTION_NOT_CASE_SENSITIVE;
+        } else if (caseSensitivityCode == 900000000000017005L) {
+            return TinkarTerm.DESCRIPTION_CASE_SENSITIVE;
+        } else if (caseSensitivityCode == 900000000000020002L) {
+            return TinkarTerm.DESCRIPTION_INITIAL_CHARACTER_CASE_SENSITIVE;
         }
-        return caseSensitivityConcept;
+        throw new Rf2RowRejectedException(RejectSink.Reason.UNRECOGNIZED_CASE_SIGNIFICANCE,
+                "UNRECOGNIZED CASE SENSITIVITY CODE " + caseSensitivityCode);
     }
 
     /**
@@ -89,14 +115,24 @@ public class SnomedLoincUtility {
      * @return description type concept
      */
      public static Concept getDescriptionType(String descriptionTypeCode){
-        Concept descriptionTypeConcept = null;
-        switch (descriptionTypeCode) {
-            case "900000000000550004" -> descriptionTypeConcept = TinkarTerm.DEFINITION_DESCRIPTION_TYPE;
-            case "900000000000003001" -> descriptionTypeConcept = TinkarTerm.FULLY_QUALIFIED_NAME_DESCRIPTION_TYPE;
-            case "900000000000013009" -> descriptionTypeConcept = TinkarTerm.REGULAR_NAME_DESCRIPTION_TYPE;
-            default -> throw new RuntimeException("UNRECOGNIZED DESCRIPTION TYPE CODE");
+        return getDescriptionType(parseCode(descriptionTypeCode));
+    }
+
+    /**
+     * transform descriptionType into concept
+     * @param descriptionTypeCode SCTID of the type of descriptions
+     * @return description type concept
+     */
+    public static Concept getDescriptionType(long descriptionTypeCode){
+        if (descriptionTypeCode == 900000000000550004L) {
+            return TinkarTerm.DEFINITION_DESCRIPTION_TYPE;
+        } else if (descriptionTypeCode == 900000000000003001L) {
+            return TinkarTerm.FULLY_QUALIFIED_NAME_DESCRIPTION_TYPE;
+        } else if (descriptionTypeCode == 900000000000013009L) {
+            return TinkarTerm.REGULAR_NAME_DESCRIPTION_TYPE;
         }
-        return descriptionTypeConcept;
+        throw new Rf2RowRejectedException(RejectSink.Reason.UNRECOGNIZED_DESCRIPTION_TYPE,
+                "UNRECOGNIZED DESCRIPTION TYPE CODE " + descriptionTypeCode);
     }
 
     /**
@@ -105,13 +141,22 @@ public class SnomedLoincUtility {
      * @return dialect pattern
      */
     public static EntityProxy.Pattern getDialectPattern(String dialectRefsetId) {
-        EntityProxy.Pattern dialectPattern = null;
-        switch (dialectRefsetId) {
-            case "900000000000509007" -> dialectPattern = TinkarTerm.US_DIALECT_PATTERN;
-            case "900000000000508004" -> dialectPattern = TinkarTerm.GB_DIALECT_PATTERN;
-            default -> throw new RuntimeException("UNRECOGNIZED ACCEPTABILITY CODE");
+        return getDialectPattern(parseCode(dialectRefsetId));
+    }
+
+    /**
+     * assigns dialect pattern to TinkarTerm depending on dialectRefSetId
+     * @param dialectRefsetId SCTID of the GB or US dialect refset
+     * @return dialect pattern
+     */
+    public static EntityProxy.Pattern getDialectPattern(long dialectRefsetId) {
+        if (dialectRefsetId == 900000000000509007L) {
+            return TinkarTerm.US_DIALECT_PATTERN;
+        } else if (dialectRefsetId == 900000000000508004L) {
+            return TinkarTerm.GB_DIALECT_PATTERN;
         }
-        return dialectPattern;
+        throw new Rf2RowRejectedException(RejectSink.Reason.UNRECOGNIZED_DIALECT_REFSET,
+                "UNRECOGNIZED DIALECT REFSET " + dialectRefsetId);
     }
 
     /**
@@ -120,13 +165,60 @@ public class SnomedLoincUtility {
      * @return acceptability concept
      */
     public static Concept getDialectAccceptability(String acceptabilityCode){
-        Concept acceptabilityConcept = null;
-        switch (acceptabilityCode) {
-            case "900000000000548007" -> acceptabilityConcept = TinkarTerm.PREFERRED;
-            case "900000000000549004" -> acceptabilityConcept = TinkarTerm.ACCEPTABLE;
-            default -> throw new RuntimeException("UNRECOGNIZED ACCEPTABILITY CODE");
+        return getDialectAccceptability(parseCode(acceptabilityCode));
+    }
+
+    /**
+     * assigns acceptability code to TinkarTerm based on acceptabilityCode
+     * @param acceptabilityCode SCTID of preferred or acceptable
+     * @return acceptability concept
+     */
+    public static Concept getDialectAccceptability(long acceptabilityCode){
+        if (acceptabilityCode == 900000000000548007L) {
+            return TinkarTerm.PREFERRED;
+        } else if (acceptabilityCode == 900000000000549004L) {
+            return TinkarTerm.ACCEPTABLE;
         }
-        return acceptabilityConcept;
+        throw new Rf2RowRejectedException(RejectSink.Reason.UNRECOGNIZED_ACCEPTABILITY,
+                "UNRECOGNIZED ACCEPTABILITY CODE " + acceptabilityCode);
+    }
+
+    private static long parseCode(String code) {
+        try {
+            return Long.parseLong(code);
+        } catch (NumberFormatException e) {
+            // Falls through to the UNRECOGNIZED branch of the lookup
+            return -1;
+        }
+    }
+
+    /**
+     * creates the UUID of a snomed identifier
+     * @param sctid snomed identifier
+     * @return UUID derived from the identifier
+     */
+    public static UUID fromSnomed(long sctid) {
+        return UuidUtil.fromSNOMED(Long.toString(sctid));
+    }
+
+    /**
+     * retrieves the concept of a snomed identifier through the load's id cache
+     * @param idCache cache of identifiers seen during the load
+     * @param sctid snomed identifier
+     * @return concept proxy for the identifier
+     */
+    public static Concept getConcept(SctIdCache idCache, long sctid) {
+        return idCache.concept(sctid);
+    }
+
+    /**
+     * retrieves the semantic of a snomed identifier through the load's id cache
+     * @param idCache cache of identifiers seen during the load
+     * @param sctid snomed identifier
+     * @return semantic proxy for the identifier
+     */
+    public static EntityProxy.Semantic getSemantic(SctIdCache idCache, long sctid) {
+        return idCache.semantic(sctid);
     }
 
     /**
@@ -151,63 +243,21 @@ public class SnomedLoincUtility {
      * @return snomedIntId from Concept class
      */
     public static Concept getIdentifierConcept(){
-        Concept snomedIntID = Concept.make(PublicIds.of(UuidUtil.fromSNOMED("900000000000294009")));
-        return snomedIntID;
+        return SNOMED_IDENTIFIER_CONCEPT;
     }
 
     public static Concept getSnomedLoincIdentifierConcept(){
-        Concept snomedIntID = Concept.make(PublicIds.of(UuidUtil.fromSNOMED("11010000107")));
-        return snomedIntID;
-    }
-
-
-    private static Pattern getIdPattern() {
-        // Expecting a Snomed OR Loinc identifier following a colon as shown below
-        // :609096000 OR :40316-2
-        // Pattern of at least one numeric and/or dash character after colon
-        return Pattern.compile("(?<=:)([0-9-]+)");
-    }
-
-    private static String idToPublicId(MatchResult id) {
-        String idString = id.group();
-        String publicIdString;
-        if (idString.contains("-")) {
-            // TODO: Determine namespace to use if this is a Loinc identifier
-            idString = "org.loinc." + idString;
-            publicIdString = PublicIds.of(UUID.nameUUIDFromBytes(idString.getBytes())).toString();
-        } else {
-            publicIdString = PublicIds.of(UuidUtil.fromSNOMED(idString)).toString();
-        }
-        return publicIdString.replaceAll("\"", "");
-    }
-
-    private static Pattern getUrlPattern() {
-        // Expecting URL formatted as shown below
-        // <http://www.w3.org/2002/07/owl#>
-        // Pattern of characters between less-than and greater-than characters
-        return Pattern.compile("<[^>]+>");
+        return SNOMED_LOINC_IDENTIFIER_CONCEPT;
     }
 
-    private static String urlToPublicId(MatchResult id) {
-        String urlString = id.group();
-        // remove beginning less-than character and ending greater-than character
-        String idString = urlString.substring(1, urlString.length()-1);
-        // Generate UUID from URL bytes
-        String publicIdString = PublicIds.of(UUID.nameUUIDFromBytes(idString.getBytes())).toString();
-        return publicIdString.replaceAll("\"", "");
-    }
 
+    /**
+     * replaces the snomed and loinc identifiers and URLs of an OWL expression with public ids
+     * @param owlExpression OWL expression of an axiom
+     * @return expression with public ids, see {@link OwlExpressionRewriter}
+     */
     public static String owlAxiomIdsToPublicIds(String owlExpression) {
-        String publicIdOwlExpression = owlExpression;
-        // Replace URLs with a UUID representation
-        if (owlExpression.contains("<") & owlExpression.contains(">")) {
-            Matcher urlMatcher = getUrlPattern().matcher(publicIdOwlExpression);
-            publicIdOwlExpression = urlMatcher.replaceAll(SnomedLoincUtility::urlToPublicId);
-        }
-        // Replace Snomed identifiers with a UUID representation
-        Matcher idMatcher = getIdPattern().matcher(publicIdOwlExpression);
-        publicIdOwlExpression = idMatcher.replaceAll(SnomedLoincUtility::idToPublicId);
-        return publicIdOwlExpression;
+        return OWL_EXPRESSION_REWRITER.rewrite(owlExpression);
     }
 
 }
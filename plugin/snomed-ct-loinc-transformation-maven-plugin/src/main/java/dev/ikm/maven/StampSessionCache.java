@@ -0,0 +1,193 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+import dev.ikm.tinkar.composer.Composer;
+import dev.ikm.tinkar.composer.Session;
+import dev.ikm.tinkar.terms.EntityProxy;
+import dev.ikm.tinkar.terms.State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shares one composer session between all rows of a file that have the same STAMP. Author and path
+ * are fixed for a transformer, so sessions are keyed by status, time and module. The cache holds at
+ * most maxSize open sessions; the least recently used session is committed when it is evicted.
+ * Every open session is committed once a batch of rows has been composed, or earlier when heap usage
+ * crosses a threshold, so memory held by uncommitted sessions stays bounded whatever the file size.
+ * Not thread safe, a cache belongs to the single thread composing a file.
+ */
+public class StampSessionCache {
+    private static final Logger LOG = LoggerFactory.getLogger(StampSessionCache.class.getSimpleName());
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+    // Reading heap usage is cheap but not free, so it is only sampled every few rows
+    private static final int HEAP_CHECK_INTERVAL = 1 << 12;
+
+    private final Composer composer;
+    private final EntityProxy.Concept author;
+    private final EntityProxy.Concept path;
+    private final LinkedHashMap<StampKey, Session> sessions;
+    private final int batchSize;
+    private final double heapThreshold;
+    private int rowsSinceCommit;
+    private long batches;
+    private Runnable batchListener = () -> {
+    };
+    private TransformerMetrics metrics;
+
+    private record StampKey(State status, long time, long moduleId) {
+    }
+
+    /**
+     * @param composer composer opening and committing the sessions
+     * @param author   author of every session
+     * @param path     path of every session
+     * @param maxSize  maximum number of open sessions
+     * @param batchSize     rows composed before every open session is committed, values below 1 disable batching
+     * @param heapThreshold share of the maximum heap above which open sessions are committed early,
+     *                      values of 1 or more disable the check
+     */
+    public StampSessionCache(Composer composer, EntityProxy.Concept author, EntityProxy.Concept path, int maxSize,
+                             int batchSize, double heapThreshold) {
+        this.composer = composer;
+        this.batchSize = batchSize;
+        this.heapThreshold = heapThreshold;
+        this.author = author;
+        this.path = path;
+        this.sessions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<StampKey, Session> eldest) {
+                if (size() > maxSize) {
+                    commit(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the open session for a STAMP, opening one if needed
+     *
+     * @param status   state of the row
+     * @param time     epoch time of the row
+     * @param moduleId SCTID of the module, used as key
+     * @param module   module concept
+     * @return session for the STAMP
+     */
+    public Session open(State status, long time, long moduleId, EntityProxy.Concept module) {
+        return sessions.computeIfAbsent(new StampKey(status, time, moduleId),
+                key -> composer.open(status, time, author, module, path));
+    }
+
+    /**
+     * Records that a row was composed into an open session, committing the batch when it is full or
+     * the heap is running short
+     */
+    public void rowComposed() {
+        rowsSinceCommit++;
+        if (batchSize > 0 && rowsSinceCommit >= batchSize) {
+            commitAll();
+        } else if (rowsSinceCommit % HEAP_CHECK_INTERVAL == 0 && heapAboveThreshold()) {
+            LOG.debug("Heap above " + heapThreshold + " of maximum, committing " + sessions.size()
+                    + " session(s) after " + rowsSinceCommit + " row(s)");
+            commitAll();
+        }
+    }
+
+    private boolean heapAboveThreshold() {
+        if (heapThreshold >= 1) {
+            return false;
+        }
+        MemoryUsage heap = MEMORY.getHeapMemoryUsage();
+        return heap.getMax() > 0 && heap.getUsed() > heap.getMax() * heapThreshold;
+    }
+
+    /**
+     * @param metrics metrics of the file that receive commit times and allocations
+     */
+    public void recordCommitsIn(TransformerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    private void commit(Session session) {
+        if (metrics == null) {
+            composer.commitSession(session);
+            return;
+        }
+        long allocatedBefore = TransformerMetrics.allocatedBytes();
+        long before = System.nanoTime();
+        composer.commitSession(session);
+        metrics.commitNanos.add(System.nanoTime() - before);
+        metrics.commitAllocatedBytes.add(TransformerMetrics.allocatedBytes() - allocatedBefore);
+    }
+
+    /**
+     * @param listener called after every batch of rows has been committed
+     */
+    public void onBatchCommitted(Runnable listener) {
+        this.batchListener = listener;
+    }
+
+    /**
+     * @return number of times open sessions were committed as a batch
+     */
+    public long batches() {
+        return batches;
+    }
+
+    /**
+     * @return number of sessions currently open
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Commits and forgets every open session
+     */
+    public void commitAll() {
+        int rows = rowsSinceCommit;
+        Rf2BatchCommitEvent event = new Rf2BatchCommitEvent();
+        event.begin();
+        long allocatedBefore = TransformerMetrics.allocatedBytes();
+        int committed = sessions.size();
+        sessions.values().forEach(this::commit);
+        sessions.clear();
+        rowsSinceCommit = 0;
+        if (rows > 0) {
+            batches++;
+            if (metrics != null) {
+                metrics.batches.increment();
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.fileName = metrics == null ? null : metrics.fileName();
+                event.rows = rows;
+                event.sessions = committed;
+                event.allocatedBytes = TransformerMetrics.allocatedBytes() - allocatedBefore;
+                event.commit();
+            }
+            batchListener.run();
+        }
+    }
+}
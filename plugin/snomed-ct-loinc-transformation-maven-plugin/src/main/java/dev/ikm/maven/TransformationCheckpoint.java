@@ -0,0 +1,269 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+import dev.ikm.tinkar.common.service.PrimitiveData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Progress of a transformation, persisted next to the datastore so an interrupted run can resume.
+ * Committed batches record, per RF2 file, the byte offset just past the last committed row and the id
+ * of that row; completed files are marked as such. At most once per save interval the datastore is
+ * saved and these records are written, so a resumed run repeats at most the rows of one interval. The
+ * checkpoint also carries the effective times seen so far, so the watermark saved by a resumed run
+ * still covers the rows loaded before the interruption.
+ * <p>
+ * Files are transformed in parallel and sessions are also committed between batches, so the store
+ * only matches the recorded offsets while no file is inside a batch. Every file being transformed
+ * holds a barrier that it only lets go of at its batch boundaries; a save waits until all files have
+ * let go, and they wait for the save before composing their next batch.
+ */
+public class TransformationCheckpoint {
+    private static final Logger LOG = LoggerFactory.getLogger(TransformationCheckpoint.class.getSimpleName());
+    static final String FILE_NAME = "transformation-checkpoint.properties";
+    private static final String RUN_KEY = "run";
+    private static final String OFFSET_SUFFIX = ".offset";
+    private static final String LAST_ROW_ID_SUFFIX = ".lastRowId";
+    private static final String COMPLETE_SUFFIX = ".complete";
+    private static final String WATERMARK_PREFIX = "watermark.";
+
+    private final Path file;
+    private final boolean enabled;
+    private final Properties properties;
+    private final long saveIntervalNanos;
+    private final ReentrantReadWriteLock barrier = new ReentrantReadWriteLock(true);
+    private long lastSave = System.nanoTime();
+    private boolean saveRequested;
+
+    private TransformationCheckpoint(Path file, boolean enabled, Properties properties, Duration saveInterval) {
+        this.file = file;
+        this.enabled = enabled;
+        this.properties = properties;
+        this.saveIntervalNanos = saveInterval.toNanos();
+    }
+
+    /**
+     * @return checkpoint that records nothing and resumes nothing
+     */
+    public static TransformationCheckpoint disabled() {
+        return new TransformationCheckpoint(null, false, new Properties(), Duration.ZERO);
+    }
+
+    /**
+     * Opens the checkpoint of a datastore
+     *
+     * @param datastore    datastore directory
+     * @param run          identifies the input and settings of the run, a checkpoint of another run is not resumed
+     * @param resume       continue from an existing checkpoint instead of starting over
+     * @param saveInterval least time between two saves of the datastore and checkpoint
+     * @return checkpoint to record progress in
+     * @throws IOException if an existing checkpoint cannot be read or removed
+     */
+    public static TransformationCheckpoint open(Path datastore, String run, boolean resume, Duration saveInterval) throws IOException {
+        Path file = datastore.resolve(FILE_NAME);
+        Properties properties = new Properties();
+        if (resume && Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file)) {
+                properties.load(reader);
+            }
+            if (run.equals(properties.getProperty(RUN_KEY))) {
+                LOG.info("Resuming from checkpoint " + file);
+            } else {
+                LOG.warn("Checkpoint " + file + " belongs to another run, starting over");
+                properties.clear();
+            }
+        } else {
+            Files.deleteIfExists(file);
+        }
+        properties.setProperty(RUN_KEY, run);
+        return new TransformationCheckpoint(file, true, properties, saveInterval);
+    }
+
+    /**
+     * @return true if progress is recorded
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param fileName RF2 file name
+     * @return true if an earlier attempt transformed the whole file
+     */
+    public synchronized boolean isComplete(String fileName) {
+        return Boolean.parseBoolean(properties.getProperty(fileName + COMPLETE_SUFFIX));
+    }
+
+    /**
+     * @param fileName RF2 file name
+     * @return offset to resume the file from, 0 to start after its header
+     */
+    public synchronized long resumeOffset(String fileName) {
+        return Long.parseLong(properties.getProperty(fileName + OFFSET_SUFFIX, "0"));
+    }
+
+    /**
+     * @param fileName RF2 file name
+     * @return id of the last row an earlier attempt committed, null if there is none
+     */
+    public synchronized String lastRowId(String fileName) {
+        return properties.getProperty(fileName + LAST_ROW_ID_SUFFIX);
+    }
+
+    /**
+     * Enters the save barrier before the first row of a file is composed. Must be followed by
+     * {@link #endFile()} on the same thread.
+     */
+    public void beginFile() {
+        if (enabled) {
+            barrier.readLock().lock();
+        }
+    }
+
+    /**
+     * Leaves the save barrier once a file is committed or has failed
+     */
+    public void endFile() {
+        if (enabled) {
+            barrier.readLock().unlock();
+        }
+    }
+
+    /**
+     * Effective times recorded by an earlier attempt of this run
+     *
+     * @return latest effectiveTime per module SCTID
+     */
+    public synchronized Map<Long, Integer> seenEffectiveTimes() {
+        Map<Long, Integer> seen = new HashMap<>();
+        properties.stringPropertyNames().stream()
+                .filter(key -> key.startsWith(WATERMARK_PREFIX))
+                .forEach(key -> seen.put(Long.parseLong(key.substring(WATERMARK_PREFIX.length())),
+                        Integer.parseInt(properties.getProperty(key))));
+        return seen;
+    }
+
+    /**
+     * Records that every row of a file up to an offset is committed, and saves the datastore and
+     * checkpoint once the save interval has passed. Called at a batch boundary of the file, where it
+     * lets go of the barrier while a save is pending; the first file to find the save due takes it
+     * once every other file has reached a boundary as well.
+     *
+     * @param fileName  RF2 file name
+     * @param offset    offset just past the last committed row
+     * @param lastRowId id of the last committed row
+     * @param watermark watermark collecting the effective times of the load
+     */
+    public void batchCommitted(String fileName, long offset, String lastRowId, EffectiveTimeWatermark watermark) {
+        if (!enabled) {
+            return;
+        }
+        boolean saver;
+        synchronized (this) {
+            properties.setProperty(fileName + OFFSET_SUFFIX, Long.toString(offset));
+            if (lastRowId != null) {
+                properties.setProperty(fileName + LAST_ROW_ID_SUFFIX, lastRowId);
+            }
+            if (!saveRequested && System.nanoTime() - lastSave < saveIntervalNanos) {
+                return;
+            }
+            saver = !saveRequested;
+            saveRequested = true;
+        }
+        barrier.readLock().unlock();
+        try {
+            if (saver) {
+                save(watermark);
+            }
+        } finally {
+            // Waits behind a pending save, the barrier is fair
+            barrier.readLock().lock();
+        }
+    }
+
+    private void save(EffectiveTimeWatermark watermark) {
+        barrier.writeLock().lock();
+        try {
+            Properties snapshot;
+            synchronized (this) {
+                watermark.seen().forEach((module, effectiveTime) ->
+                        properties.setProperty(WATERMARK_PREFIX + module, effectiveTime.toString()));
+                snapshot = (Properties) properties.clone();
+            }
+            // No file is inside a batch, every committed row is recorded and no other row is committed
+            PrimitiveData.save();
+            write(snapshot);
+        } finally {
+            synchronized (this) {
+                saveRequested = false;
+                lastSave = System.nanoTime();
+            }
+            barrier.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Records that a file is fully committed. Written with the next save, until then a resumed run
+     * continues the file from its last saved offset.
+     *
+     * @param fileName RF2 file name
+     */
+    public synchronized void fileCompleted(String fileName) {
+        if (enabled) {
+            properties.setProperty(fileName + COMPLETE_SUFFIX, Boolean.TRUE.toString());
+        }
+    }
+
+    /**
+     * Removes the checkpoint once the whole load succeeded
+     *
+     * @throws IOException if the checkpoint cannot be removed
+     */
+    public synchronized void clear() throws IOException {
+        if (enabled) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private void write(Properties snapshot) {
+        try {
+            Files.createDirectories(file.getParent());
+            // Write next to the target and move, a crash never leaves a truncated checkpoint behind
+            Path temporary = file.resolveSibling(FILE_NAME + ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temporary)) {
+                snapshot.store(writer, "Snomed Loinc transformation checkpoint, written " + Instant.now());
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write checkpoint " + file, e);
+        }
+    }
+}
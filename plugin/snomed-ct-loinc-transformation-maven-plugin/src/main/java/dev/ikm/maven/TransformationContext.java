@@ -0,0 +1,41 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+/**
+ * Settings and services shared by every transformer of a single load
+ *
+ * @param sessionCacheSize maximum number of open STAMP sessions per file, see {@link StampSessionCache}
+ * @param commitBatchSize  rows composed per file before open sessions are committed
+ * @param flushHeapThreshold share of the maximum heap above which open sessions are committed early
+ * @param idCache          SCTID to UUID and proxy cache shared by every file of the load
+ * @param owlExpressionRewriter rewriter of OWL axiom identifiers, memoizing public ids for the load
+ * @param watermark        effective times already loaded into the datastore, older rows are skipped
+ * @param checkpoint       progress of the load, recorded after every committed batch
+ * @param report           metrics of every file of the load
+ * @param sorter           sorts the files whose transformers group the versions of a component
+ * @param rowCache         binary columnar encoding of files read by previous loads
+ * @param parsers          parses rows ahead of the thread composing them, shared by every file
+ * @param rejects          quarantine of rows that cannot be transformed, with the error budget of the load
+ * @param detailedMetrics  time and count the allocations of parsing and composing every row
+ */
+public record TransformationContext(int sessionCacheSize, int commitBatchSize, double flushHeapThreshold,
+                                    SctIdCache idCache, OwlExpressionRewriter owlExpressionRewriter,
+                                    EffectiveTimeWatermark watermark, TransformationCheckpoint checkpoint,
+                                    TransformationReport report, Rf2ExternalSorter sorter,
+                                    Rf2ColumnarCache rowCache, Rf2RowPipeline parsers, RejectSink rejects,
+                                    boolean detailedMetrics) {
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the live progress of a load as a {@link TransformationProgressMXBean}, read from the
+ * {@link TransformerMetrics} of the files in the {@link TransformationReport} and the queue of the
+ * {@link Rf2RowPipeline}. A daemon thread samples the current row rate every few seconds and, when a
+ * log interval is set, logs a progress line with the ETA and warns while no row has been composed
+ * for a whole interval. The bean is registered for the duration of the load only.
+ */
+public class TransformationProgress implements TransformationProgressMXBean, AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(TransformationProgress.class.getSimpleName());
+    static final String DOMAIN = "dev.ikm.maven";
+    private static final int SAMPLE_SECONDS = 5;
+
+    private final TransformationReport report;
+    private final Rf2RowPipeline parsers;
+    private final int filesTotal;
+    private final long bytesTotal;
+    private final long startNanos = System.nanoTime();
+    private final ScheduledExecutorService sampler;
+    private ObjectName name;
+    // Written by the sampler thread only
+    private volatile double rowsPerSecond;
+    private volatile long lastProgressNanos = startNanos;
+    private long sampledRows;
+    private long sampledNanos = startNanos;
+    private long loggedNanos = startNanos;
+
+    private TransformationProgress(TransformationReport report, Rf2RowPipeline parsers, int filesTotal, long bytesTotal) {
+        this.report = report;
+        this.parsers = parsers;
+        this.filesTotal = filesTotal;
+        this.bytesTotal = bytesTotal;
+        this.sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snomed-loinc-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts publishing the progress of a load
+     *
+     * @param report     report the transformers record their metrics in
+     * @param parsers    parse pipeline of the load
+     * @param files      RF2 files of the load, files no transformer handles are not counted
+     * @param checkpoint  progress of earlier attempts, completed files and read offsets are not counted
+     * @param logSeconds seconds between progress log lines, values below 1 only publish over JMX
+     * @param loadName   name of the load in the MBean name, such as the datastore directory
+     * @return started progress, close it when the load has finished
+     */
+    public static TransformationProgress start(TransformationReport report, Rf2RowPipeline parsers, List<Path> files,
+                                               TransformationCheckpoint checkpoint, int logSeconds, String loadName) {
+        List<Path> handled = files.stream()
+                .filter(file -> Rf2FileType.of(file.getFileName().toString()).isPresent())
+                .filter(file -> !checkpoint.isComplete(file.getFileName().toString()))
+                .toList();
+        // Matches what the transformers count as their total, see AbstractTransformer
+        long bytes = handled.stream()
+                .mapToLong(file -> Math.max(0, size(file) - checkpoint.resumeOffset(file.getFileName().toString())))
+                .sum();
+        TransformationProgress progress = new TransformationProgress(report, parsers, handled.size(), bytes);
+        progress.register(loadName);
+        progress.sampler.scheduleAtFixedRate(() -> progress.sample(logSeconds), SAMPLE_SECONDS, SAMPLE_SECONDS, TimeUnit.SECONDS);
+        return progress;
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void register(String loadName) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=TransformationProgress,name=" + ObjectName.quote(loadName));
+            server.registerMBean(this, objectName);
+            name = objectName;
+            LOG.info("Publishing load progress over JMX as " + objectName);
+        } catch (JMException e) {
+            // Progress is for watching the load, it must not stop it
+            LOG.warn("Unable to publish load progress over JMX: " + e);
+        }
+    }
+
+    private void sample(int logSeconds) {
+        long now = System.nanoTime();
+        long rows = getRowsComposed();
+        rowsPerSecond = (rows - sampledRows) * 1e9 / Math.max(1, now - sampledNanos);
+        if (rows != sampledRows) {
+            lastProgressNanos = now;
+        }
+        sampledRows = rows;
+        sampledNanos = now;
+        if (logSeconds > 0 && now - loggedNanos >= TimeUnit.SECONDS.toNanos(logSeconds)) {
+            loggedNanos = now;
+            log(logSeconds);
+        }
+    }
+
+    private void log(int logSeconds) {
+        long eta = getEtaSeconds();
+        LOG.info(String.format("Progress %.1f%% of %d MB, %d file(s) of %d done, %d rows, %.0f rows/s, %d chunk(s) queued, %d open session(s), ETA %s",
+                getPercentComplete(), bytesTotal >> 20, getFilesCompleted(), filesTotal, getRowsComposed(), rowsPerSecond,
+                getParseQueueDepth(), getPendingSessions(), eta < 0 ? "unknown" : eta / 60 + " min"));
+        long stalled = getSecondsSinceProgress();
+        if (stalled >= logSeconds) {
+            LOG.warn("No row composed for " + stalled + " s, active files: " + String.join(", ", getActiveFiles()));
+        }
+    }
+
+    @Override
+    public long getBytesTotal() {
+        return bytesTotal;
+    }
+
+    @Override
+    public long getBytesConsumed() {
+        return report.files().stream().mapToLong(TransformerMetrics::bytesConsumed).sum();
+    }
+
+    @Override
+    public double getPercentComplete() {
+        return bytesTotal == 0 ? 0 : Math.min(100, getBytesConsumed() * 100.0 / bytesTotal);
+    }
+
+    @Override
+    public long getRowsRead() {
+        return report.files().stream().mapToLong(TransformerMetrics::rowsRead).sum();
+    }
+
+    @Override
+    public long getRowsComposed() {
+        return report.files().stream().mapToLong(TransformerMetrics::rowsComposed).sum();
+    }
+
+    @Override
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    @Override
+    public double getAverageRowsPerSecond() {
+        return getRowsComposed() * 1e9 / Math.max(1, System.nanoTime() - startNanos);
+    }
+
+    @Override
+    public int getParseQueueDepth() {
+        return parsers.queueDepth();
+    }
+
+    @Override
+    public int getPendingSessions() {
+        return report.files().stream().mapToInt(TransformerMetrics::openSessions).sum();
+    }
+
+    @Override
+    public int getFilesTotal() {
+        return filesTotal;
+    }
+
+    @Override
+    public int getFilesStarted() {
+        return report.files().size();
+    }
+
+    @Override
+    public int getFilesCompleted() {
+        return (int) report.files().stream().filter(TransformerMetrics::isFinished).count();
+    }
+
+    @Override
+    public String[] getActiveFiles() {
+        return report.files().stream()
+                .filter(metrics -> !metrics.isFinished())
+                .map(TransformerMetrics::fileName)
+                .toArray(String[]::new);
+    }
+
+    @Override
+    public long getElapsedSeconds() {
+        return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos);
+    }
+
+    @Override
+    public long getEtaSeconds() {
+        long consumed = getBytesConsumed();
+        if (consumed == 0) {
+            return -1;
+        }
+        double bytesPerNano = consumed / (double) Math.max(1, System.nanoTime() - startNanos);
+        return Math.round(Math.max(0, bytesTotal - consumed) / bytesPerNano / 1e9);
+    }
+
+    @Override
+    public long getSecondsSinceProgress() {
+        return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - lastProgressNanos);
+    }
+
+    /**
+     * Stops sampling and removes the bean
+     */
+    @Override
+    public void close() {
+        sampler.shutdownNow();
+        if (name != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            } catch (JMException e) {
+                LOG.warn("Unable to remove the load progress bean " + name + ": " + e);
+            }
+            name = null;
+        }
+    }
+}
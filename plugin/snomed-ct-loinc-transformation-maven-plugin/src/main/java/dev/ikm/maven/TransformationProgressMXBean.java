@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+/**
+ * Live progress of a load, published over JMX by {@link TransformationProgress} under
+ * {@value TransformationProgress#DOMAIN}:type=TransformationProgress while the load runs. Byte counts
+ * cover the RF2 files a transformer handles, uncompressed.
+ */
+public interface TransformationProgressMXBean {
+
+    /**
+     * @return bytes the load has to read, over every RF2 file it transforms; files and offsets an
+     * earlier attempt completed are not counted
+     */
+    long getBytesTotal();
+
+    /**
+     * @return bytes read by this load up to the last composed row, over every file
+     */
+    long getBytesConsumed();
+
+    /**
+     * @return share of the input consumed, from 0 to 100
+     */
+    double getPercentComplete();
+
+    long getRowsRead();
+
+    long getRowsComposed();
+
+    /**
+     * @return rows composed per second over the last sample interval
+     */
+    double getRowsPerSecond();
+
+    /**
+     * @return rows composed per second since the load started
+     */
+    double getAverageRowsPerSecond();
+
+    /**
+     * @return chunks parsed or being parsed ahead of the composing threads
+     */
+    int getParseQueueDepth();
+
+    /**
+     * @return composer sessions open and not yet committed, over every running file
+     */
+    int getPendingSessions();
+
+    int getFilesTotal();
+
+    int getFilesStarted();
+
+    int getFilesCompleted();
+
+    /**
+     * @return files being transformed
+     */
+    String[] getActiveFiles();
+
+    long getElapsedSeconds();
+
+    /**
+     * @return estimated seconds until every file is consumed, from the byte rate so far, -1 until known
+     */
+    long getEtaSeconds();
+
+    /**
+     * @return seconds since a row was last composed, for alerting on a stalled load
+     */
+    long getSecondsSinceProgress();
+}
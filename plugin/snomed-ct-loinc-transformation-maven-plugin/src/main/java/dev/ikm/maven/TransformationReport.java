@@ -0,0 +1,151 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Collects the {@link TransformerMetrics} of every file of a load and writes them as a JSON report
+ */
+public class TransformationReport {
+    private static final Logger LOG = LoggerFactory.getLogger(TransformationReport.class.getSimpleName());
+
+    private final Queue<TransformerMetrics> files = new ConcurrentLinkedQueue<>();
+    private final Map<String, Long> stageMillis = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final Instant started = Instant.now();
+    private final long startNanos = System.nanoTime();
+
+    /**
+     * Starts measuring a file
+     *
+     * @param fileName    RF2 file name
+     * @param transformer transformer of the file
+     * @return started metrics of the file
+     */
+    public TransformerMetrics start(String fileName, String transformer) {
+        TransformerMetrics metrics = new TransformerMetrics(fileName, transformer);
+        files.add(metrics);
+        metrics.start();
+        return metrics;
+    }
+
+    /**
+     * @return metrics of every file started so far, live while the load runs
+     */
+    Collection<TransformerMetrics> files() {
+        return files;
+    }
+
+    /**
+     * Records the wall time of a pipeline stage, such as starting the store or the load itself
+     *
+     * @param stage       name of the stage
+     * @param elapsedNanos time the stage took
+     */
+    public void stageFinished(String stage, long elapsedNanos) {
+        stageMillis.put(stage, elapsedNanos / 1_000_000);
+        LOG.info(String.format("Stage %s took %.1f s", stage, elapsedNanos / 1e9));
+    }
+
+    /**
+     * Writes the report
+     *
+     * @param reportFile JSON file to write, parent directories are created
+     * @param idCache    SCTID cache of the load
+     * @throws IOException if the report cannot be written
+     */
+    public void write(Path reportFile, SctIdCache idCache) throws IOException {
+        List<TransformerMetrics> sorted = files.stream()
+                .sorted(Comparator.comparing(TransformerMetrics::fileName))
+                .toList();
+        long elapsedNanos = System.nanoTime() - startNanos;
+        long rowsComposed = sorted.stream().mapToLong(TransformerMetrics::rowsComposed).sum();
+        List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"started\":").append(quote(started.toString()))
+                .append(",\n  \"elapsedMillis\":").append(elapsedNanos / 1_000_000)
+                .append(",\n  \"rowsComposed\":").append(rowsComposed)
+                .append(",\n  \"rowsPerSecond\":").append(elapsedNanos == 0 ? 0 : Math.round(rowsComposed * 1e9 / elapsedNanos))
+                .append(",\n  \"maxHeapBytes\":").append(Runtime.getRuntime().maxMemory())
+                .append(",\n  \"gcCount\":").append(collectors.stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).sum())
+                .append(",\n  \"gcMillis\":").append(collectors.stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum())
+                .append(",\n  \"idCache\":{\"size\":").append(idCache.size())
+                .append(",\"hits\":").append(idCache.hits())
+                .append(",\"misses\":").append(idCache.misses()).append('}')
+                .append(",\n  \"stageMillis\":{");
+        synchronized (stageMillis) {
+            String separator = "";
+            for (Map.Entry<String, Long> stage : stageMillis.entrySet()) {
+                json.append(separator).append(quote(stage.getKey())).append(':').append(stage.getValue());
+                separator = ",";
+            }
+        }
+        json.append('}')
+                .append(",\n  \"files\":[");
+        for (int i = 0; i < sorted.size(); i++) {
+            json.append(i == 0 ? "\n    " : ",\n    ");
+            sorted.get(i).appendJson(json);
+        }
+        json.append("\n  ]\n}\n");
+
+        Files.createDirectories(reportFile.toAbsolutePath().getParent());
+        Files.writeString(reportFile, json);
+        LOG.info("Transformation report written to " + reportFile);
+    }
+
+    /**
+     * @param value text to write to the report
+     * @return value as a JSON string literal
+     */
+    static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> quoted.append("\\\"");
+                case '\\' -> quoted.append("\\\\");
+                case '\n' -> quoted.append("\\n");
+                case '\r' -> quoted.append("\\r");
+                case '\t' -> quoted.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+                }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs RF2 files through their transformers as a small dependency graph. Files are grouped into
+ * stages by {@link Rf2FileType#stage()}; the files of one stage run concurrently on a fixed pool and
+ * the next stage starts only once the previous one has finished. Within a stage files are submitted
+ * in file name order, so scheduling is the same on every run.
+ */
+public class TransformationScheduler {
+    private static final Logger LOG = LoggerFactory.getLogger(TransformationScheduler.class.getSimpleName());
+    // Cancelled transforms finish the row being composed before they notice the interrupt
+    private static final long TERMINATION_TIMEOUT_SECONDS = 300;
+
+    private final int parallelism;
+    private final boolean failFast;
+
+    /**
+     * @param parallelism number of files transformed concurrently, values below 1 use all available processors
+     * @param failFast    cancel outstanding files and stop at the first failure instead of finishing every file
+     */
+    public TransformationScheduler(int parallelism, boolean failFast) {
+        this.parallelism = parallelism < 1 ? Runtime.getRuntime().availableProcessors() : parallelism;
+        this.failFast = failFast;
+    }
+
+    /**
+     * Groups files by dependency stage, files that no transformer handles are dropped
+     *
+     * @param files candidate RF2 files
+     * @return files per stage, in stage order and file name order
+     */
+    static Map<Integer, List<Path>> stages(List<Path> files) {
+        Map<Integer, List<Path>> stages = new TreeMap<>();
+        files.stream()
+                .sorted(Comparator.comparing(file -> file.getFileName().toString()))
+                .forEach(file -> Rf2FileType.of(file.getFileName().toString()).ifPresentOrElse(
+                        type -> stages.computeIfAbsent(type.stage(), stage -> new ArrayList<>()).add(file),
+                        () -> LOG.info("This file cannot be processed at the moment : " + file.getFileName())));
+        return stages;
+    }
+
+    /**
+     * Runs the task for every file, stage by stage
+     *
+     * @param files RF2 files to transform
+     * @param task  transformation of a single file
+     * @throws MojoExecutionException if any file failed to transform
+     */
+    public void run(List<Path> files, Consumer<Path> task) throws MojoExecutionException {
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "snomed-loinc-transformer-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Throwable> failures = new ArrayList<>();
+        try {
+            for (Map.Entry<Integer, List<Path>> stage : stages(files).entrySet()) {
+                LOG.info("### Stage " + stage.getKey() + " starting with " + stage.getValue().size() + " file(s) on " + parallelism + " thread(s)");
+                runStage(executor, stage.getValue(), task, failures);
+                if (failFast && !failures.isEmpty()) {
+                    break;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            awaitTermination(executor, failures);
+        }
+        if (!failures.isEmpty()) {
+            MojoExecutionException exception = new MojoExecutionException(
+                    failures.size() + " RF2 file(s) failed to transform", failures.get(0));
+            failures.stream().skip(1).forEach(exception::addSuppressed);
+            throw exception;
+        }
+    }
+
+    /**
+     * Waits for cancelled transforms to stop, so none is still composing once the caller ends the load
+     * phase and stops the store
+     */
+    private static void awaitTermination(ExecutorService executor, List<Throwable> failures) throws MojoExecutionException {
+        boolean terminated;
+        try {
+            terminated = executor.awaitTermination(TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            terminated = executor.isTerminated();
+        }
+        if (!terminated) {
+            MojoExecutionException exception = new MojoExecutionException("RF2 transforms still running "
+                    + TERMINATION_TIMEOUT_SECONDS + " s after they were cancelled, the load is incomplete");
+            failures.forEach(exception::addSuppressed);
+            throw exception;
+        }
+    }
+
+    private void runStage(ExecutorService executor, List<Path> files, Consumer<Path> task, List<Throwable> failures) {
+        CompletionService<Path> completionService = new ExecutorCompletionService<>(executor);
+        List<Future<Path>> futures = new ArrayList<>();
+        for (Path file : files) {
+            futures.add(completionService.submit(() -> task.accept(file), file));
+        }
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    completionService.take().get();
+                } catch (ExecutionException e) {
+                    failures.add(e.getCause());
+                    if (failFast) {
+                        futures.forEach(future -> future.cancel(true));
+                        return;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            failures.add(e);
+        }
+    }
+}
@@ -2,10 +2,10 @@ package dev.ikm.maven;
 
 import dev.ikm.tinkar.composer.Composer;
 
-import java.io.File;
+import java.nio.file.Path;
 import java.util.UUID;
 
 public interface Transformer {
-    void transform(File file, Composer composer);
+    void transform(Path file, Composer composer);
     UUID getNamespace();
 }
@@ -0,0 +1,182 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and timings of a single RF2 file transformation. Parsing runs on several threads, so
+ * every counter is a {@link LongAdder}; composing and committing run on the transforming thread.
+ * Allocated bytes are measured per thread around each stage when the JVM supports it, GC counts and
+ * times cover the whole JVM while the file was transformed.
+ */
+public class TransformerMetrics {
+    private static final com.sun.management.ThreadMXBean THREADS = threadMXBean();
+    private static final List<GarbageCollectorMXBean> COLLECTORS = ManagementFactory.getGarbageCollectorMXBeans();
+
+    private final String fileName;
+    private final String transformer;
+    final LongAdder rowsRead = new LongAdder();
+    final LongAdder rowsSkipped = new LongAdder();
+    final LongAdder rowsRejected = new LongAdder();
+    final LongAdder rowsComposed = new LongAdder();
+    final LongAdder batches = new LongAdder();
+    // Parse and compose timings and allocations stay 0 unless the load collects detailed metrics
+    final LongAdder parseNanos = new LongAdder();
+    final LongAdder composeNanos = new LongAdder();
+    final LongAdder commitNanos = new LongAdder();
+    final LongAdder parseAllocatedBytes = new LongAdder();
+    final LongAdder composeAllocatedBytes = new LongAdder();
+    final LongAdder commitAllocatedBytes = new LongAdder();
+    // Live progress, written by the transforming thread and read by TransformationProgress
+    volatile long bytesTotal;
+    volatile long bytesConsumed;
+    volatile int openSessions;
+    private volatile boolean finished;
+    private long startNanos;
+    private long elapsedNanos;
+    private long gcCountAtStart;
+    private long gcMillisAtStart;
+    private long gcCount;
+    private long gcMillis;
+    private final Rf2FileTransformEvent event = new Rf2FileTransformEvent();
+
+    TransformerMetrics(String fileName, String transformer) {
+        this.fileName = fileName;
+        this.transformer = transformer;
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads;
+        }
+        return null;
+    }
+
+    /**
+     * @return bytes allocated so far by the calling thread, 0 if the JVM does not track allocations
+     */
+    static long allocatedBytes() {
+        return THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    void start() {
+        gcCountAtStart = COLLECTORS.stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+        gcMillisAtStart = COLLECTORS.stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+        startNanos = System.nanoTime();
+        event.begin();
+    }
+
+    void finish() {
+        elapsedNanos = System.nanoTime() - startNanos;
+        bytesConsumed = bytesTotal;
+        openSessions = 0;
+        finished = true;
+        gcCount = COLLECTORS.stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).sum() - gcCountAtStart;
+        gcMillis = COLLECTORS.stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum() - gcMillisAtStart;
+        event.end();
+        if (event.shouldCommit()) {
+            event.fileName = fileName;
+            event.transformer = transformer;
+            event.rowsRead = rowsRead.sum();
+            event.rowsSkipped = rowsSkipped.sum();
+            event.rowsComposed = rowsComposed.sum();
+            event.parseNanos = parseNanos.sum();
+            event.composeNanos = composeNanos.sum();
+            event.commitNanos = commitNanos.sum();
+            event.commit();
+        }
+    }
+
+    public String fileName() {
+        return fileName;
+    }
+
+    public long rowsComposed() {
+        return rowsComposed.sum();
+    }
+
+    public long rowsRead() {
+        return rowsRead.sum();
+    }
+
+    /**
+     * @return bytes of the file read by this load up to the last composed row, all it had to read once
+     * finished
+     */
+    public long bytesConsumed() {
+        return bytesConsumed;
+    }
+
+    /**
+     * @return bytes of the file this load has to read, from the offset it resumed at, 0 until known
+     */
+    public long bytesTotal() {
+        return bytesTotal;
+    }
+
+    /**
+     * @return composer sessions open and not yet committed
+     */
+    public int openSessions() {
+        return openSessions;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public long elapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return rows composed per second of wall time
+     */
+    public double rowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rowsComposed.sum() * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Appends this file's metrics as a JSON object
+     *
+     * @param json report being written
+     */
+    void appendJson(StringBuilder json) {
+        json.append("{\"file\":").append(TransformationReport.quote(fileName))
+                .append(",\"transformer\":").append(TransformationReport.quote(transformer))
+                .append(",\"rowsRead\":").append(rowsRead.sum())
+                .append(",\"rowsSkipped\":").append(rowsSkipped.sum())
+                .append(",\"rowsRejected\":").append(rowsRejected.sum())
+                .append(",\"rowsComposed\":").append(rowsComposed.sum())
+                .append(",\"batches\":").append(batches.sum())
+                .append(",\"elapsedMillis\":").append(elapsedNanos / 1_000_000)
+                .append(",\"rowsPerSecond\":").append(Math.round(rowsPerSecond()))
+                .append(",\"parseCpuMillis\":").append(parseNanos.sum() / 1_000_000)
+                .append(",\"composeMillis\":").append(composeNanos.sum() / 1_000_000)
+                .append(",\"commitMillis\":").append(commitNanos.sum() / 1_000_000)
+                .append(",\"parseAllocatedBytes\":").append(parseAllocatedBytes.sum())
+                .append(",\"composeAllocatedBytes\":").append(composeAllocatedBytes.sum())
+                .append(",\"commitAllocatedBytes\":").append(commitAllocatedBytes.sum())
+                .append(",\"gcCount\":").append(gcCount)
+                .append(",\"gcMillis\":").append(gcMillis)
+                .append('}');
+    }
+}
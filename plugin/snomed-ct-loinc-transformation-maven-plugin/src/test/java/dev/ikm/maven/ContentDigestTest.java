@@ -0,0 +1,97 @@
+package dev.ikm.maven;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ContentDigestTest {
+
+    record Row(UUID key, String fact) {
+    }
+
+    private static List<Row> rows(int count) {
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            UUID key = UUID.nameUUIDFromBytes(Integer.toString(i / 3).getBytes());
+            rows.add(new Row(key, "active=" + (i % 2) + "|module=900000000000207008|version=" + i));
+        }
+        return rows;
+    }
+
+    private static ContentDigest digest(List<Row> rows) {
+        ContentDigest digest = new ContentDigest();
+        rows.forEach(row -> digest.add(row.key(), row.fact()));
+        return digest;
+    }
+
+    /**
+     * The digest of a release does not depend on the order its rows are read in.
+     */
+    @Test
+    public void testOrderIndependent() {
+        List<Row> rows = rows(10_000);
+        ContentDigest inOrder = digest(rows);
+        Collections.shuffle(rows, new Random(20231015));
+        ContentDigest shuffled = digest(rows);
+
+        assertEquals(inOrder.value(), shuffled.value());
+        assertEquals(10_000, shuffled.count());
+        assertTrue(inOrder.mismatchingBuckets(shuffled).isEmpty());
+    }
+
+    /**
+     * Digests filled by concurrent producers add up to the digest of all their rows.
+     */
+    @Test
+    public void testPartsAddUpToWhole() {
+        List<Row> rows = rows(10_000);
+        ContentDigest whole = digest(rows);
+        ContentDigest parts = new ContentDigest()
+                .add(digest(rows.subList(0, 3_000)))
+                .add(digest(rows.subList(3_000, 10_000)));
+
+        assertEquals(whole.value(), parts.value());
+        assertEquals(whole.count(), parts.count());
+    }
+
+    /**
+     * A duplicated row changes the digest rather than cancelling itself out.
+     */
+    @Test
+    public void testDuplicateRowCounts() {
+        List<Row> rows = rows(100);
+        ContentDigest once = digest(rows);
+        ContentDigest twice = digest(rows);
+        twice.add(rows.get(7).key(), rows.get(7).fact());
+        twice.add(rows.get(7).key(), rows.get(7).fact());
+
+        assertNotEquals(once.value(), twice.value());
+        assertEquals(once.count() + 2, twice.count());
+    }
+
+    /**
+     * A changed row is found in the bucket of its component and nowhere else.
+     */
+    @Test
+    public void testMismatchInBucketOfChangedRow() {
+        List<Row> rows = rows(10_000);
+        ContentDigest release = digest(rows);
+        Row changed = rows.get(4_321);
+        rows.set(4_321, new Row(changed.key(), changed.fact() + "|changed"));
+        ContentDigest datastore = digest(rows);
+
+        assertNotEquals(release.value(), datastore.value());
+        BitSet mismatching = release.mismatchingBuckets(datastore);
+        assertEquals(1, mismatching.cardinality());
+        assertTrue(mismatching.get(ContentDigest.bucket(changed.key())));
+    }
+}
@@ -0,0 +1,94 @@
+package dev.ikm.maven;
+
+import dev.ikm.tinkar.common.id.PublicIds;
+import dev.ikm.tinkar.common.util.uuid.UuidUtil;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.regex.MatchResult;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class OwlExpressionRewriterTest {
+    private static final Pattern ID_PATTERN = Pattern.compile("(?<=:)([0-9-]+)");
+    private static final Pattern URL_PATTERN = Pattern.compile("<[^>]+>");
+
+    /**
+     * The two pass regex replacement the rewriter took over from SnomedLoincUtility, kept as the
+     * reference the single pass rewrite must match character for character.
+     */
+    private static String regexRewrite(String owlExpression) {
+        String publicIdOwlExpression = owlExpression;
+        if (owlExpression.contains("<") & owlExpression.contains(">")) {
+            publicIdOwlExpression = URL_PATTERN.matcher(publicIdOwlExpression).replaceAll(OwlExpressionRewriterTest::urlToPublicId);
+        }
+        return ID_PATTERN.matcher(publicIdOwlExpression).replaceAll(OwlExpressionRewriterTest::idToPublicId);
+    }
+
+    private static String idToPublicId(MatchResult id) {
+        String idString = id.group();
+        String publicIdString;
+        if (idString.contains("-")) {
+            idString = "org.loinc." + idString;
+            publicIdString = PublicIds.of(UUID.nameUUIDFromBytes(idString.getBytes())).toString();
+        } else {
+            publicIdString = PublicIds.of(UuidUtil.fromSNOMED(idString)).toString();
+        }
+        return publicIdString.replaceAll("\"", "");
+    }
+
+    private static String urlToPublicId(MatchResult id) {
+        String urlString = id.group();
+        String idString = urlString.substring(1, urlString.length() - 1);
+        String publicIdString = PublicIds.of(UUID.nameUUIDFromBytes(idString.getBytes())).toString();
+        return publicIdString.replaceAll("\"", "");
+    }
+
+    /**
+     * Expressions as found in the OWL expression refset, plus the edge cases of both patterns.
+     */
+    @Test
+    public void testMatchesRegexRewrite() {
+        OwlExpressionRewriter rewriter = new OwlExpressionRewriter();
+        List<String> expressions = List.of(
+                "SubClassOf(:11010000107 :363787002)",
+                "EquivalentClasses(:11010000108 ObjectIntersectionOf(:363787002 ObjectSomeValuesFrom(:609096000 "
+                        + "ObjectIntersectionOf(ObjectSomeValuesFrom(:246093002 :40316-2) ObjectSomeValuesFrom(:370130000 :118539007)))))",
+                "Prefix(:=<http://snomed.info/id/>) Prefix(owl:=<http://www.w3.org/2002/07/owl#>) Ontology(<http://snomed.info/sct/11010000107>)",
+                "Prefix(xsd:=<http://www.w3.org/2001/XMLSchema#>)",
+                "SubClassOf(:0123 :00 :0)",
+                "SubClassOf(:1234567890123456789012 :-)",
+                "trailing colon: :",
+                "ends with an id :138875005",
+                "<> <unclosed :12 <a<b> :x12 ::34 :5-6-7",
+                "no identifiers at all",
+                "");
+        for (String expression : expressions) {
+            assertEquals(regexRewrite(expression), rewriter.rewrite(expression), expression);
+        }
+    }
+
+    /**
+     * Random mixes of the characters both patterns react to, rewritten twice so memoized ids are hit.
+     */
+    @Test
+    public void testMatchesRegexRewriteOnRandomExpressions() {
+        OwlExpressionRewriter rewriter = new OwlExpressionRewriter();
+        String alphabet = ":::<>--0123456789 ()abc/#";
+        Random random = new Random(20231015);
+        for (int i = 0; i < 5_000; i++) {
+            StringBuilder expression = new StringBuilder();
+            int length = random.nextInt(60);
+            for (int j = 0; j < length; j++) {
+                expression.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            String text = expression.toString();
+            String expected = regexRewrite(text);
+            assertEquals(expected, rewriter.rewrite(text), text);
+            assertEquals(expected, rewriter.rewrite(text), text);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package dev.ikm.maven;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class Rf2ColumnarCacheTest {
+    private static final long UNLIMITED = Long.MAX_VALUE;
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Rows covering every column encoding: int, long, dictionary and text, with text that only looks
+     * numeric and text that is not ASCII
+     */
+    private Path releaseFile(String name, int rows, String salt) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("id\teffectiveTime\tactive\tmoduleId\tcode\tterm");
+        for (int i = 0; i < rows; i++) {
+            String code = switch (i % 3) {
+                case 0 -> "0" + i;
+                case 1 -> (40000 + i) + "-2";
+                default -> "12345678901234567890" + i;
+            };
+            lines.add((900000000000003001L + i) + "\t" + (20230101 + i % 2 * 10000) + "\t" + (i % 2)
+                    + "\t" + (i % 5 == 0 ? "11010000107" : "900000000000207008") + "\t" + code
+                    + "\tMénière " + salt + " " + i);
+        }
+        Path file = directory.resolve(name);
+        Files.write(file, lines, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private static String text(Rf2Record row) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < row.columnCount(); i++) {
+            text.append(i == 0 ? "" : "\t").append(row.string(i));
+        }
+        return text.append('@').append(row.offset()).toString();
+    }
+
+    private static List<String> textRows(Path file, long startOffset) throws IOException {
+        List<String> rows = new ArrayList<>();
+        new Rf2ChunkedParser(ForkJoinPool.commonPool()).forEachRow(file, startOffset, Rf2ColumnarCacheTest::text, rows::add);
+        return rows;
+    }
+
+    private static List<String> cachedRows(Rf2ColumnarFile file, long startOffset) throws IOException {
+        List<String> rows = new ArrayList<>();
+        file.forEachRow(Rf2RowPipeline.of(ForkJoinPool.commonPool()), startOffset, Rf2ColumnarCacheTest::text, rows::add);
+        return rows;
+    }
+
+    private static long offset(String row) {
+        return Long.parseLong(row.substring(row.lastIndexOf('@') + 1));
+    }
+
+    private static boolean isCached(Rf2ColumnarCache cache, Path source, String variant) throws IOException {
+        Optional<Rf2ColumnarFile> cached = cache.open(source, variant);
+        if (cached.isPresent()) {
+            cached.get().close();
+        }
+        return cached.isPresent();
+    }
+
+    private List<Path> cacheFiles(Path cacheDirectory) throws IOException {
+        try (Stream<Path> files = Files.list(cacheDirectory)) {
+            return files.filter(file -> file.toString().endsWith(".rf2c")).toList();
+        }
+    }
+
+    /**
+     * Cached rows give the same values and text offsets as the file they were encoded from.
+     */
+    @Test
+    public void testCachedRowsMatchText() throws IOException {
+        Path source = releaseFile("sct2_Concept_Full.txt", 500, "a");
+        Rf2ColumnarCache cache = Rf2ColumnarCache.open(directory.resolve("cache"), UNLIMITED);
+        assertFalse(isCached(cache, source, ""));
+        cache.store(source, "", source);
+
+        Optional<Rf2ColumnarFile> cached = cache.open(source, "");
+        assertTrue(cached.isPresent());
+        try (Rf2ColumnarFile file = cached.get()) {
+            assertEquals(500, file.rowCount());
+            assertEquals(textRows(source, 0), cachedRows(file, 0));
+        }
+    }
+
+    /**
+     * A checkpoint offset taken while reading the text resumes the cached rows on the next row, and
+     * the other way round.
+     */
+    @Test
+    public void testResumeFromCheckpointOffset() throws IOException {
+        Path source = releaseFile("sct2_Concept_Full.txt", 300, "a");
+        Rf2ColumnarCache cache = Rf2ColumnarCache.open(directory.resolve("cache"), UNLIMITED);
+        cache.store(source, "", source);
+        List<String> text = textRows(source, 0);
+
+        try (Rf2ColumnarFile file = cache.open(source, "").orElseThrow()) {
+            for (int committed : new int[]{1, 150, 299, 300}) {
+                long offset = offset(text.get(committed - 1));
+                assertEquals(text.subList(committed, text.size()), cachedRows(file, offset));
+                assertEquals(text.subList(committed, text.size()), textRows(source, offset));
+            }
+        }
+    }
+
+    /**
+     * A changed source is never served from the entry of its earlier content.
+     */
+    @Test
+    public void testChangedSourceMisses() throws IOException {
+        Path source = releaseFile("sct2_Concept_Full.txt", 100, "a");
+        Rf2ColumnarCache cache = Rf2ColumnarCache.open(directory.resolve("cache"), UNLIMITED);
+        cache.store(source, "", source);
+        assertTrue(isCached(cache, source, ""));
+
+        releaseFile("sct2_Concept_Full.txt", 100, "b");
+        Files.setLastModifiedTime(source, FileTime.fromMillis(Files.getLastModifiedTime(source).toMillis() + 2_000));
+        assertFalse(isCached(cache, source, ""));
+        assertFalse(isCached(cache, source, "sorted"));
+    }
+
+    /**
+     * Beyond its size limit the cache deletes the least recently used files, where reading a file
+     * counts as using it.
+     */
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws IOException {
+        Path cacheDirectory = directory.resolve("cache");
+        Path first = releaseFile("first.txt", 200, "a");
+        Path second = releaseFile("second.txt", 200, "b");
+        Path third = releaseFile("third.txt", 200, "c");
+        Rf2ColumnarCache unlimited = Rf2ColumnarCache.open(cacheDirectory, UNLIMITED);
+        unlimited.store(first, "", first);
+        unlimited.store(second, "", second);
+        List<Path> stored = cacheFiles(cacheDirectory);
+        assertEquals(2, stored.size());
+        // Both entries last used long ago, then the first one is read
+        for (Path file : stored) {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(1_000));
+        }
+        unlimited.open(first, "").orElseThrow().close();
+
+        long entrySize = Files.size(stored.get(0));
+        Rf2ColumnarCache limited = Rf2ColumnarCache.open(cacheDirectory, entrySize * 5 / 2);
+        limited.store(third, "", third);
+        assertEquals(2, cacheFiles(cacheDirectory).size());
+        assertTrue(isCached(limited, first, ""));
+        assertFalse(isCached(limited, second, ""));
+        assertTrue(isCached(limited, third, ""));
+    }
+}
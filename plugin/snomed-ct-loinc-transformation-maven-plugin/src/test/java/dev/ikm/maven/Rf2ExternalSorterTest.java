@@ -0,0 +1,112 @@
+package dev.ikm.maven;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class Rf2ExternalSorterTest {
+    private static final String HEADER = "id\teffectiveTime\tactive\tmoduleId\tterm";
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Rows of a release in random order, with repeated ids and repeated id and effective time pairs
+     */
+    private Path unsortedFile(int rows) throws IOException {
+        Random random = new Random(rows);
+        List<String> lines = new ArrayList<>();
+        lines.add(HEADER);
+        for (int i = 0; i < rows; i++) {
+            lines.add((100000000L + random.nextInt(rows / 4 + 1)) + "\t" + (20200101 + random.nextInt(3) * 10000)
+                    + "\t" + random.nextInt(2) + "\t900000000000207008\trow " + i);
+        }
+        Path file = directory.resolve("sct2_Concept_Full_LO1010000_20231015.txt");
+        Files.write(file, lines, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private static List<String> rows(Path file) throws IOException {
+        List<String> rows = new ArrayList<>(Files.readAllLines(file, StandardCharsets.UTF_8));
+        rows.remove(0);
+        return rows;
+    }
+
+    private static String key(String row, int column) {
+        return row.split("\t")[column];
+    }
+
+    /**
+     * Rows end up ordered by id then effective time, equal keys in their original order, over many runs.
+     */
+    @Test
+    public void testSortsByIdThenEffectiveTime() throws IOException {
+        Path file = unsortedFile(1_000);
+        Path sorted = new Rf2ExternalSorter(directory.resolve("work"), 64).sorted(file);
+
+        List<String> expected = rows(file);
+        // List.sort is stable, the row number in the term keeps equal keys in file order
+        expected.sort(Comparator.comparing((String row) -> key(row, 0)).thenComparing(row -> key(row, 1)));
+        assertEquals(HEADER, Files.readAllLines(sorted, StandardCharsets.UTF_8).get(0));
+        assertEquals(expected, rows(sorted));
+        assertTrue(Rf2ExternalSorter.isSorted(sorted));
+        assertFalse(Rf2ExternalSorter.isSorted(file));
+    }
+
+    /**
+     * A file already in order is read in place, and releasing it leaves it alone.
+     */
+    @Test
+    public void testSortedFileIsReadInPlace() throws IOException {
+        Rf2ExternalSorter sorter = new Rf2ExternalSorter(directory.resolve("work"), 64);
+        Path sorted = sorter.sorted(unsortedFile(200));
+        Path inPlace = directory.resolve("already-sorted.txt");
+        Files.copy(sorted, inPlace);
+
+        assertEquals(inPlace, sorter.sorted(inPlace));
+        sorter.release(inPlace, inPlace);
+        assertTrue(Files.exists(inPlace));
+        sorter.release(directory.resolve("sct2_Concept_Full_LO1010000_20231015.txt"), sorted);
+        assertFalse(Files.exists(sorted));
+    }
+
+    /**
+     * A resumed load sorts the file again and continues from the checkpoint offset, so that offset
+     * must fall on the same row boundary of the new copy and the rows after it must be the same.
+     */
+    @Test
+    public void testResumeOffsetSurvivesSortingAgain() throws IOException {
+        Path file = unsortedFile(2_000);
+        Path first = new Rf2ExternalSorter(directory.resolve("first"), 100).sorted(file);
+        Path second = new Rf2ExternalSorter(directory.resolve("second"), 300).sorted(file);
+        assertArrayEquals(Files.readAllBytes(first), Files.readAllBytes(second));
+
+        List<String> rows = new ArrayList<>();
+        List<Long> offsets = new ArrayList<>();
+        Rf2ChunkedParser parser = new Rf2ChunkedParser(ForkJoinPool.commonPool());
+        parser.forEachRow(first, 0, row -> row.string(4) + "@" + row.offset(), row -> {
+            rows.add(row.substring(0, row.indexOf('@')));
+            offsets.add(Long.parseLong(row.substring(row.indexOf('@') + 1)));
+        });
+        assertEquals(rows(first).stream().map(row -> key(row, 4)).toList(), rows);
+
+        int committed = 1_234;
+        List<String> resumed = new ArrayList<>();
+        parser.forEachRow(second, offsets.get(committed - 1), row -> row.string(4), resumed::add);
+        assertEquals(rows.subList(committed, rows.size()), resumed);
+    }
+}
@@ -0,0 +1,89 @@
+package dev.ikm.maven;
+
+import dev.ikm.tinkar.common.util.uuid.UuidUtil;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SctIdCacheTest {
+    // More ids than the initial capacity of every off-heap stripe, so the tables grow
+    private static final int IDS = 200_000;
+    private static final long FIRST_SCTID = 900000000000003001L;
+
+    private static UUID uuidOf(long sctid) {
+        return UuidUtil.fromSNOMED(Long.toString(sctid));
+    }
+
+    /**
+     * Both tables give the UUID derived from the SCTID text, before and after they grow.
+     */
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testUuidMatchesDerivedUuid(boolean offHeap) {
+        SctIdCache cache = SctIdCache.create(offHeap);
+        for (long sctid = FIRST_SCTID; sctid < FIRST_SCTID + IDS; sctid++) {
+            assertEquals(uuidOf(sctid), cache.uuid(sctid));
+        }
+        assertEquals(IDS, cache.size());
+        for (long sctid = FIRST_SCTID; sctid < FIRST_SCTID + IDS; sctid += 997) {
+            assertEquals(uuidOf(sctid), cache.uuid(sctid));
+        }
+        assertEquals(IDS, cache.size());
+    }
+
+    /**
+     * A repeated id is a hit and does not grow the table.
+     */
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testHitsAndMisses(boolean offHeap) {
+        SctIdCache cache = SctIdCache.create(offHeap);
+        assertEquals(0, cache.hitRate());
+        cache.uuid(138875005L);
+        cache.uuid(138875005L);
+        cache.uuid(138875005L);
+        cache.uuid(900000000000207008L);
+        assertEquals(2, cache.misses());
+        assertEquals(2, cache.hits());
+        assertEquals(0.5, cache.hitRate());
+        assertEquals(2, cache.size());
+    }
+
+    /**
+     * Threads looking up the same ids concurrently all get the derived UUID, and each id is held once.
+     */
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testConcurrentLookups(boolean offHeap) throws Exception {
+        SctIdCache cache = SctIdCache.create(offHeap);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> lookups = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                lookups.add(executor.submit(() -> LongStream.range(FIRST_SCTID, FIRST_SCTID + IDS / 4).forEach(sctid -> {
+                    UUID uuid = cache.uuid(sctid);
+                    if (!uuid.equals(uuidOf(sctid))) {
+                        throw new AssertionError("Wrong UUID for " + sctid);
+                    }
+                })));
+            }
+            for (Future<?> lookup : lookups) {
+                lookup.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(IDS / 4, cache.size());
+        assertEquals((long) threads * (IDS / 4), cache.hits() + cache.misses());
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven.benchmarks;
+
+import dev.ikm.maven.MojoParameters;
+import dev.ikm.maven.SnomedLoincTransformationMojo;
+import dev.ikm.tinkar.common.service.CachingService;
+import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.common.service.ServiceKeys;
+import dev.ikm.tinkar.common.service.ServiceProperties;
+import dev.ikm.tinkar.common.util.uuid.UuidUtil;
+import dev.ikm.tinkar.entity.EntityService;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Compares load and verify time of one synthetic release across store controllers. Every controller
+ * loads the release in this JVM. The ephemeral store is verified while it is still started, the way
+ * the ephemeral integration profile runs; stores on disk are stopped and reopened first, the way the
+ * integration tests run against the datastore of the pipeline module. Verifying looks up every concept
+ * and description of the release. Results are written as CSV.
+ * <p>
+ * Usage: {@code ControllerComparison <work directory> [scale] [controllers]}, scale defaults to 1 and
+ * controllers to {@value #DEFAULT_CONTROLLERS}.
+ */
+public class ControllerComparison {
+    static final String EPHEMERAL_CONTROLLER = "Load Ephemeral Store";
+    static final String DEFAULT_CONTROLLERS = EPHEMERAL_CONTROLLER + ",Open SpinedArrayStore";
+
+    private final Path workDirectory;
+
+    /**
+     * Result of one controller
+     */
+    record Measurement(String controller, long loadMillis, long reopenMillis, long verifyMillis, long verified, long missing) {
+        long totalMillis() {
+            return loadMillis + reopenMillis + verifyMillis;
+        }
+    }
+
+    public ControllerComparison(Path workDirectory) {
+        this.workDirectory = workDirectory;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: ControllerComparison <work directory> [scale] [controllers, e.g. " + DEFAULT_CONTROLLERS + "]");
+            System.exit(1);
+        }
+        Path workDirectory = Path.of(args[0]);
+        double scale = args.length > 1 ? Double.parseDouble(args[1]) : 1;
+        String controllers = args.length > 2 ? args[2] : DEFAULT_CONTROLLERS;
+        ControllerComparison comparison = new ControllerComparison(workDirectory);
+        List<Measurement> measurements = new ArrayList<>();
+        for (String controller : controllers.split(",")) {
+            Measurement measurement = comparison.run(scale, controller.trim());
+            System.out.printf(Locale.ROOT, "%s: load %d ms, reopen %d ms, verify %d ms, total %d ms, %d of %d component(s) missing%n",
+                    measurement.controller(), measurement.loadMillis(), measurement.reopenMillis(), measurement.verifyMillis(),
+                    measurement.totalMillis(), measurement.missing(), measurement.verified());
+            measurements.add(measurement);
+        }
+        writeCsv(measurements, workDirectory.resolve("controller-results.csv"));
+    }
+
+    /**
+     * Loads the release of a scale with a controller and verifies it
+     *
+     * @param scale      multiple of the base release size
+     * @param controller name of the store controller
+     * @return measurement of the run
+     */
+    public Measurement run(double scale, String controller) throws Exception {
+        SyntheticRf2Release release = new SyntheticRf2Release(scale, 20231015L);
+        Path zip = workDirectory.resolve("releases").resolve(SyntheticRf2Release.zipFileName(scale));
+        if (!Files.exists(zip)) {
+            release.write(zip.getParent());
+        }
+        String runName = controller.replaceAll("[^A-Za-z0-9]+", "-").toLowerCase(Locale.ROOT);
+        Path datastore = workDirectory.resolve("datastores").resolve(runName);
+        if (Files.exists(datastore)) {
+            Rf2Fixtures.delete(datastore);
+        }
+        boolean ephemeral = controller.equals(EPHEMERAL_CONTROLLER);
+
+        SnomedLoincTransformationMojo mojo = new SnomedLoincTransformationMojo();
+        Map<String, Object> parameters = ScaleHarness.mojoParameters(workDirectory, runName, zip, datastore, controller);
+        parameters.put("checkpoint", false);
+        // The ephemeral store only holds the load while it is started
+        parameters.put("stopDatastore", !ephemeral);
+        MojoParameters.configure(mojo, workDirectory, parameters);
+
+        long start = System.nanoTime();
+        mojo.execute();
+        long loadMillis = (System.nanoTime() - start) / 1_000_000;
+        long reopenMillis = 0;
+        if (!ephemeral) {
+            start = System.nanoTime();
+            CachingService.clearAll();
+            ServiceProperties.set(ServiceKeys.DATA_STORE_ROOT, datastore.toFile());
+            PrimitiveData.selectControllerByName(controller);
+            PrimitiveData.start();
+            reopenMillis = (System.nanoTime() - start) / 1_000_000;
+        }
+        try {
+            start = System.nanoTime();
+            long[] counts = verify(zip);
+            long verifyMillis = (System.nanoTime() - start) / 1_000_000;
+            return new Measurement(controller, loadMillis, reopenMillis, verifyMillis, counts[0], counts[1]);
+        } finally {
+            PrimitiveData.stop();
+        }
+    }
+
+    /**
+     * Looks up the component of every concept and description row
+     *
+     * @return rows verified and rows whose component was not found
+     */
+    private static long[] verify(Path zip) throws IOException {
+        long[] counts = new long[2];
+        try (FileSystem archive = FileSystems.newFileSystem(zip);
+             Stream<Path> files = Files.walk(archive.getRootDirectories().iterator().next())) {
+            for (Path file : files.filter(ControllerComparison::verified).toList()) {
+                try (BufferedReader reader = Files.newBufferedReader(file)) {
+                    reader.readLine();
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        String id = line.substring(0, line.indexOf('\t'));
+                        counts[0]++;
+                        if (EntityService.get().getEntityFast(UuidUtil.fromSNOMED(id)) == null) {
+                            counts[1]++;
+                        }
+                    }
+                }
+            }
+        }
+        return counts;
+    }
+
+    private static boolean verified(Path file) {
+        String name = file.getFileName() == null ? "" : file.getFileName().toString();
+        return name.startsWith("sct2_Concept_") || name.startsWith("sct2_Description_");
+    }
+
+    static void writeCsv(List<Measurement> measurements, Path file) throws IOException {
+        StringBuilder csv = new StringBuilder("controller,loadMillis,reopenMillis,verifyMillis,totalMillis,verified,missing\n");
+        for (Measurement measurement : measurements) {
+            csv.append(String.format(Locale.ROOT, "%s,%d,%d,%d,%d,%d,%d%n", measurement.controller(), measurement.loadMillis(),
+                    measurement.reopenMillis(), measurement.verifyMillis(), measurement.totalMillis(),
+                    measurement.verified(), measurement.missing()));
+        }
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, csv);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven.benchmarks;
+
+import dev.ikm.maven.Rf2FileType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * RF2 fixture files checked into this module. The fixtures are a small synthetic LOINC extension
+ * release, one Full file per transformer, and are copied out of the classpath so they can be read
+ * as plain files from a benchmark jar.
+ */
+public final class Rf2Fixtures {
+    private static final String RESOURCE_DIRECTORY = "/fixtures/";
+    private static final List<String> FILE_NAMES = List.of(
+            "sct2_Concept_Full_LO1010000_20231015.txt",
+            "sct2_Description_Full-en_LO1010000_20231015.txt",
+            "sct2_TextDefinition_Full-en_LO1010000_20231015.txt",
+            "der2_cRefset_LanguageFull-en_LO1010000_20231015.txt",
+            "sct2_Identifier_Full_LO1010000_20231015.txt",
+            "sct2_sRefset_OWLExpressionFull_LO1010000_20231015.txt");
+
+    private Rf2Fixtures() {
+    }
+
+    /**
+     * Copies every fixture into a new temporary directory
+     *
+     * @return directory holding the fixture files
+     * @throws IOException if the fixtures cannot be copied
+     */
+    public static Path copyToTemporaryDirectory() throws IOException {
+        Path directory = Files.createTempDirectory("snomed-loinc-fixtures");
+        for (String fileName : FILE_NAMES) {
+            try (InputStream in = Rf2Fixtures.class.getResourceAsStream(RESOURCE_DIRECTORY + fileName)) {
+                if (in == null) {
+                    throw new IOException("Missing fixture " + fileName);
+                }
+                Files.copy(in, directory.resolve(fileName));
+            }
+        }
+        return directory;
+    }
+
+    /**
+     * @param directory directory returned by {@link #copyToTemporaryDirectory()}
+     * @param type      RF2 file kind
+     * @return fixture of the given kind
+     */
+    public static Path file(Path directory, Rf2FileType type) {
+        return FILE_NAMES.stream()
+                .filter(fileName -> Rf2FileType.of(fileName).orElseThrow() == type)
+                .map(directory::resolve)
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No fixture for " + type));
+    }
+
+    /**
+     * Removes a directory of copied fixtures
+     *
+     * @param directory directory returned by {@link #copyToTemporaryDirectory()}
+     */
+    public static void delete(Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
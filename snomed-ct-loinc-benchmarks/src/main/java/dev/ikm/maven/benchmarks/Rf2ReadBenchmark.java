@@ -0,0 +1,116 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven.benchmarks;
+
+import dev.ikm.maven.Rf2FileType;
+import dev.ikm.maven.Rf2RecordReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Reads the description fixture from disk the way the transformers used to, with {@link Files#lines}
+ * and {@link String#split}, and the way they do now, with {@link Rf2RecordReader}. Both read the
+ * columns the description transformer parses. Scores are per row, run with {@code -prof gc} to
+ * compare the bytes allocated per row ({@code gc.alloc.rate.norm}):
+ * <pre>
+ * java -jar snomed-ct-loinc-benchmarks/target/benchmarks.jar Rf2ReadBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class Rf2ReadBenchmark {
+    private static final int ROWS = 2_000;
+    private static final int ID = 0;
+    private static final int CONCEPT_ID = 4;
+    private static final int LANGUAGE_CODE = 5;
+    private static final int TYPE_ID = 6;
+    private static final int TERM = 7;
+    private static final int CASE_SIGNIFICANCE_ID = 8;
+
+    private Path fixtures;
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fixtures = Rf2Fixtures.copyToTemporaryDirectory();
+        file = Rf2Fixtures.file(fixtures, Rf2FileType.DESCRIPTION);
+        try (Stream<String> lines = Files.lines(file)) {
+            // Scores are divided by ROWS, see OperationsPerInvocation
+            if (lines.skip(1).count() != ROWS) {
+                throw new IllegalStateException("Description fixture does not have " + ROWS + " rows");
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Rf2Fixtures.delete(fixtures);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void filesLinesAndSplit(Blackhole blackhole) throws IOException {
+        try (Stream<String> lines = Files.lines(file)) {
+            lines.skip(1).forEach(line -> {
+                String[] columns = line.split("\t");
+                blackhole.consume(Long.parseLong(columns[ID]));
+                blackhole.consume(Long.parseLong(columns[CONCEPT_ID]));
+                blackhole.consume(columns[LANGUAGE_CODE]);
+                blackhole.consume(Long.parseLong(columns[TYPE_ID]));
+                blackhole.consume(columns[TERM]);
+                blackhole.consume(Long.parseLong(columns[CASE_SIGNIFICANCE_ID]));
+            });
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void recordReader(Blackhole blackhole) throws IOException {
+        try (Rf2RecordReader row = Rf2RecordReader.open(file)) {
+            row.next();
+            while (row.next()) {
+                blackhole.consume(row.longValue(ID));
+                blackhole.consume(row.longValue(CONCEPT_ID));
+                blackhole.consume(row.string(LANGUAGE_CODE));
+                blackhole.consume(row.longValue(TYPE_ID));
+                blackhole.consume(row.string(TERM));
+                blackhole.consume(row.longValue(CASE_SIGNIFICANCE_ID));
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven.benchmarks;
+
+import dev.ikm.maven.MojoParameters;
+import dev.ikm.maven.SnomedLoincTransformationMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs {@link SnomedLoincTransformationMojo} in this JVM over synthetic releases of increasing size
+ * and records throughput and peak heap per size. Results are written as CSV and plotted as SVG.
+ * Mojo parameters are set the way Maven would, with the defaults of the plugin, so each run measures
+ * what the pipeline does.
+ * <p>
+ * Usage: {@code ScaleHarness <work directory> [scales] [controller]}, scales default to 1,10,100.
+ * Run with the heap the pipeline gets, e.g. {@code -Xmx3g}, to see where it stops scaling.
+ */
+public class ScaleHarness {
+    private static final String NAMESPACE = "3094dbd1-60cf-44a6-92e3-0bb32ca4d3de";
+    private static final Pattern ROWS_COMPOSED = Pattern.compile("\"rowsComposed\":(\\d+)");
+
+    private final Path workDirectory;
+    private final String controllerName;
+
+    /**
+     * Result of one run
+     */
+    record Measurement(double scale, int concepts, long rows, long elapsedMillis, long peakHeapBytes) {
+        double rowsPerSecond() {
+            return elapsedMillis == 0 ? 0 : rows * 1000.0 / elapsedMillis;
+        }
+    }
+
+    public ScaleHarness(Path workDirectory, String controllerName) {
+        this.workDirectory = workDirectory;
+        this.controllerName = controllerName;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: ScaleHarness <work directory> [scales, e.g. 1,10,100] [controller]");
+            System.exit(1);
+        }
+        Path workDirectory = Path.of(args[0]);
+        String scales = args.length > 1 ? args[1] : "1,10,100";
+        String controller = args.length > 2 ? args[2] : "Open SpinedArrayStore";
+        ScaleHarness harness = new ScaleHarness(workDirectory, controller);
+        List<Measurement> measurements = new ArrayList<>();
+        for (String scale : scales.split(",")) {
+            Measurement measurement = harness.run(Double.parseDouble(scale.trim()));
+            System.out.printf(Locale.ROOT, "x%s: %d rows in %d ms, %.0f rows/s, peak heap %d MB%n", scale, measurement.rows(),
+                    measurement.elapsedMillis(), measurement.rowsPerSecond(), measurement.peakHeapBytes() >> 20);
+            measurements.add(measurement);
+        }
+        writeCsv(measurements, workDirectory.resolve("scale-results.csv"));
+        writeSvg(measurements, workDirectory.resolve("scale-results.svg"));
+    }
+
+    /**
+     * Generates the release of a scale, if not generated yet, and transforms it into a new datastore
+     *
+     * @param scale multiple of the base release size
+     * @return measurement of the run
+     */
+    public Measurement run(double scale) throws IOException, MojoExecutionException, ReflectiveOperationException {
+        SyntheticRf2Release release = new SyntheticRf2Release(scale, 20231015L);
+        Path zip = workDirectory.resolve("releases").resolve(SyntheticRf2Release.zipFileName(scale));
+        if (!Files.exists(zip)) {
+            release.write(zip.getParent());
+        }
+        String runName = "x" + String.format(Locale.ROOT, "%s", scale).replace('.', '_');
+        Path datastore = workDirectory.resolve("datastores").resolve(runName);
+        if (Files.exists(datastore)) {
+            Rf2Fixtures.delete(datastore);
+        }
+        Path report = workDirectory.resolve("reports").resolve(runName + ".json");
+
+        SnomedLoincTransformationMojo mojo = new SnomedLoincTransformationMojo();
+        MojoParameters.configure(mojo, workDirectory, mojoParameters(workDirectory, runName, zip, datastore, controllerName));
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        AtomicLong peakHeap = new AtomicLong(memory.getHeapMemoryUsage().getUsed());
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "heap-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(() -> peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max),
+                0, 50, TimeUnit.MILLISECONDS);
+        long start = System.nanoTime();
+        try {
+            mojo.execute();
+        } finally {
+            sampler.shutdownNow();
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        return new Measurement(scale, release.concepts(), rowsComposed(report), elapsedMillis, peakHeap.get());
+    }
+
+    /**
+     * Parameters of a load that differ from the defaults of the plugin, {@link MojoParameters} sets the
+     * rest the way Maven would
+     *
+     * @param workDirectory  directory holding the scratch output of every run
+     * @param runName        name of the run, used for its scratch directories and report
+     * @param zip            release to load
+     * @param datastore      datastore directory
+     * @param controllerName store controller
+     * @return parameter values by field name
+     */
+    static Map<String, Object> mojoParameters(Path workDirectory, String runName, Path zip, Path datastore, String controllerName) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("namespaceString", NAMESPACE);
+        parameters.put("datastorePath", datastore.toString());
+        parameters.put("inputDirectoryPath", zip.toString());
+        parameters.put("dataOutputPath", workDirectory.resolve("unzipped").resolve(runName).toString());
+        parameters.put("controllerName", controllerName);
+        parameters.put("streamFromArchive", true);
+        parameters.put("reportPath", workDirectory.resolve("reports").resolve(runName + ".json").toString());
+        parameters.put("sortDirectory", workDirectory.resolve("sorted").resolve(runName).toString());
+        // Every run measures a load from text
+        parameters.put("rowCache", false);
+        parameters.put("upToDateCheck", false);
+        parameters.put("rejectDirectory", workDirectory.resolve("rejects").resolve(runName).toString());
+        // Synthetic releases are clean, a rejected row is a bug
+        parameters.put("rejectBudget", 0L);
+        return parameters;
+    }
+
+    private static long rowsComposed(Path report) throws IOException {
+        // The load total is the first rowsComposed of the report, before the per file entries
+        Matcher matcher = ROWS_COMPOSED.matcher(Files.readString(report));
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : 0;
+    }
+
+    static void writeCsv(List<Measurement> measurements, Path file) throws IOException {
+        StringBuilder csv = new StringBuilder("scale,concepts,rows,elapsedMillis,rowsPerSecond,peakHeapMegabytes\n");
+        for (Measurement measurement : measurements) {
+            csv.append(String.format(Locale.ROOT, "%s,%d,%d,%d,%.0f,%d%n", measurement.scale(), measurement.concepts(),
+                    measurement.rows(), measurement.elapsedMillis(), measurement.rowsPerSecond(), measurement.peakHeapBytes() >> 20));
+        }
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, csv);
+    }
+
+    /**
+     * Plots rows per second and peak heap against release size, both on a log scale of rows
+     */
+    static void writeSvg(List<Measurement> measurements, Path file) throws IOException {
+        int width = 900;
+        int height = 360;
+        StringBuilder svg = new StringBuilder()
+                .append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(width)
+                .append("\" height=\"").append(height).append("\" font-family=\"sans-serif\" font-size=\"12\">\n")
+                .append("<rect width=\"100%\" height=\"100%\" fill=\"white\"/>\n");
+        chart(svg, measurements, 0, "Throughput (rows/s)", Measurement::rowsPerSecond, "#1f77b4");
+        chart(svg, measurements, width / 2, "Peak heap (MB)", measurement -> measurement.peakHeapBytes() / 1048576.0, "#d62728");
+        svg.append("</svg>\n");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, svg);
+    }
+
+    private static void chart(StringBuilder svg, List<Measurement> measurements, int left, String title,
+                              ToDoubleFunction<Measurement> value, String color) {
+        int x0 = left + 70;
+        int x1 = left + 420;
+        int y0 = 300;
+        int y1 = 40;
+        double minRows = Math.log10(Math.max(1, measurements.stream().mapToLong(Measurement::rows).min().orElse(1)));
+        double maxRows = Math.log10(Math.max(10, measurements.stream().mapToLong(Measurement::rows).max().orElse(10)));
+        double maxValue = Math.max(1, measurements.stream().mapToDouble(value).max().orElse(1));
+        svg.append(String.format(Locale.ROOT, "<text x=\"%d\" y=\"25\" font-weight=\"bold\">%s</text>%n", x0, title))
+                .append(String.format(Locale.ROOT, "<line x1=\"%d\" y1=\"%d\" x2=\"%d\" y2=\"%d\" stroke=\"black\"/>%n", x0, y0, x1, y0))
+                .append(String.format(Locale.ROOT, "<line x1=\"%d\" y1=\"%d\" x2=\"%d\" y2=\"%d\" stroke=\"black\"/>%n", x0, y0, x0, y1))
+                .append(String.format(Locale.ROOT, "<text x=\"%d\" y=\"%d\" text-anchor=\"end\">%.0f</text>%n", x0 - 5, y1 + 4, maxValue))
+                .append(String.format(Locale.ROOT, "<text x=\"%d\" y=\"%d\" text-anchor=\"end\">0</text>%n", x0 - 5, y0 + 4))
+                .append(String.format(Locale.ROOT, "<text x=\"%d\" y=\"%d\" text-anchor=\"middle\">rows (log scale)</text>%n", (x0 + x1) / 2, y0 + 40));
+        StringBuilder points = new StringBuilder();
+        for (Measurement measurement : measurements) {
+            double position = maxRows == minRows ? 0.5 : (Math.log10(Math.max(1, measurement.rows())) - minRows) / (maxRows - minRows);
+            double x = x0 + 20 + position * (x1 - x0 - 40);
+            double y = y0 - value.applyAsDouble(measurement) / maxValue * (y0 - y1);
+            points.append(String.format(Locale.ROOT, "%.1f,%.1f ", x, y));
+            svg.append(String.format(Locale.ROOT, "<circle cx=\"%.1f\" cy=\"%.1f\" r=\"4\" fill=\"%s\"/>%n", x, y, color))
+                    .append(String.format(Locale.ROOT, "<text x=\"%.1f\" y=\"%d\" text-anchor=\"middle\">x%s (%d)</text>%n",
+                            x, y0 + 18, measurement.scale(), measurement.rows()));
+        }
+        svg.append(String.format(Locale.ROOT, "<polyline points=\"%s\" fill=\"none\" stroke=\"%s\" stroke-width=\"2\"/>%n",
+                points.toString().trim(), color));
+    }
+}
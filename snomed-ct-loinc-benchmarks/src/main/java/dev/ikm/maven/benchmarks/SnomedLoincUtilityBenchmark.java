@@ -0,0 +1,168 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven.benchmarks;
+
+import dev.ikm.maven.OwlExpressionRewriter;
+import dev.ikm.maven.Rf2FileType;
+import dev.ikm.maven.Rf2RecordReader;
+import dev.ikm.maven.SctIdCache;
+import dev.ikm.maven.SnomedLoincUtility;
+import dev.ikm.tinkar.common.id.PublicIds;
+import dev.ikm.tinkar.common.util.uuid.UuidUtil;
+import dev.ikm.tinkar.terms.EntityProxy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micro benchmarks of the per row work of the transformation: effective time conversion, OWL
+ * expression rewriting, SCTID to proxy derivation and RF2 row splitting. Inputs come from the
+ * fixtures, each invocation walks every row so results are per fixture file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnomedLoincUtilityBenchmark {
+    private List<String> effectiveTimes;
+    private int[] effectiveTimeValues;
+    private List<String> owlExpressions;
+    private long[] conceptIds;
+    private byte[] descriptionBytes;
+    private List<String> descriptionLines;
+    private OwlExpressionRewriter warmRewriter;
+    private SctIdCache onHeapCache;
+    private SctIdCache offHeapCache;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path fixtures = Rf2Fixtures.copyToTemporaryDirectory();
+        try {
+            List<String> concepts = rows(Rf2Fixtures.file(fixtures, Rf2FileType.CONCEPT));
+            effectiveTimes = concepts.stream().map(row -> row.split("\t")[1]).toList();
+            effectiveTimeValues = effectiveTimes.stream().mapToInt(Integer::parseInt).toArray();
+            conceptIds = concepts.stream().mapToLong(row -> Long.parseLong(row.split("\t")[0])).toArray();
+            owlExpressions = rows(Rf2Fixtures.file(fixtures, Rf2FileType.OWL_EXPRESSION)).stream()
+                    .map(row -> row.split("\t")[6])
+                    .toList();
+            Path descriptions = Rf2Fixtures.file(fixtures, Rf2FileType.DESCRIPTION);
+            descriptionBytes = Files.readAllBytes(descriptions);
+            descriptionLines = Files.readAllLines(descriptions);
+        } finally {
+            Rf2Fixtures.delete(fixtures);
+        }
+        warmRewriter = new OwlExpressionRewriter();
+        owlExpressions.forEach(warmRewriter::rewrite);
+        onHeapCache = SctIdCache.create(false);
+        offHeapCache = SctIdCache.create(true);
+        for (long id : conceptIds) {
+            onHeapCache.concept(id);
+            offHeapCache.concept(id);
+        }
+    }
+
+    private static List<String> rows(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file);
+        return lines.subList(1, lines.size());
+    }
+
+    @Benchmark
+    public void effectiveTimeFromString(Blackhole blackhole) {
+        for (String effectiveTime : effectiveTimes) {
+            blackhole.consume(SnomedLoincUtility.snomedTimestampToEpochSeconds(effectiveTime));
+        }
+    }
+
+    @Benchmark
+    public void effectiveTimeFromInt(Blackhole blackhole) {
+        for (int effectiveTime : effectiveTimeValues) {
+            blackhole.consume(SnomedLoincUtility.snomedTimestampToEpochSeconds(effectiveTime));
+        }
+    }
+
+    @Benchmark
+    public void owlExpressionColdMemo(Blackhole blackhole) {
+        OwlExpressionRewriter rewriter = new OwlExpressionRewriter();
+        for (String owlExpression : owlExpressions) {
+            blackhole.consume(rewriter.rewrite(owlExpression));
+        }
+    }
+
+    @Benchmark
+    public void owlExpressionWarmMemo(Blackhole blackhole) {
+        for (String owlExpression : owlExpressions) {
+            blackhole.consume(warmRewriter.rewrite(owlExpression));
+        }
+    }
+
+    @Benchmark
+    public void conceptProxyFromSnomed(Blackhole blackhole) {
+        for (long id : conceptIds) {
+            blackhole.consume(EntityProxy.Concept.make(PublicIds.of(UuidUtil.fromSNOMED(Long.toString(id)))));
+        }
+    }
+
+    @Benchmark
+    public void conceptProxyOnHeapCache(Blackhole blackhole) {
+        for (long id : conceptIds) {
+            blackhole.consume(onHeapCache.concept(id));
+        }
+    }
+
+    @Benchmark
+    public void conceptProxyOffHeapCache(Blackhole blackhole) {
+        for (long id : conceptIds) {
+            blackhole.consume(offHeapCache.concept(id));
+        }
+    }
+
+    @Benchmark
+    public void splitLinesWithStringSplit(Blackhole blackhole) {
+        for (String line : descriptionLines) {
+            String[] columns = line.split("\t");
+            blackhole.consume(columns[0]);
+            blackhole.consume(columns[7]);
+        }
+    }
+
+    @Benchmark
+    public void splitLinesWithRecordReader(Blackhole blackhole) throws IOException {
+        try (Rf2RecordReader row = new Rf2RecordReader(ByteBuffer.wrap(descriptionBytes))) {
+            while (row.next()) {
+                blackhole.consume(row.columnCount());
+                blackhole.consume(row.string(7));
+            }
+        }
+    }
+}
@@ -0,0 +1,463 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Generates a structurally valid RF2 Full release of a LOINC extension at a configurable scale.
+ * Identifiers carry the extension namespace and a Verhoeff check digit, LOINC codes carry their mod
+ * 10 check digit, components get version histories over several releases including inactivations,
+ * and OWL expressions follow the role grouped observable entity pattern of the real extension. Every
+ * concept is derived from its index and the seed alone, so files are written in a streaming pass
+ * each and identical inputs give byte identical releases.
+ * <p>
+ * Usage: {@code SyntheticRf2Release <scale> <output directory> [seed]}, a scale of 1 writes
+ * {@value #BASE_CONCEPTS} concepts.
+ */
+public class SyntheticRf2Release {
+    static final int BASE_CONCEPTS = 25_000;
+    static final String MODULE_ID = "11010000107";
+    static final String[] RELEASES = {"20220315", "20220915", "20230315", "20231015"};
+    private static final String NAMESPACE = "1010000";
+    private static final String ROOT = "SnomedCT_LOINCExtension_SYNTHETIC_LO1010000_20231015T120000Z";
+    private static final String FILE_SUFFIX = "_LO1010000_20231015.txt";
+    private static final String LINE_END = "\r\n";
+
+    private static final String PRIMITIVE = "900000000000074008";
+    private static final String DEFINED = "900000000000073002";
+    private static final String FSN = "900000000000003001";
+    private static final String SYNONYM = "900000000000013009";
+    private static final String DEFINITION = "900000000000550004";
+    private static final String[] CASE_SIGNIFICANCE = {"900000000000448009", "900000000000017005", "900000000000020002"};
+    private static final String US_ENGLISH = "900000000000509007";
+    private static final String GB_ENGLISH = "900000000000508004";
+    private static final String PREFERRED = "900000000000548007";
+    private static final String ACCEPTABLE = "900000000000549004";
+    private static final String LOINC_CODE_SCHEME = "705114005";
+    private static final String OWL_AXIOM_REFSET = "733073007";
+    private static final String OWL_ONTOLOGY_REFSET = "762103008";
+    private static final String OWL_ONTOLOGY_NAMESPACE = "734147008";
+    private static final String OBSERVABLE_ENTITY = "363787002";
+    private static final String ROLE_GROUP = "609096000";
+
+    // Attribute and value SCTIDs of the international edition used by LOINC extension observables
+    private static final String COMPONENT = "246093002";
+    private static final String PROPERTY = "370130000";
+    private static final String TIME_ASPECT = "370134009";
+    private static final String DIRECT_SITE = "704327008";
+    private static final String SCALE_TYPE = "370132008";
+    private static final String TECHNIQUE = "246501002";
+
+    private record Part(String sctid, String name) {
+    }
+
+    private static final Part[] COMPONENTS = {
+            new Part("67079006", "Glucose"), new Part("39972003", "Sodium"), new Part("88480006", "Potassium"),
+            new Part("38082009", "Hemoglobin"), new Part("15373003", "Creatinine"), new Part("73211009", "Urea"),
+            new Part("70106000", "Albumin"), new Part("9331000", "Bilirubin"), new Part("46511006", "Chloride"),
+            new Part("5540006", "Calcium"), new Part("3829006", "Iron"), new Part("43396009", "Hemoglobin A1c"),
+            new Part("102753005", "Cholesterol"), new Part("85600001", "Triglyceride"), new Part("80417007", "Ferritin")};
+    private static final Part[] PROPERTIES = {
+            new Part("118539007", "Mass concentration"), new Part("118556004", "Substance concentration"),
+            new Part("118586006", "Ratio"), new Part("118585005", "Presence"), new Part("30766002", "Mass fraction")};
+    private static final Part[] TIMES = {
+            new Part("123029007", "Single point in time"), new Part("1055296007", "24 hour")};
+    private static final Part[] SITES = {
+            new Part("119364003", "Serum"), new Part("50863008", "Plasma"), new Part("87612001", "Blood"),
+            new Part("78014005", "Urine"), new Part("65216001", "Body fluid"), new Part("258450006", "Cerebrospinal fluid")};
+    private static final Part[] SCALES = {
+            new Part("30766002", "Quantitative"), new Part("26716007", "Qualitative"), new Part("117363000", "Ordinal")};
+    private static final Part[] TECHNIQUES = {
+            new Part("702659008", "Automated count"), new Part("117617002", "Immunoassay"), new Part("703633006", "Test strip")};
+
+    private final int concepts;
+    private final long seed;
+
+    /**
+     * @param scale multiple of {@value #BASE_CONCEPTS} concepts to generate
+     * @param seed  seed of every random choice
+     */
+    public SyntheticRf2Release(double scale, long seed) {
+        this.concepts = Math.max(1, (int) Math.round(BASE_CONCEPTS * scale));
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: SyntheticRf2Release <scale> <output directory> [seed]");
+            System.exit(1);
+        }
+        double scale = Double.parseDouble(args[0]);
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 20231015L;
+        Path zip = new SyntheticRf2Release(scale, seed).write(Path.of(args[1]));
+        System.out.println("Wrote " + zip);
+    }
+
+    /**
+     * @param scale multiple of the base size
+     * @return file name of the release zip for a scale
+     */
+    public static String zipFileName(double scale) {
+        return "xSnomedCT_LOINCExtension_SYNTHETIC_x" + String.format(Locale.ROOT, "%s", scale).replace('.', '_')
+                + "_LO1010000_20231015T120000Z.zip";
+    }
+
+    /**
+     * @return number of concepts in the release
+     */
+    public int concepts() {
+        return concepts;
+    }
+
+    /**
+     * Writes the release zip, laid out as a published release with the RF2 files under Full
+     *
+     * @param directory directory to write the zip to, created if needed
+     * @return release zip
+     * @throws IOException if the release cannot be written
+     */
+    public Path write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Path zip = directory.resolve(zipFileName((double) concepts / BASE_CONCEPTS));
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+            entry(out, writer, "Full/Terminology/sct2_Concept_Full" + FILE_SUFFIX,
+                    "id\teffectiveTime\tactive\tmoduleId\tdefinitionStatusId", this::writeConcepts);
+            entry(out, writer, "Full/Terminology/sct2_Description_Full-en" + FILE_SUFFIX,
+                    "id\teffectiveTime\tactive\tmoduleId\tconceptId\tlanguageCode\ttypeId\tterm\tcaseSignificanceId",
+                    this::writeDescriptions);
+            entry(out, writer, "Full/Terminology/sct2_TextDefinition_Full-en" + FILE_SUFFIX,
+                    "id\teffectiveTime\tactive\tmoduleId\tconceptId\tlanguageCode\ttypeId\tterm\tcaseSignificanceId",
+                    this::writeDefinitions);
+            entry(out, writer, "Full/Terminology/sct2_Identifier_Full" + FILE_SUFFIX,
+                    "alternateIdentifier\teffectiveTime\tactive\tmoduleId\tidentifierSchemeId\treferencedComponentId",
+                    this::writeIdentifiers);
+            entry(out, writer, "Full/Terminology/sct2_sRefset_OWLExpressionFull" + FILE_SUFFIX,
+                    "id\teffectiveTime\tactive\tmoduleId\trefsetId\treferencedComponentId\towlExpression",
+                    this::writeAxioms);
+            entry(out, writer, "Full/Refset/Language/der2_cRefset_LanguageFull-en" + FILE_SUFFIX,
+                    "id\teffectiveTime\tactive\tmoduleId\trefsetId\treferencedComponentId\tacceptabilityId",
+                    this::writeLanguage);
+        }
+        return zip;
+    }
+
+    private interface RowWriter {
+        void write(Writer writer) throws IOException;
+    }
+
+    private static void entry(ZipOutputStream out, Writer writer, String name, String header, RowWriter rows) throws IOException {
+        out.putNextEntry(new ZipEntry(ROOT + "/" + name));
+        writer.write(header);
+        writer.write(LINE_END);
+        rows.write(writer);
+        writer.flush();
+        out.closeEntry();
+    }
+
+    private static void row(Writer writer, String... columns) throws IOException {
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                writer.write('\t');
+            }
+            writer.write(columns[i]);
+        }
+        writer.write(LINE_END);
+    }
+
+    /**
+     * One version of a component: the release it appeared in and whether it is active
+     */
+    private record Version(int release, boolean active, int variant) {
+    }
+
+    /**
+     * Everything generated for a single concept, derived from its index
+     */
+    private final class Concept {
+        private final int index;
+        private final SplittableRandom random;
+        private final String id;
+        private final String loincCode;
+        private final Part component;
+        private final Part property;
+        private final Part time;
+        private final Part site;
+        private final Part scale;
+        private final Part technique;
+        private final List<Version> versions = new ArrayList<>();
+        private final boolean hasDefinition;
+        private final int synonyms;
+
+        private Concept(int index) {
+            this.index = index;
+            this.random = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + index);
+            this.id = sctid(1000L + index, "10");
+            this.loincCode = loincCode(10000 + index);
+            this.component = pick(COMPONENTS);
+            this.property = pick(PROPERTIES);
+            this.time = pick(TIMES);
+            this.site = pick(SITES);
+            this.scale = pick(SCALES);
+            this.technique = random.nextInt(4) == 0 ? pick(TECHNIQUES) : null;
+            this.hasDefinition = random.nextInt(4) == 0;
+            this.synonyms = 1 + random.nextInt(2);
+            int release = random.nextInt(RELEASES.length);
+            int definitionStatus = random.nextInt(5) < 3 ? 1 : 0;
+            versions.add(new Version(release, true, definitionStatus));
+            while (++release < RELEASES.length) {
+                int change = random.nextInt(100);
+                if (change < 3) {
+                    versions.add(new Version(release, false, definitionStatus));
+                    break;
+                } else if (change < 15) {
+                    definitionStatus = 1 - definitionStatus;
+                    versions.add(new Version(release, true, definitionStatus));
+                }
+            }
+        }
+
+        private Part pick(Part[] parts) {
+            return parts[random.nextInt(parts.length)];
+        }
+
+        private int firstRelease() {
+            return versions.get(0).release();
+        }
+
+        private Version last() {
+            return versions.get(versions.size() - 1);
+        }
+
+        /**
+         * Versions of a component that starts with the concept and follows its inactivation
+         */
+        private List<Version> dependentVersions(int changePercent, int variants) {
+            List<Version> dependent = new ArrayList<>();
+            int variant = random.nextInt(variants);
+            dependent.add(new Version(firstRelease(), true, variant));
+            Version inactivation = last().active() ? null : last();
+            for (int release = firstRelease() + 1; release < RELEASES.length; release++) {
+                if (inactivation != null && inactivation.release() == release) {
+                    dependent.add(new Version(release, false, variant));
+                    break;
+                }
+                if (random.nextInt(100) < changePercent) {
+                    variant = (variant + 1) % variants;
+                    dependent.add(new Version(release, true, variant));
+                }
+            }
+            return dependent;
+        }
+
+        private String descriptionId(int k) {
+            return sctid((1000L + index) * 4 + k, "11");
+        }
+
+        private String term(int k) {
+            String name = component.name() + " " + property.name().toLowerCase(Locale.ROOT) + " in "
+                    + site.name().toLowerCase(Locale.ROOT);
+            return switch (k) {
+                case 0 -> name + " at " + time.name().toLowerCase(Locale.ROOT) + " (observable entity)";
+                case 1 -> name;
+                default -> component.name() + ":" + property.name() + ":" + time.name() + ":" + site.name() + ":" + scale.name()
+                        + (technique == null ? "" : ":" + technique.name());
+            };
+        }
+    }
+
+    private void writeConcepts(Writer writer) throws IOException {
+        for (int i = 0; i < concepts; i++) {
+            Concept concept = new Concept(i);
+            for (Version version : concept.versions) {
+                row(writer, concept.id, RELEASES[version.release()], flag(version.active()), MODULE_ID,
+                        version.variant() == 1 ? DEFINED : PRIMITIVE);
+            }
+        }
+    }
+
+    private void writeDescriptions(Writer writer) throws IOException {
+        for (int i = 0; i < concepts; i++) {
+            Concept concept = new Concept(i);
+            for (int k = 0; k <= concept.synonyms; k++) {
+                for (Version version : concept.dependentVersions(10, CASE_SIGNIFICANCE.length)) {
+                    row(writer, concept.descriptionId(k), RELEASES[version.release()], flag(version.active()), MODULE_ID,
+                            concept.id, "en", k == 0 ? FSN : SYNONYM, concept.term(k), CASE_SIGNIFICANCE[version.variant()]);
+                }
+            }
+        }
+    }
+
+    private void writeDefinitions(Writer writer) throws IOException {
+        for (int i = 0; i < concepts; i++) {
+            Concept concept = new Concept(i);
+            if (concept.hasDefinition) {
+                String term = "Measurement of " + concept.component.name().toLowerCase(Locale.ROOT) + " "
+                        + concept.property.name().toLowerCase(Locale.ROOT) + " in a "
+                        + concept.site.name().toLowerCase(Locale.ROOT) + " specimen";
+                for (Version version : concept.dependentVersions(10, 2)) {
+                    row(writer, concept.descriptionId(3), RELEASES[version.release()], flag(version.active()), MODULE_ID,
+                            concept.id, "en", DEFINITION, version.variant() == 0 ? term : term + " by "
+                                    + (concept.technique == null ? "any method" : concept.technique.name().toLowerCase(Locale.ROOT)),
+                            CASE_SIGNIFICANCE[0]);
+                }
+            }
+        }
+    }
+
+    private void writeLanguage(Writer writer) throws IOException {
+        for (int i = 0; i < concepts; i++) {
+            Concept concept = new Concept(i);
+            for (int k = 0; k <= concept.synonyms; k++) {
+                String descriptionId = concept.descriptionId(k);
+                for (String refset : new String[]{US_ENGLISH, GB_ENGLISH}) {
+                    String memberId = memberId(descriptionId + refset);
+                    // Synonyms swap between preferred and acceptable over time, the FSN stays preferred
+                    for (Version version : concept.dependentVersions(k == 0 ? 0 : 8, 2)) {
+                        boolean preferred = k == 0 || (k == 1) == (version.variant() == 0);
+                        row(writer, memberId, RELEASES[version.release()], flag(version.active()), MODULE_ID,
+                                refset, descriptionId, preferred ? PREFERRED : ACCEPTABLE);
+                    }
+                }
+            }
+        }
+    }
+
+    private void writeIdentifiers(Writer writer) throws IOException {
+        for (int i = 0; i < concepts; i++) {
+            Concept concept = new Concept(i);
+            row(writer, concept.loincCode, RELEASES[concept.firstRelease()], "1", MODULE_ID, LOINC_CODE_SCHEME, concept.id);
+            if (!concept.last().active()) {
+                row(writer, concept.loincCode, RELEASES[concept.last().release()], "0", MODULE_ID, LOINC_CODE_SCHEME, concept.id);
+            }
+        }
+    }
+
+    private void writeAxioms(Writer writer) throws IOException {
+        String[] ontology = {
+                "Prefix(:=<http://snomed.info/id/>)",
+                "Prefix(owl:=<http://www.w3.org/2002/07/owl#>)",
+                "Prefix(rdf:=<http://www.w3.org/1999/02/22-rdf-syntax-ns#>)",
+                "Ontology(<http://snomed.info/sct/11010000107>)"};
+        for (String expression : ontology) {
+            row(writer, memberId(expression), RELEASES[0], "1", MODULE_ID, OWL_ONTOLOGY_REFSET, OWL_ONTOLOGY_NAMESPACE, expression);
+        }
+        for (int i = 0; i < concepts; i++) {
+            Concept concept = new Concept(i);
+            String memberId = memberId(concept.id + OWL_AXIOM_REFSET);
+            for (Version version : concept.dependentVersions(20, SITES.length)) {
+                row(writer, memberId, RELEASES[version.release()], flag(version.active()), MODULE_ID, OWL_AXIOM_REFSET,
+                        concept.id, axiom(concept, SITES[(version.variant()) % SITES.length]));
+            }
+        }
+    }
+
+    private String axiom(Concept concept, Part site) {
+        StringBuilder group = new StringBuilder("ObjectIntersectionOf(")
+                .append(some(COMPONENT, concept.component.sctid())).append(' ')
+                .append(some(PROPERTY, concept.property.sctid())).append(' ')
+                .append(some(TIME_ASPECT, concept.time.sctid())).append(' ')
+                .append(some(DIRECT_SITE, site.sctid())).append(' ')
+                .append(some(SCALE_TYPE, concept.scale.sctid()));
+        if (concept.technique != null) {
+            group.append(' ').append(some(TECHNIQUE, concept.technique.sctid()));
+        }
+        group.append(')');
+        String definition = "ObjectIntersectionOf(:" + OBSERVABLE_ENTITY + " ObjectSomeValuesFrom(:" + ROLE_GROUP + " " + group + "))";
+        if (concept.index > 0 && concept.index % 50 == 0) {
+            // A few panels refer to a member observable by its LOINC code
+            return "SubClassOf(:" + concept.id + " ObjectIntersectionOf(:" + OBSERVABLE_ENTITY
+                    + " ObjectSomeValuesFrom(:" + ROLE_GROUP + " ObjectSomeValuesFrom(:" + COMPONENT + " :"
+                    + loincCode(10000 + concept.index - 1) + "))))";
+        }
+        return concept.last().variant() == 1 || concept.versions.get(0).variant() == 1
+                ? "EquivalentClasses(:" + concept.id + " " + definition + ")"
+                : "SubClassOf(:" + concept.id + " " + definition + ")";
+    }
+
+    private static String some(String attribute, String value) {
+        return "ObjectSomeValuesFrom(:" + attribute + " :" + value + ")";
+    }
+
+    private static String flag(boolean active) {
+        return active ? "1" : "0";
+    }
+
+    private static String memberId(String name) {
+        return UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    /**
+     * Extension SCTID: item identifier, namespace, partition and Verhoeff check digit
+     */
+    static String sctid(long item, String partition) {
+        String withoutCheck = item + NAMESPACE + partition;
+        return withoutCheck + verhoeff(withoutCheck);
+    }
+
+    private static final int[][] VERHOEFF_D = {
+            {0, 1, 2, 3, 4, 5, 6, 7, 8, 9}, {1, 2, 3, 4, 0, 6, 7, 8, 9, 5}, {2, 3, 4, 0, 1, 7, 8, 9, 5, 6},
+            {3, 4, 0, 1, 2, 8, 9, 5, 6, 7}, {4, 0, 1, 2, 3, 9, 5, 6, 7, 8}, {5, 9, 8, 7, 6, 0, 4, 3, 2, 1},
+            {6, 5, 9, 8, 7, 1, 0, 4, 3, 2}, {7, 6, 5, 9, 8, 2, 1, 0, 4, 3}, {8, 7, 6, 5, 9, 3, 2, 1, 0, 4},
+            {9, 8, 7, 6, 5, 4, 3, 2, 1, 0}};
+    private static final int[][] VERHOEFF_P = {
+            {0, 1, 2, 3, 4, 5, 6, 7, 8, 9}, {1, 5, 7, 6, 2, 8, 3, 0, 9, 4}, {5, 8, 0, 3, 7, 9, 6, 1, 4, 2},
+            {8, 9, 1, 6, 0, 4, 3, 5, 2, 7}, {9, 4, 5, 3, 1, 2, 6, 8, 7, 0}, {4, 2, 8, 6, 5, 7, 3, 9, 0, 1},
+            {2, 7, 9, 3, 8, 0, 6, 4, 1, 5}, {7, 0, 4, 6, 9, 1, 3, 2, 5, 8}};
+    private static final int[] VERHOEFF_INV = {0, 4, 3, 2, 1, 5, 6, 7, 8, 9};
+
+    static int verhoeff(String digits) {
+        int check = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            int digit = digits.charAt(digits.length() - 1 - i) - '0';
+            check = VERHOEFF_D[check][VERHOEFF_P[(i + 1) % 8][digit]];
+        }
+        return VERHOEFF_INV[check];
+    }
+
+    /**
+     * LOINC code: number, dash and mod 10 check digit
+     */
+    static String loincCode(int number) {
+        String digits = Integer.toString(number);
+        int sum = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            int digit = digits.charAt(digits.length() - 1 - i) - '0';
+            if (i % 2 == 0) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+        }
+        return digits + "-" + (10 - sum % 10) % 10;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright © 2015 IKM (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.maven.benchmarks;
+
+import dev.ikm.maven.EffectiveTimeWatermark;
+import dev.ikm.maven.OwlExpressionRewriter;
+import dev.ikm.maven.RejectSink;
+import dev.ikm.maven.Rf2ColumnarCache;
+import dev.ikm.maven.Rf2ExternalSorter;
+import dev.ikm.maven.Rf2FileType;
+import dev.ikm.maven.Rf2RowPipeline;
+import dev.ikm.maven.SctIdCache;
+import dev.ikm.maven.TransformationCheckpoint;
+import dev.ikm.maven.TransformationContext;
+import dev.ikm.maven.TransformationReport;
+import dev.ikm.tinkar.common.service.CachingService;
+import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.composer.Composer;
+import dev.ikm.tinkar.entity.EntityService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Macro benchmark of a whole {@link dev.ikm.maven.Transformer#transform} run per RF2 file kind,
+ * written into an in-memory ephemeral store so no disk datastore is involved. Each invocation starts
+ * from an empty SCTID cache and watermark, as the first file of a load would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class TransformerBenchmark {
+    static final String EPHEMERAL_CONTROLLER = "Load Ephemeral Store";
+    private static final UUID NAMESPACE = UUID.fromString("3094dbd1-60cf-44a6-92e3-0bb32ca4d3de");
+
+    @Param({"CONCEPT", "DESCRIPTION", "DEFINITION", "LANGUAGE", "IDENTIFIER", "OWL_EXPRESSION"})
+    private Rf2FileType fileType;
+
+    private Path fixtures;
+    private Path watermarkDirectory;
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void startStore() throws IOException {
+        fixtures = Rf2Fixtures.copyToTemporaryDirectory();
+        watermarkDirectory = Files.createTempDirectory("snomed-loinc-watermark");
+        file = Rf2Fixtures.file(fixtures, fileType);
+        CachingService.clearAll();
+        PrimitiveData.selectControllerByName(EPHEMERAL_CONTROLLER);
+        PrimitiveData.start();
+        EntityService.get().beginLoadPhase();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopStore() {
+        EntityService.get().endLoadPhase();
+        PrimitiveData.stop();
+        Rf2Fixtures.delete(fixtures);
+        Rf2Fixtures.delete(watermarkDirectory);
+    }
+
+    @Benchmark
+    public TransformationReport transform() throws IOException {
+        TransformationReport report = new TransformationReport();
+        TransformationContext context = new TransformationContext(256, 100_000, 0.75,
+                SctIdCache.create(false), new OwlExpressionRewriter(), EffectiveTimeWatermark.load(watermarkDirectory),
+                TransformationCheckpoint.disabled(), report, new Rf2ExternalSorter(watermarkDirectory.resolve("sorted"), 500_000),
+                Rf2ColumnarCache.disabled(), Rf2RowPipeline.of(ForkJoinPool.commonPool()), RejectSink.disabled(), false);
+        Composer composer = new Composer("Benchmark Composer: " + file.getFileName());
+        fileType.newTransformer(NAMESPACE, context).transform(file, composer);
+        composer.commitAllSessions();
+        return report;
+    }
+}
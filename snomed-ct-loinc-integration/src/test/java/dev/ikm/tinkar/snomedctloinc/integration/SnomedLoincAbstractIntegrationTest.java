@@ -1,43 +1,85 @@
 package dev.ikm.tinkar.snomedctloinc.integration;
 
-import dev.ikm.tinkar.common.service.CachingService;
-import dev.ikm.tinkar.common.service.PrimitiveData;
-import dev.ikm.tinkar.common.service.ServiceKeys;
-import dev.ikm.tinkar.common.service.ServiceProperties;
 import dev.ikm.tinkar.common.util.uuid.UuidUtil;
-import org.junit.jupiter.api.AfterAll;
-import org.junit.jupiter.api.BeforeAll;
+import dev.ikm.tinkar.coordinate.Calculators;
+import dev.ikm.tinkar.coordinate.stamp.StampCoordinateRecord;
+import dev.ikm.tinkar.coordinate.stamp.StampPositionRecord;
+import dev.ikm.tinkar.coordinate.stamp.StateSet;
+import dev.ikm.tinkar.coordinate.stamp.calculator.StampCalculator;
+import dev.ikm.tinkar.entity.PatternEntityVersion;
+import dev.ikm.tinkar.terms.EntityProxy;
+import dev.ikm.tinkar.terms.TinkarTerm;
+import org.junit.jupiter.api.extension.ExtendWith;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.stream.Stream;
 
+/**
+ * Base of the integration tests that check every row of an RF2 file against the datastore. Rows are
+ * read in batches and verified concurrently; stamp calculators and latest pattern versions are
+ * shared between rows and test classes, and the datastore is started once for all test classes by
+ * {@link SnomedLoincDatastoreExtension}.
+ */
+@ExtendWith(SnomedLoincDatastoreExtension.class)
 public abstract class SnomedLoincAbstractIntegrationTest {
+    private static final int BATCH_SIZE = 2048;
+    private static final int PARALLELISM = Integer.getInteger("verify.parallelism", Runtime.getRuntime().availableProcessors());
+    private static final Map<StampKey, StampCalculator> STAMP_CALCULATORS = new ConcurrentHashMap<>();
+    private static final Map<Integer, PatternEntityVersion> PATTERN_VERSIONS = new ConcurrentHashMap<>();
+
     Logger log = LoggerFactory.getLogger(SnomedLoincAbstractIntegrationTest.class);
 
-    @AfterAll
-    public static void shutdown() {
-        PrimitiveData.stop();
+    private record StampKey(StateSet states, long time) {
+    }
+
+    /**
+     * Returns the calculator for rows with the given status and effective time on the development path,
+     * calculators are created once and shared by every row and test class
+     *
+     * @param states allowed states of the row
+     * @param time   effective time of the row in epoch milliseconds
+     * @return stamp calculator
+     */
+    protected StampCalculator stampCalculator(StateSet states, long time) {
+        return STAMP_CALCULATORS.computeIfAbsent(new StampKey(states, time), key -> {
+            StampPositionRecord stampPosition = StampPositionRecord.make(key.time(), TinkarTerm.DEVELOPMENT_PATH.nid());
+            return StampCoordinateRecord.make(key.states(), stampPosition).stampCalculator();
+        });
+    }
+
+    /**
+     * @param pattern pattern of the semantics under test
+     * @return latest version of the pattern on the development path, resolved once per pattern
+     */
+    protected PatternEntityVersion latestPattern(EntityProxy.Pattern pattern) {
+        return PATTERN_VERSIONS.computeIfAbsent(pattern.nid(),
+                nid -> (PatternEntityVersion) Calculators.Stamp.DevelopmentLatest().latest(pattern).get());
     }
 
-    @BeforeAll
-    public static void setup() {
-        CachingService.clearAll();
-        //Note. Dataset needed to be generated within repo, with command 'mvn clean install'
-        File datastore = new File(System.getProperty("datastorePath")); // property set in pom.xml
-        ServiceProperties.set(ServiceKeys.DATA_STORE_ROOT, datastore);
-        PrimitiveData.selectControllerByName("Open SpinedArrayStore");
-        PrimitiveData.start();
+    /**
+     * Drops the shared calculators and pattern versions, called when the datastore stops
+     */
+    static void clearCaches() {
+        STAMP_CALCULATORS.clear();
+        PATTERN_VERSIONS.clear();
     }
 
     /**
@@ -69,7 +111,8 @@ public abstract class SnomedLoincAbstractIntegrationTest {
     }
 
     /**
-     * Process sourceFilePath
+     * Process sourceFilePath. Lines are verified in batches on a pool of verify.parallelism threads,
+     * lines that fail are written to the error file in file order.
      *
      * @param sourceFilePath
      * @param errorFile
@@ -77,20 +120,70 @@ public abstract class SnomedLoincAbstractIntegrationTest {
      * @throws IOException
      */
     protected int processFile(String sourceFilePath, String errorFile) throws IOException {
-        int notFound = 0;
-        try (BufferedReader br = new BufferedReader(new FileReader(sourceFilePath));
-             BufferedWriter bw = new BufferedWriter(new FileWriter(errorFile))) {
+        Map<Long, String> failures = new ConcurrentSkipListMap<>();
+        ForkJoinPool pool = new ForkJoinPool(PARALLELISM);
+        try (BufferedReader br = Files.newBufferedReader(Path.of(sourceFilePath))) {
+            // A bounded window of batches in flight keeps memory flat however large the file is
+            Deque<Future<?>> inFlight = new ArrayDeque<>();
+            List<String> batch = new ArrayList<>(BATCH_SIZE);
+            long lineNumber = 0;
+            long batchStart = 1;
             String line;
             while ((line = br.readLine()) != null) {
+                lineNumber++;
                 if ((line.startsWith("id")) || (line.startsWith("alternateIdentifier"))) continue;
-                if (!assertLine(line.split("\\t"))) {
-                    notFound++;
-                    bw.write(line);
+                if (batch.isEmpty()) {
+                    batchStart = lineNumber;
+                }
+                batch.add(line);
+                if (batch.size() == BATCH_SIZE) {
+                    submit(pool, inFlight, batch, batchStart, failures);
+                    batch = new ArrayList<>(BATCH_SIZE);
                 }
             }
+            if (!batch.isEmpty()) {
+                submit(pool, inFlight, batch, batchStart, failures);
+            }
+            while (!inFlight.isEmpty()) {
+                await(inFlight.removeFirst());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        try (BufferedWriter bw = Files.newBufferedWriter(Path.of(errorFile))) {
+            for (String failure : failures.values()) {
+                bw.write(failure);
+                bw.newLine();
+            }
         }
         log.info("We found file: " + sourceFilePath);
-        return notFound;
+        return failures.size();
+    }
+
+    private void submit(ForkJoinPool pool, Deque<Future<?>> inFlight, List<String> batch, long batchStart, Map<Long, String> failures) {
+        if (inFlight.size() >= PARALLELISM * 2) {
+            await(inFlight.removeFirst());
+        }
+        inFlight.addLast(pool.submit(() -> {
+            long lineNumber = batchStart;
+            for (String line : batch) {
+                if (!assertLine(line.split("\\t"))) {
+                    failures.put(lineNumber, line);
+                }
+                lineNumber++;
+            }
+        }));
+    }
+
+    private static void await(Future<?> batch) {
+        try {
+            batch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while verifying", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Verification failed", e.getCause());
+        }
     }
 
     protected UUID uuid(String id) {
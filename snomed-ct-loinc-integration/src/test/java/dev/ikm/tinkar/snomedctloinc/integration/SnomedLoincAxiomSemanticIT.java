@@ -1,9 +1,7 @@
 package dev.ikm.tinkar.snomedctloinc.integration;
 
+import dev.ikm.maven.OwlExpressionRewriter;
 import dev.ikm.maven.SnomedLoincUtility;
-import dev.ikm.tinkar.coordinate.Calculators;
-import dev.ikm.tinkar.coordinate.stamp.StampCoordinateRecord;
-import dev.ikm.tinkar.coordinate.stamp.StampPositionRecord;
 import dev.ikm.tinkar.coordinate.stamp.StateSet;
 import dev.ikm.tinkar.coordinate.stamp.calculator.Latest;
 import dev.ikm.tinkar.coordinate.stamp.calculator.StampCalculator;
@@ -20,6 +18,7 @@ import java.util.UUID;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 public class SnomedLoincAxiomSemanticIT extends SnomedLoincAbstractIntegrationTest {
+    private final OwlExpressionRewriter owlExpressionRewriter = new OwlExpressionRewriter();
 
     /**
      * Test Snomed Loinc Axiom Semantics.
@@ -41,15 +40,14 @@ public class SnomedLoincAxiomSemanticIT extends SnomedLoincAbstractIntegrationTe
     protected boolean assertLine(String[] columns) {
         long effectiveTime = SnomedLoincUtility.snomedTimestampToEpochSeconds(columns[1]);
         StateSet snomedAxiomStatus = Integer.parseInt(columns[2]) == 1 ? StateSet.ACTIVE : StateSet.INACTIVE;
-        String owlAxiomStr = SnomedLoincUtility.owlAxiomIdsToPublicIds(columns[6]);
+        String owlAxiomStr = owlExpressionRewriter.rewrite(columns[6]);
         UUID id = uuid(columns[0]);
 
-        StampPositionRecord stampPosition = StampPositionRecord.make(effectiveTime, TinkarTerm.DEVELOPMENT_PATH.nid());
-        StampCalculator stampCalc = StampCoordinateRecord.make(snomedAxiomStatus, stampPosition).stampCalculator();
+        StampCalculator stampCalc = stampCalculator(snomedAxiomStatus, effectiveTime);
         SemanticRecord entity = EntityService.get().getEntityFast(id);
 
         if (entity != null) {
-            PatternEntityVersion pattern = (PatternEntityVersion) Calculators.Stamp.DevelopmentLatest().latest(TinkarTerm.OWL_AXIOM_SYNTAX_PATTERN).get();
+            PatternEntityVersion pattern = latestPattern(TinkarTerm.OWL_AXIOM_SYNTAX_PATTERN);
             Latest<SemanticVersionRecord> latest = stampCalc.latest(entity);
             String fieldValue = pattern.getFieldWithMeaning(TinkarTerm.AXIOM_SYNTAX, latest.get());
             return latest.isPresent() && fieldValue.equals(owlAxiomStr);
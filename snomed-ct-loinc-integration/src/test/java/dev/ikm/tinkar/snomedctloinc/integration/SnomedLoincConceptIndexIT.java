@@ -0,0 +1,81 @@
+package dev.ikm.tinkar.snomedctloinc.integration;
+
+import dev.ikm.maven.LoincConceptIndex;
+import dev.ikm.tinkar.common.service.PrimitiveData;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SnomedLoincConceptIndexIT extends SnomedLoincAbstractIntegrationTest {
+    private static final String LOINC_SCHEME_ID = "705114005";
+    private static LoincConceptIndex index;
+    // Latest effectiveTime of every code and concept pair in the identifier file
+    private final Map<String, Integer> latestVersions = new HashMap<>();
+
+    @BeforeAll
+    public static void openIndex() throws IOException {
+        index = LoincConceptIndex.open(LoincConceptIndex.of(Path.of(System.getProperty("datastorePath"))));
+    }
+
+    @AfterAll
+    public static void closeIndex() throws IOException {
+        index.close();
+    }
+
+    /**
+     * Test the LOINC concept index written by the load.
+     *
+     * @result Reads content from file and validates that the latest version of every LOINC identifier is
+     * found in both directions by calling protected method assertLine().
+     */
+    @Test
+    public void testLoincConceptIndex() throws IOException {
+        String sourceFilePath = "../snomed-ct-loinc-origin/target/origin-sources";
+        String errorFile = "target/failsafe-reports/loinc_index_entries_not_found.txt";
+
+        String absolutePath = findFilePath(sourceFilePath, "sct2_identifier");
+        try (BufferedReader br = Files.newBufferedReader(Path.of(absolutePath))) {
+            br.lines().skip(1)
+                    .map(line -> line.split("\\t"))
+                    .filter(columns -> columns[4].equals(LOINC_SCHEME_ID))
+                    .forEach(columns -> latestVersions.merge(columns[0] + "\t" + columns[5],
+                            Integer.parseInt(columns[1]), Math::max));
+        }
+        int notFound = processFile(absolutePath, errorFile);
+
+        assertEquals(0, notFound, "Unable to find " + notFound + " LOINC index entries. Details written to " + errorFile);
+    }
+
+    @Override
+    protected boolean assertLine(String[] columns) {
+        if (!columns[4].equals(LOINC_SCHEME_ID)
+                || Integer.parseInt(columns[1]) < latestVersions.get(columns[0] + "\t" + columns[5])) {
+            // Superseded by a later version of the same pair
+            return true;
+        }
+        String loincCode = columns[0];
+        long sctid = Long.parseLong(columns[5]);
+        boolean active = Integer.parseInt(columns[2]) == 1;
+        int nid = PrimitiveData.nid(uuid(columns[5]));
+
+        boolean byCode = contains(index.concepts(loincCode), loincCode, sctid, nid);
+        boolean bySctid = contains(index.loincCodes(sctid), loincCode, sctid, nid);
+        boolean byNid = contains(index.loincCodesOfNid(nid), loincCode, sctid, nid);
+        return active ? byCode && bySctid && byNid : !byCode && !bySctid && !byNid;
+    }
+
+    private static boolean contains(List<LoincConceptIndex.Mapping> mappings, String loincCode, long sctid, int nid) {
+        return mappings.stream().anyMatch(mapping -> mapping.loincCode().equals(loincCode)
+                && mapping.sctid() == sctid && mapping.nid() == nid);
+    }
+}
@@ -1,15 +1,12 @@
 package dev.ikm.tinkar.snomedctloinc.integration;
 
 import dev.ikm.maven.SnomedLoincUtility;
-import dev.ikm.tinkar.coordinate.stamp.StampCoordinateRecord;
-import dev.ikm.tinkar.coordinate.stamp.StampPositionRecord;
 import dev.ikm.tinkar.coordinate.stamp.StateSet;
 import dev.ikm.tinkar.coordinate.stamp.calculator.Latest;
 import dev.ikm.tinkar.coordinate.stamp.calculator.StampCalculator;
 import dev.ikm.tinkar.entity.ConceptRecord;
 import dev.ikm.tinkar.entity.ConceptVersionRecord;
 import dev.ikm.tinkar.entity.EntityService;
-import dev.ikm.tinkar.terms.TinkarTerm;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
@@ -40,8 +37,7 @@ public class SnomedLoincConceptSemanticIT extends SnomedLoincAbstractIntegration
         long effectiveDate = SnomedLoincUtility.snomedTimestampToEpochSeconds(columns[1]);
         StateSet active = Integer.parseInt(columns[2]) == 1 ? StateSet.ACTIVE : StateSet.INACTIVE;
 
-        StampPositionRecord stampPosition = StampPositionRecord.make(effectiveDate, TinkarTerm.DEVELOPMENT_PATH.nid());
-        StampCalculator stampCalc = StampCoordinateRecord.make(active, stampPosition).stampCalculator();
+        StampCalculator stampCalc = stampCalculator(active, effectiveDate);
         ConceptRecord entity = EntityService.get().getEntityFast(id);
         Latest<ConceptVersionRecord> latest = stampCalc.latest(entity);
 
@@ -0,0 +1,69 @@
+package dev.ikm.tinkar.snomedctloinc.integration;
+
+import dev.ikm.tinkar.common.service.CachingService;
+import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.common.service.ServiceKeys;
+import dev.ikm.tinkar.common.service.ServiceProperties;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Starts the generated datastore once for every integration test class of the run. The datastore is
+ * kept in the root extension store, so JUnit stops it after the last class has finished instead of
+ * each class starting and stopping it again. In the ephemeral profile the release is instead loaded
+ * into an in-memory store in this JVM, see {@link SnomedLoincEphemeralLoad}.
+ */
+public class SnomedLoincDatastoreExtension implements BeforeAllCallback {
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(SnomedLoincDatastoreExtension.class);
+
+    @Override
+    public void beforeAll(ExtensionContext context) {
+        context.getRoot().getStore(NAMESPACE).getOrComputeIfAbsent(Datastore.class, key -> new Datastore(), Datastore.class);
+    }
+
+    /**
+     * Running datastore, stopped when the root store is closed at the end of the run
+     */
+    static class Datastore implements ExtensionContext.Store.CloseableResource {
+        private static final Logger LOG = LoggerFactory.getLogger(Datastore.class);
+
+        Datastore() {
+            CachingService.clearAll();
+            //Note. Dataset needed to be generated within repo, with command 'mvn clean install'
+            File datastore = new File(System.getProperty("datastorePath")); // property set in pom.xml
+            if (Boolean.getBoolean("ephemeralLoad")) {
+                // Properties set by the ephemeral profile in pom.xml
+                loadEphemeral(datastore.toPath());
+                return;
+            }
+            ServiceProperties.set(ServiceKeys.DATA_STORE_ROOT, datastore);
+            PrimitiveData.selectControllerByName("Open SpinedArrayStore");
+            PrimitiveData.start();
+            LOG.info("Started datastore " + datastore + " for the integration tests");
+        }
+
+        private static void loadEphemeral(Path datastore) {
+            long started = System.nanoTime();
+            try {
+                new SnomedLoincEphemeralLoad(datastore, Path.of(System.getProperty("releasePath")),
+                        Path.of(System.getProperty("starterDataPath")), System.getProperty("namespace")).execute();
+            } catch (MojoExecutionException | ReflectiveOperationException | IOException e) {
+                throw new IllegalStateException("Unable to load the ephemeral store", e);
+            }
+            LOG.info(String.format("Loaded the ephemeral store for the integration tests in %.1f s", (System.nanoTime() - started) / 1e9));
+        }
+
+        @Override
+        public void close() {
+            SnomedLoincAbstractIntegrationTest.clearCaches();
+            PrimitiveData.stop();
+        }
+    }
+}
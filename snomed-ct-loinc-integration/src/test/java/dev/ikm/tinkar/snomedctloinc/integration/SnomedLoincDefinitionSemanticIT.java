@@ -3,9 +3,6 @@ package dev.ikm.tinkar.snomedctloinc.integration;
 import dev.ikm.maven.SnomedLoincUtility;
 import dev.ikm.tinkar.common.id.PublicId;
 import dev.ikm.tinkar.component.Component;
-import dev.ikm.tinkar.coordinate.Calculators;
-import dev.ikm.tinkar.coordinate.stamp.StampCoordinateRecord;
-import dev.ikm.tinkar.coordinate.stamp.StampPositionRecord;
 import dev.ikm.tinkar.coordinate.stamp.StateSet;
 import dev.ikm.tinkar.coordinate.stamp.calculator.Latest;
 import dev.ikm.tinkar.coordinate.stamp.calculator.StampCalculator;
@@ -49,11 +46,10 @@ public class SnomedLoincDefinitionSemanticIT extends SnomedLoincAbstractIntegrat
         String term = columns[7];
         EntityProxy.Concept caseSensitivityConcept = SnomedLoincUtility.getDescriptionCaseSignificanceConcept(columns[8]);
 
-        StampPositionRecord stampPosition = StampPositionRecord.make(effectiveTime, TinkarTerm.DEVELOPMENT_PATH.nid());
-        StampCalculator stampCalc = StampCoordinateRecord.make(descriptionStatus, stampPosition).stampCalculator();
+        StampCalculator stampCalc = stampCalculator(descriptionStatus, effectiveTime);
         SemanticRecord entity = EntityService.get().getEntityFast(id);
 
-        PatternEntityVersion latestDescriptionPattern = (PatternEntityVersion) Calculators.Stamp.DevelopmentLatest().latest(TinkarTerm.DESCRIPTION_PATTERN).get();
+        PatternEntityVersion latestDescriptionPattern = latestPattern(TinkarTerm.DESCRIPTION_PATTERN);
         Latest<SemanticVersionRecord> latest = stampCalc.latest(entity);
         if (latest.isPresent()) {
             Component descriptionType = latestDescriptionPattern.getFieldWithMeaning(TinkarTerm.DESCRIPTION_TYPE, latest.get());
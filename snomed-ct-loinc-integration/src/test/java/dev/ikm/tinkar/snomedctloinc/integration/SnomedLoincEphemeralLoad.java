@@ -0,0 +1,66 @@
+package dev.ikm.tinkar.snomedctloinc.integration;
+
+import dev.ikm.maven.MojoParameters;
+import dev.ikm.maven.SnomedLoincPipelineMojo;
+import dev.ikm.tinkar.entity.load.LoadEntitiesFromProtobufFile;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Loads the release into an ephemeral in-memory store in the JVM of the integration tests, for the
+ * ephemeral profile. The pipeline goal runs as Maven would run it, with the Tinkar starter data
+ * imported ahead of the SNOMED CT LOINC starter concepts, and leaves the store started so the tests
+ * verify it directly.
+ */
+class SnomedLoincEphemeralLoad extends SnomedLoincPipelineMojo {
+    private static final Logger LOG = LoggerFactory.getLogger(SnomedLoincEphemeralLoad.class);
+    static final String EPHEMERAL_CONTROLLER = "Load Ephemeral Store";
+
+    private final Path starterData;
+
+    /**
+     * @param datastore   directory of the watermark, LOINC index and report of the load
+     * @param release     release zip of the origin module
+     * @param starterData Tinkar starter data changeset
+     * @param namespace   namespace of the load
+     */
+    SnomedLoincEphemeralLoad(Path datastore, Path release, Path starterData, String namespace) throws ReflectiveOperationException, IOException {
+        this.starterData = starterData;
+        // Parameters that differ from the defaults of the plugin, the rest are set the way Maven would
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("namespaceString", namespace);
+        parameters.put("datastorePath", datastore.toString());
+        parameters.put("inputDirectoryPath", release.toString());
+        parameters.put("dataOutputPath", datastore.resolve("unzipped").toString());
+        parameters.put("controllerName", EPHEMERAL_CONTROLLER);
+        parameters.put("streamFromArchive", true);
+        parameters.put("checkpoint", false);
+        parameters.put("reportPath", datastore.resolve("transformation-report.json").toString());
+        parameters.put("sortDirectory", datastore.resolve("sorted").toString());
+        parameters.put("upToDateCheck", false);
+        parameters.put("stopDatastore", false);
+        parameters.put("rejectDirectory", datastore.resolve("rejects").toString());
+        parameters.put("rejectBudget", 0L);
+        parameters.put("pipelineStages", "starterdata,transformation");
+        MojoParameters.configure(this, datastore, parameters);
+    }
+
+    @Override
+    protected void beforeLoad(File datastore) throws MojoExecutionException {
+        long started = System.nanoTime();
+        try {
+            new LoadEntitiesFromProtobufFile(starterData.toFile()).compute();
+        } catch (Exception e) {
+            throw new MojoExecutionException("Unable to import the starter data " + starterData, e);
+        }
+        LOG.info(String.format("Imported the starter data %s in %.1f s", starterData, (System.nanoTime() - started) / 1e9));
+        super.beforeLoad(datastore);
+    }
+}
@@ -4,9 +4,6 @@ import dev.ikm.maven.SnomedLoincUtility;
 import dev.ikm.tinkar.common.id.PublicId;
 import dev.ikm.tinkar.common.id.PublicIds;
 import dev.ikm.tinkar.common.util.uuid.UuidUtil;
-import dev.ikm.tinkar.coordinate.Calculators;
-import dev.ikm.tinkar.coordinate.stamp.StampCoordinateRecord;
-import dev.ikm.tinkar.coordinate.stamp.StampPositionRecord;
 import dev.ikm.tinkar.coordinate.stamp.StateSet;
 import dev.ikm.tinkar.coordinate.stamp.calculator.Latest;
 import dev.ikm.tinkar.coordinate.stamp.calculator.StampCalculator;
@@ -20,7 +17,6 @@ import dev.ikm.tinkar.entity.SemanticRecord;
 import dev.ikm.tinkar.entity.SemanticVersionRecord;
 import dev.ikm.tinkar.terms.EntityFacade;
 import dev.ikm.tinkar.terms.EntityProxy;
-import dev.ikm.tinkar.terms.TinkarTerm;
 import org.eclipse.collections.api.list.ImmutableList;
 import org.junit.jupiter.api.Test;
 
@@ -53,8 +49,7 @@ public class SnomedLoincIdentifierSemanticIT extends SnomedLoincAbstractIntegrat
         String referencedComponentId = columns[5];
         UUID uuid = UuidUtil.fromSNOMED(referencedComponentId);
 
-        StampPositionRecord stampPosition = StampPositionRecord.make(effectiveDate, TinkarTerm.DEVELOPMENT_PATH.nid());
-        StampCalculator stampCalc = StampCoordinateRecord.make(active, stampPosition).stampCalculator();
+        StampCalculator stampCalc = stampCalculator(active, effectiveDate);
         ConceptRecord entity = EntityService.get().getEntityFast(uuid);
         Latest<EntityVersion> latest = stampCalc.latest((EntityFacade) entity);
 